@@ -3,6 +3,7 @@ package com.webdws;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * WebDWS Backend Application - Main Spring Boot Application Entry Point
@@ -10,11 +11,13 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
  * This is the main application class that:
  * - Bootstraps the Spring Boot application
  * - Enables configuration properties for external configuration
+ * - Enables scheduling for background jobs (eXist-db health probe, etc.)
  * - Provides the entry point for the XML document management backend
  * - Integrates with eXist-db for XML document storage and retrieval
  */
 @SpringBootApplication
 @EnableConfigurationProperties
+@EnableScheduling
 public class WebdwsBackendApplication {
 
     public static void main(String[] args) {
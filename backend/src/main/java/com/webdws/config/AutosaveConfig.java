@@ -0,0 +1,46 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * AutosaveConfig - Configuration Properties for Autosave Drafts
+ * 
+ * This configuration class provides:
+ * - How long a document's draft may stay buffered before it is written as an update
+ * - Bounds on the draft buffer, by number of drafts and by total size in bytes
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.autosave")
+public class AutosaveConfig {
+    private Duration flushInterval = Duration.ofMinutes(5);
+    private int maxDrafts = 1000;
+    private long maxBytes = 32L * 1024 * 1024;
+    
+    // Getters and Setters
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+    
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+    
+    public int getMaxDrafts() {
+        return maxDrafts;
+    }
+    
+    public void setMaxDrafts(int maxDrafts) {
+        this.maxDrafts = maxDrafts;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
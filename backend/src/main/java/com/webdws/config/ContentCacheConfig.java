@@ -0,0 +1,57 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * ContentCacheConfig - Configuration Properties for the Document Content Cache
+ * 
+ * This configuration class provides:
+ * - Switch to enable or disable the cache
+ * - Total size bound in bytes (of the stored, possibly compressed, content)
+ * - Optional compression of cached entries to fit more of the working set
+ * - Expiry after last access, as a guard against changes made outside this service
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.content-cache")
+public class ContentCacheConfig {
+    private boolean enabled = true;
+    private long maxBytes = 64L * 1024 * 1024;
+    private boolean compress = false;
+    private Duration expireAfterAccess = Duration.ofMinutes(30);
+    
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    public boolean isCompress() {
+        return compress;
+    }
+    
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+    
+    public Duration getExpireAfterAccess() {
+        return expireAfterAccess;
+    }
+    
+    public void setExpireAfterAccess(Duration expireAfterAccess) {
+        this.expireAfterAccess = expireAfterAccess;
+    }
+}
@@ -0,0 +1,45 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ContentStorageConfig - Configuration Properties for Document Content in PostgreSQL
+ * 
+ * This configuration class provides:
+ * - What PostgreSQL keeps of each document's content besides its hash (eXist-db is authoritative)
+ * - Batch size of the background job moving content out of the legacy content column
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.content-storage")
+public class ContentStorageConfig {
+    
+    public enum Mode {
+        // Metadata and content hash only
+        NONE,
+        // Plus a deflate-compressed snapshot in a separate table, read only as a fallback
+        SNAPSHOT,
+        // Plus a full uncompressed copy in xml_documents.content (the former behaviour)
+        TEXT
+    }
+    
+    private Mode mode = Mode.NONE;
+    private int migrateBatchSize = 100;
+    
+    // Getters and Setters
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+    
+    public int getMigrateBatchSize() {
+        return migrateBatchSize;
+    }
+    
+    public void setMigrateBatchSize(int migrateBatchSize) {
+        this.migrateBatchSize = migrateBatchSize;
+    }
+}
@@ -0,0 +1,47 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * DocumentListConfig - Configuration Properties for the Document List
+ * 
+ * This configuration class provides:
+ * - Upper bound on the page size a client may request
+ * - How long a counted total is reused before the table is counted again
+ * - Upper bound on the number of name search suggestions
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.documents")
+public class DocumentListConfig {
+    private int maxPageSize = 200;
+    private Duration countCacheTtl = Duration.ofSeconds(30);
+    private int maxSuggestions = 50;
+    
+    // Getters and Setters
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+    
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+    
+    public Duration getCountCacheTtl() {
+        return countCacheTtl;
+    }
+    
+    public void setCountCacheTtl(Duration countCacheTtl) {
+        this.countCacheTtl = countCacheTtl;
+    }
+    
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+    
+    public void setMaxSuggestions(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+}
@@ -0,0 +1,130 @@
+package com.webdws.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ExistDbClientConfig - HTTP Transport Configuration for eXist-db
+ *
+ * This configuration class provides:
+ * - A pooled, keep-alive Apache HttpClient shared by all eXist-db calls
+ * - Connect, read and pool-acquire timeouts from {@link ExistDbConfig}
+ * - Background eviction of expired and idle connections
+ * - Pool usage and connection wait-time metrics on the actuator metrics endpoint
+ */
+@Configuration
+public class ExistDbClientConfig {
+
+    static final String POOL_NAME = "exist-db";
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager existDbConnectionManager(ExistDbConfig config, MeterRegistry meterRegistry) {
+        Timer acquireTimer = Timer.builder("exist.db.pool.acquire")
+            .description("Time spent waiting for a pooled eXist-db connection")
+            .tag("pool", POOL_NAME)
+            .register(meterRegistry);
+
+        PoolingHttpClientConnectionManager connectionManager = new TimedConnectionManager(acquireTimer);
+        connectionManager.setMaxTotal(config.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(toTimeout(config.getConnectTimeout()))
+            .setSocketTimeout(toTimeout(config.getReadTimeout()))
+            .setValidateAfterInactivity(toTimeValue(config.getValidateAfterInactivity()))
+            .build());
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME).bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient existDbHttpClient(PoolingHttpClientConnectionManager existDbConnectionManager,
+                                                 ExistDbConfig config) {
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(toTimeout(config.getConnectionRequestTimeout()))
+            .setResponseTimeout(toTimeout(config.getReadTimeout()))
+            .build();
+
+        return HttpClients.custom()
+            .setConnectionManager(existDbConnectionManager)
+            .setConnectionManagerShared(true)
+            .setDefaultRequestConfig(requestConfig)
+            .evictExpiredConnections()
+            .evictIdleConnections(toTimeValue(config.getIdleEvictionTime()))
+            .build();
+    }
+
+    /**
+     * RestTemplate used by ExistDbService. Built through RestTemplateBuilder so that
+     * request timings are also recorded as http.client.requests metrics.
+     */
+    @Bean
+    public RestTemplate existDbRestTemplate(RestTemplateBuilder builder, CloseableHttpClient existDbHttpClient) {
+        return builder
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(existDbHttpClient))
+            .build();
+    }
+
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    private static TimeValue toTimeValue(Duration duration) {
+        return TimeValue.ofMilliseconds(duration.toMillis());
+    }
+
+    /**
+     * Connection manager that records how long each lease waited for a free connection.
+     */
+    private static class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer acquireTimer;
+
+        TimedConnectionManager(Timer acquireTimer) {
+            this.acquireTimer = acquireTimer;
+        }
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+            LeaseRequest delegate = super.lease(id, route, requestTimeout, state);
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                    long start = System.nanoTime();
+                    try {
+                        return delegate.get(timeout);
+                    } finally {
+                        acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return delegate.cancel();
+                }
+            };
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.webdws.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * ExistDbConfig - Configuration Properties for eXist-db Integration
  * 
@@ -11,6 +13,8 @@ import org.springframework.context.annotation.Configuration;
  * - Default values for development and production environments
  * - Property binding from application.yml or environment variables
  * - Centralized configuration management for XML database operations
+ * - Connection pool sizing and timeouts for the HTTP transport to eXist-db
+ * - Health probe interval and circuit breaker threshold
  */
 @Configuration
 @ConfigurationProperties(prefix = "exist.db")
@@ -20,6 +24,21 @@ public class ExistDbConfig {
     private String password = "";
     private String collection = "/db/webdws";
     
+    // HTTP transport: connection pool
+    private int maxConnections = 50;
+    private int maxConnectionsPerRoute = 50;
+    private Duration idleEvictionTime = Duration.ofSeconds(30);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    
+    // HTTP transport: timeouts
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+    
+    // Availability: background probe and circuit breaker
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+    private int failureThreshold = 3;
+    
     // Getters and Setters
     public String getUrl() {
         return url;
@@ -52,4 +71,76 @@ public class ExistDbConfig {
     public void setCollection(String collection) {
         this.collection = collection;
     }
+    
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+    
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+    
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+    
+    public Duration getIdleEvictionTime() {
+        return idleEvictionTime;
+    }
+    
+    public void setIdleEvictionTime(Duration idleEvictionTime) {
+        this.idleEvictionTime = idleEvictionTime;
+    }
+    
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+    
+    public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+    
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+    
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+    
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+    
+    public Duration getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+    
+    public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+    
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+    
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+    
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+    
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
 }
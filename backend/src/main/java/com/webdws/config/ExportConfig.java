@@ -0,0 +1,35 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ExportConfig - Configuration Properties for Bulk Exports
+ * 
+ * This configuration class provides:
+ * - Number of documents fetched from eXist-db concurrently
+ * - Number of metadata rows read per keyset page
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.export")
+public class ExportConfig {
+    private int fetchConcurrency = 8;
+    private int pageSize = 500;
+    
+    // Getters and Setters
+    public int getFetchConcurrency() {
+        return fetchConcurrency;
+    }
+    
+    public void setFetchConcurrency(int fetchConcurrency) {
+        this.fetchConcurrency = fetchConcurrency;
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
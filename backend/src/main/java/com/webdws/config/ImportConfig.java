@@ -0,0 +1,74 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * ImportConfig - Configuration Properties for Bulk Imports
+ * 
+ * This configuration class provides:
+ * - Parallelism of entry validation
+ * - Batch size for eXist-db writes and JDBC inserts
+ * - Limits protecting the server from oversized uploads and error lists
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.import")
+public class ImportConfig {
+    private int validationThreads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 200;
+    private int maxConcurrentJobs = 2;
+    private int maxReportedErrors = 1000;
+    private long maxEntrySize = 50L * 1024 * 1024;
+    private Duration jobRetention = Duration.ofHours(1);
+    
+    // Getters and Setters
+    public int getValidationThreads() {
+        return validationThreads;
+    }
+    
+    public void setValidationThreads(int validationThreads) {
+        this.validationThreads = validationThreads;
+    }
+    
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public int getMaxConcurrentJobs() {
+        return maxConcurrentJobs;
+    }
+    
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+    
+    public int getMaxReportedErrors() {
+        return maxReportedErrors;
+    }
+    
+    public void setMaxReportedErrors(int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+    
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+    
+    public void setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+    
+    public Duration getJobRetention() {
+        return jobRetention;
+    }
+    
+    public void setJobRetention(Duration jobRetention) {
+        this.jobRetention = jobRetention;
+    }
+}
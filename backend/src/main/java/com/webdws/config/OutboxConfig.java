@@ -0,0 +1,56 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * OutboxConfig - Configuration Properties for the eXist-db Outbox
+ * 
+ * This configuration class provides:
+ * - Number of outbox entries dispatched to eXist-db per batch
+ * - Poll interval of the background dispatcher (saves also wake it up directly)
+ * - Exponential retry backoff after a failed dispatch, and its upper bound
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.outbox")
+public class OutboxConfig {
+    private int batchSize = 50;
+    private Duration pollInterval = Duration.ofSeconds(5);
+    private Duration retryBackoff = Duration.ofSeconds(2);
+    private Duration maxRetryBackoff = Duration.ofMinutes(5);
+    
+    // Getters and Setters
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+    
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+    
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+    
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+    
+    public Duration getMaxRetryBackoff() {
+        return maxRetryBackoff;
+    }
+    
+    public void setMaxRetryBackoff(Duration maxRetryBackoff) {
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+}
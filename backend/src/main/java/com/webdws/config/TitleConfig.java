@@ -0,0 +1,35 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * TitleConfig - Configuration Properties for Entry Titles
+ * 
+ * This configuration class provides:
+ * - The title XPath evaluated on every save (empty: documents have no title)
+ * - Batch size of the background job recomputing titles after the XPath changed
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.title")
+public class TitleConfig {
+    private String xpath = "";
+    private int recomputeBatchSize = 100;
+    
+    // Getters and Setters
+    public String getXpath() {
+        return xpath;
+    }
+    
+    public void setXpath(String xpath) {
+        this.xpath = xpath;
+    }
+    
+    public int getRecomputeBatchSize() {
+        return recomputeBatchSize;
+    }
+    
+    public void setRecomputeBatchSize(int recomputeBatchSize) {
+        this.recomputeBatchSize = recomputeBatchSize;
+    }
+}
@@ -0,0 +1,73 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ValidationConfig - Configuration Properties for Schema Validation
+ * 
+ * This configuration class provides:
+ * - The classpath schema documents are validated against on save (empty: well-formedness only)
+ * - Maximum number of schema errors reported for one document
+ * - Number of idle validators kept per compiled schema
+ * - Batch validation: eXist-db fetch concurrency, keyset page size and documents in flight
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.validation")
+public class ValidationConfig {
+    private String schema = "";
+    private int maxErrors = 100;
+    private int validatorPoolSize = 16;
+    private int batchFetchConcurrency = 8;
+    private int batchPageSize = 500;
+    private int batchMaxInFlight = 256;
+    
+    // Getters and Setters
+    public String getSchema() {
+        return schema;
+    }
+    
+    public void setSchema(String schema) {
+        this.schema = schema;
+    }
+    
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+    
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+    
+    public int getValidatorPoolSize() {
+        return validatorPoolSize;
+    }
+    
+    public void setValidatorPoolSize(int validatorPoolSize) {
+        this.validatorPoolSize = validatorPoolSize;
+    }
+    
+    public int getBatchFetchConcurrency() {
+        return batchFetchConcurrency;
+    }
+    
+    public void setBatchFetchConcurrency(int batchFetchConcurrency) {
+        this.batchFetchConcurrency = batchFetchConcurrency;
+    }
+    
+    public int getBatchPageSize() {
+        return batchPageSize;
+    }
+    
+    public void setBatchPageSize(int batchPageSize) {
+        this.batchPageSize = batchPageSize;
+    }
+    
+    public int getBatchMaxInFlight() {
+        return batchMaxInFlight;
+    }
+    
+    public void setBatchMaxInFlight(int batchMaxInFlight) {
+        this.batchMaxInFlight = batchMaxInFlight;
+    }
+}
@@ -0,0 +1,45 @@
+package com.webdws.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ViewConfig - Configuration Properties for Table-View Queries
+ * 
+ * This configuration class provides:
+ * - Page size used when a view query does not ask for one
+ * - Upper bound on the page size a client may request
+ * - Maximum number of columns per view
+ */
+@Configuration
+@ConfigurationProperties(prefix = "webdws.views")
+public class ViewConfig {
+    private int defaultPageSize = 100;
+    private int maxPageSize = 1000;
+    private int maxColumns = 50;
+    
+    // Getters and Setters
+    public int getDefaultPageSize() {
+        return defaultPageSize;
+    }
+    
+    public void setDefaultPageSize(int defaultPageSize) {
+        this.defaultPageSize = defaultPageSize;
+    }
+    
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+    
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+    
+    public int getMaxColumns() {
+        return maxColumns;
+    }
+    
+    public void setMaxColumns(int maxColumns) {
+        this.maxColumns = maxColumns;
+    }
+}
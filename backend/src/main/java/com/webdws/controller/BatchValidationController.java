@@ -0,0 +1,70 @@
+package com.webdws.controller;
+
+import com.webdws.dto.ApiResponse;
+import com.webdws.dto.BatchValidationRequest;
+import com.webdws.service.BatchValidationService;
+import com.webdws.xml.XmlSchemaValidator;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * BatchValidationController - REST API Controller for Batch Validation
+ * 
+ * This controller provides REST endpoints for checking many documents in one request and handles:
+ * - Validating a set of documents, or the whole collection, against a schema
+ * - Streaming one NDJSON result line per document as it finishes, then a summary line
+ * - Error handling and HTTP status management
+ */
+@RestController
+@RequestMapping("/api/xml/validate/batch")
+@CrossOrigin(origins = "*")
+public class BatchValidationController {
+    
+    private static final String NDJSON = "application/x-ndjson";
+    
+    @Autowired
+    private BatchValidationService batchValidationService;
+    
+    /**
+     * Validate documents and stream the results. Without ids the whole collection is
+     * validated; the schema defaults to webdws.validation.schema (well-formedness only if
+     * that is empty).
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<Void>> validate(
+            @RequestBody(required = false) BatchValidationRequest request,
+            HttpServletResponse response) {
+        List<Long> ids = request != null ? request.getIds() : null;
+        XmlSchemaValidator.CompiledSchema schema;
+        try {
+            schema = batchValidationService.resolveSchema(request != null ? request.getSchema() : null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
+        }
+        
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            batchValidationService.validate(ids, schema, response.getOutputStream());
+            return null;
+        } catch (IOException | RuntimeException e) {
+            if (response.isCommitted()) {
+                // Too late for an error response; the client sees the stream end without a summary
+                throw new IllegalStateException("Batch validation failed: " + e.getMessage(), e);
+            }
+            response.reset();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiResponse.error("Batch validation failed: " + e.getMessage()));
+        }
+    }
+}
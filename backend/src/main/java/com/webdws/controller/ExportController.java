@@ -0,0 +1,74 @@
+package com.webdws.controller;
+
+import com.webdws.dto.ApiResponse;
+import com.webdws.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * ExportController - REST API Controller for Bulk Exports
+ * 
+ * This controller provides REST endpoints for getting a whole collection out and handles:
+ * - Streaming all documents as a ZIP archive or as one concatenated XML file
+ * - Incremental exports of documents changed since a timestamp
+ * - Error handling and HTTP status management
+ */
+@RestController
+@RequestMapping("/api/xml/export")
+@CrossOrigin(origins = "*")
+public class ExportController {
+    
+    @Autowired
+    private ExportService exportService;
+    
+    /**
+     * Stream an export of the collection. The response is written while documents are
+     * fetched, so it starts immediately and its size is not known in advance.
+     * 
+     * @param format zip (default) or xml
+     * @param changedSince only export documents updated after this time (ISO date-time)
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<Void>> export(
+            @RequestParam(defaultValue = "zip") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime changedSince,
+            HttpServletResponse response) {
+        ExportService.Format exportFormat;
+        switch (format.toLowerCase()) {
+            case "zip" -> exportFormat = ExportService.Format.ZIP;
+            case "xml" -> exportFormat = ExportService.Format.XML;
+            default -> {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("Unknown export format: " + format + " (use zip or xml)"));
+            }
+        }
+        
+        String fileName = "webdws-export." + (exportFormat == ExportService.Format.ZIP ? "zip" : "xml");
+        response.setContentType(exportFormat == ExportService.Format.ZIP ? "application/zip" : MediaType.APPLICATION_XML_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(fileName).build().toString());
+        try {
+            exportService.export(exportFormat, changedSince, response.getOutputStream());
+            return null;
+        } catch (IOException | RuntimeException e) {
+            if (response.isCommitted()) {
+                // Too late for an error response; the client sees a truncated download
+                throw new IllegalStateException("Export failed: " + e.getMessage(), e);
+            }
+            response.reset();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiResponse.error("Export failed: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.webdws.controller;
+
+import com.webdws.dto.ApiResponse;
+import com.webdws.dto.ImportStatusDto;
+import com.webdws.service.ImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * ImportController - REST API Controller for Bulk Imports
+ * 
+ * This controller provides REST endpoints for loading many entries at once and handles:
+ * - Starting an import from a ZIP archive or a multi-entry XML file
+ * - Reporting progress and per-entry errors of running imports
+ * - Error handling and HTTP status management
+ */
+@RestController
+@RequestMapping("/api/xml/import")
+@CrossOrigin(origins = "*")
+public class ImportController {
+    
+    @Autowired
+    private ImportService importService;
+    
+    /**
+     * Start an import. The format follows the Content-Type (application/zip or
+     * application/xml) unless given explicitly with ?format=zip|xml; any other or a
+     * malformed Content-Type is answered with 415.
+     * Returns 202 with the job status; poll GET /api/xml/import/{jobId} for progress.
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<ImportStatusDto>> startImport(
+            @RequestParam(required = false) String format,
+            HttpServletRequest request) {
+        ImportService.Format importFormat = resolveFormat(format, request.getContentType());
+        if (importFormat == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .body(ApiResponse.error("Upload a ZIP archive (application/zip) or an XML file (application/xml)"));
+        }
+        try {
+            ImportStatusDto status = importService.startImport(request.getInputStream(), importFormat);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(status));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Failed to start import: " + e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<ImportStatusDto>> getImportStatus(@PathVariable String jobId) {
+        ImportStatusDto status = importService.getStatus(jobId);
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error("Import job not found: " + jobId));
+        }
+        return ResponseEntity.ok(ApiResponse.success(status));
+    }
+    
+    private ImportService.Format resolveFormat(String format, String contentType) {
+        if (format != null) {
+            return switch (format.toLowerCase()) {
+                case "zip" -> ImportService.Format.ZIP;
+                case "xml" -> ImportService.Format.XML;
+                default -> null;
+            };
+        }
+        if (contentType == null) {
+            return null;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        if (mediaType.getSubtype().contains("zip")) {
+            return ImportService.Format.ZIP;
+        }
+        if (mediaType.isCompatibleWith(MediaType.APPLICATION_XML) || mediaType.isCompatibleWith(MediaType.TEXT_XML)) {
+            return ImportService.Format.XML;
+        }
+        return null;
+    }
+}
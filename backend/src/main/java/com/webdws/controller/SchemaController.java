@@ -1,12 +1,20 @@
 package com.webdws.controller;
 
 import com.webdws.dto.ApiResponse;
+import com.webdws.dto.SchemaElementDto;
 import com.webdws.dto.SchemaInfoDto;
 import com.webdws.service.SchemaService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
 
 /**
  * SchemaController - REST API Controller for XML Schema Operations
@@ -15,47 +23,75 @@ import org.springframework.web.bind.annotation.*;
  * - Loading and parsing XML schema files
  * - Converting schemas to JSON tree structures
  * - Schema information retrieval
+ * - Single element declarations with their children, for lazy expansion
+ * - Serving pre-encoded (optionally gzipped) responses with strong ETags
  * - Error handling and HTTP status management
  * - CORS configuration for frontend integration
  */
 @RestController
 @RequestMapping("/api/schema")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 public class SchemaController {
     
+    // Cache lifetime of a response requested with the current version (?v=)
+    private static final Duration VERSIONED_MAX_AGE = Duration.ofDays(365);
+    
     @Autowired
     private SchemaService schemaService;
     
     /**
-     * Load the default XML schema (library.xsd) and return as JSON tree
+     * Load the default XML schema (library.xsd) and return as JSON tree. Pass the schema's
+     * version as {@code v} to get a response that may be cached for good.
      */
     @GetMapping("/default")
-    public ResponseEntity<ApiResponse<SchemaInfoDto>> getDefaultSchema() {
-        System.out.println("DEBUG: SchemaController.getDefaultSchema() called");
-        try {
-            SchemaInfoDto schema = schemaService.loadDefaultSchema();
-            System.out.println("DEBUG: Successfully loaded schema, returning response");
-            return ResponseEntity.ok(ApiResponse.success(schema));
-        } catch (Exception e) {
-            System.err.println("DEBUG: Error in getDefaultSchema(): " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Failed to load default schema: " + e.getMessage()));
-        }
+    public ResponseEntity<ApiResponse<SchemaInfoDto>> getDefaultSchema(
+            @RequestParam(required = false) String v,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest,
+            HttpServletResponse response) {
+        return serve(SchemaService.DEFAULT_SCHEMA_PATH, v, acceptEncoding, webRequest, response,
+            "Failed to load default schema: ");
     }
     
     /**
-     * Load a specific XML schema by path and return as JSON tree
+     * Load a specific XML schema by path (below schema/) and return as JSON tree
      */
     @GetMapping("/load")
     public ResponseEntity<ApiResponse<SchemaInfoDto>> loadSchema(
-            @RequestParam String path) {
+            @RequestParam String path,
+            @RequestParam(required = false) String v,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest,
+            HttpServletResponse response) {
+        return serve(path, v, acceptEncoding, webRequest, response, "Failed to load schema: ");
+    }
+    
+    /**
+     * One element declaration, by the id it has in the schema's element list, with its
+     * direct children. Children carry their own ids, so a client can expand a recursive
+     * content model one level at a time.
+     */
+    @GetMapping("/elements/{id}")
+    public ResponseEntity<ApiResponse<SchemaElementDto>> getElement(
+            @PathVariable int id,
+            @RequestParam(defaultValue = SchemaService.DEFAULT_SCHEMA_PATH) String path,
+            WebRequest webRequest) {
         try {
-            SchemaInfoDto schema = schemaService.loadSchema(path);
-            return ResponseEntity.ok(ApiResponse.success(schema));
+            String eTag = "\"" + schemaService.loadSchema(path).getVersion() + "-" + id + "\"";
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            SchemaElementDto element = schemaService.getElement(path, id);
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(eTag)
+                .body(ApiResponse.success(element));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("Failed to load schema: " + e.getMessage()));
+                .body(ApiResponse.error("Failed to load schema element: " + e.getMessage()));
         }
     }
     
@@ -66,4 +102,69 @@ public class SchemaController {
     public ResponseEntity<ApiResponse<String>> health() {
         return ResponseEntity.ok(ApiResponse.success("Schema service is running"));
     }
+    
+    /**
+     * Write a schema's cached JSON body. Unversioned requests must revalidate, which costs
+     * a 304 from memory while the schema is unchanged; the ETag differs per encoding.
+     */
+    private ResponseEntity<ApiResponse<SchemaInfoDto>> serve(String path, String version, String acceptEncoding,
+                                                             WebRequest webRequest, HttpServletResponse response,
+                                                             String errorPrefix) {
+        try {
+            SchemaService.EncodedSchema schema = schemaService.getEncodedSchema(path);
+            boolean gzip = acceptsGzip(acceptEncoding);
+            String eTag = "\"" + schema.version() + (gzip ? "-gzip" : "") + "\"";
+            CacheControl cacheControl = schema.version().equals(version)
+                ? CacheControl.maxAge(VERSIONED_MAX_AGE).cachePublic().immutable()
+                : CacheControl.noCache();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            byte[] body = gzip ? schema.gzip() : schema.json();
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+            return null;
+        } catch (IllegalArgumentException e) {
+            response.reset();
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            if (response.isCommitted()) {
+                // Client went away while the body was written
+                return null;
+            }
+            response.reset();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(errorPrefix + e.getMessage()));
+        }
+    }
+    
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            String quality = parts.length > 1 ? parts[1].trim() : "";
+            if (!quality.startsWith("q=")) {
+                return true;
+            }
+            try {
+                return Double.parseDouble(quality.substring(2)) > 0;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,30 @@
+package com.webdws.controller;
+
+import com.webdws.dto.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * StreamingResponses - Error Handling for Endpoints that Write to the Response Directly
+ */
+final class StreamingResponses {
+    
+    private StreamingResponses() {
+    }
+    
+    /**
+     * The JSON error response for a streaming endpoint, or null once part of the stream has
+     * reached the client; then there is nothing left to answer and the stream simply ends.
+     */
+    static <T> ResponseEntity<ApiResponse<T>> errorUnlessCommitted(HttpServletResponse response, HttpStatus status, String message) {
+        if (response.isCommitted()) {
+            return null;
+        }
+        response.resetBuffer();
+        return ResponseEntity.status(status)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(ApiResponse.error(message));
+    }
+}
@@ -0,0 +1,58 @@
+package com.webdws.controller;
+
+import com.webdws.dto.ApiResponse;
+import com.webdws.dto.ViewQueryRequest;
+import com.webdws.service.ExistDbUnavailableException;
+import com.webdws.service.ViewService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ViewController - REST API Controller for Table Views
+ * 
+ * This controller provides REST endpoints for table-based views and handles:
+ * - Running a row XPath with column XPaths over the whole collection
+ * - Server-side paging, one page per request
+ * - Error handling and HTTP status management
+ */
+@RestController
+@RequestMapping("/api/views")
+@CrossOrigin(origins = "*")
+public class ViewController {
+    
+    @Autowired
+    private ViewService viewService;
+    
+    /**
+     * Run one page of a view. The rows are streamed while eXist-db returns them.
+     */
+    @PostMapping("/query")
+    public ResponseEntity<ApiResponse<Void>> query(@Valid @RequestBody ViewQueryRequest request,
+                                                   HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            viewService.query(request, response.getOutputStream());
+            return null;
+        } catch (IllegalArgumentException e) {
+            return StreamingResponses.errorUnlessCommitted(response, HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (UncheckedIOException e) {
+            // Client went away while streaming; nothing left to answer
+            return null;
+        } catch (ExistDbUnavailableException e) {
+            return StreamingResponses.errorUnlessCommitted(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            return StreamingResponses.errorUnlessCommitted(response, HttpStatus.INTERNAL_SERVER_ERROR,
+                "Failed to run view query: " + e.getMessage());
+        }
+    }
+}
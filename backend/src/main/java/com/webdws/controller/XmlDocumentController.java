@@ -1,18 +1,36 @@
 package com.webdws.controller;
 
 import com.webdws.dto.*;
+import com.webdws.service.AutosaveBuffer;
+import com.webdws.service.DocumentVersionConflictException;
+import com.webdws.service.ExistDbUnavailableException;
 import com.webdws.service.XmlDocumentService;
+import com.webdws.xml.MalformedXmlException;
+import com.webdws.xml.SchemaValidationException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.UncheckedIOException;
+import java.util.List;
 
 /**
  * XmlDocumentController - REST API Controller for XML Document Operations
  * 
  * This controller provides REST endpoints for XML document management and handles:
  * - CRUD operations for XML documents (GET, POST, PUT, DELETE)
+ * - Streaming raw XML content download (with HTTP Range support) and upload
+ * - Conditional requests: ETags from the document version, If-None-Match and If-Match
+ * - Autosave drafts, buffered and written as coalesced updates
  * - Document validation and processing
  * - Pagination and search functionality
  * - Error handling and HTTP status management
@@ -21,30 +39,74 @@ import org.springframework.web.bind.annotation.*;
  */
 @RestController
 @RequestMapping("/api/xml")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {HttpHeaders.ETAG, XmlDocumentController.AUTOSAVE_TOKEN})
 public class XmlDocumentController {
     
+    // Identifies the autosaving client, so only its own written drafts keep its ETag valid
+    static final String AUTOSAVE_TOKEN = "X-Autosave-Token";
+    
     @Autowired
     private XmlDocumentService xmlDocumentService;
     
+    @Autowired
+    private AutosaveBuffer autosaveBuffer;
+    
+    /**
+     * One page of the document list. Pass the returned nextCursor to get the next page;
+     * the total is only computed when asked for with count=cached or count=estimate.
+     */
     @GetMapping("/documents")
     public ResponseEntity<ApiResponse<XmlDocumentListDto>> getAllDocuments(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "none") String count) {
         try {
-            XmlDocumentListDto documents = xmlDocumentService.getAllDocuments(page, size);
+            XmlDocumentListDto documents = xmlDocumentService.getAllDocuments(sort, direction, cursor, size, count);
             return ResponseEntity.ok(ApiResponse.success(documents));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Failed to fetch documents: " + e.getMessage()));
         }
     }
     
+    /**
+     * Typeahead suggestions for document names (case- and accent-insensitive): names
+     * starting with {@code q} first, then names containing it.
+     */
+    @GetMapping("/documents/search")
+    public ResponseEntity<ApiResponse<List<DocumentSuggestionDto>>> searchDocuments(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(xmlDocumentService.searchDocuments(q, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Failed to search documents: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * A document with its content. Honours If-None-Match: when the client's ETag is still
+     * current, 304 is returned from the version in PostgreSQL without contacting eXist-db.
+     */
     @GetMapping("/documents/{id}")
-    public ResponseEntity<ApiResponse<XmlDocumentDto>> getDocument(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<XmlDocumentDto>> getDocument(@PathVariable Long id, WebRequest webRequest) {
         try {
+            if (webRequest.checkNotModified(eTag(xmlDocumentService.getDocumentVersion(id)))) {
+                return null;
+            }
             XmlDocumentDto document = xmlDocumentService.getDocumentById(id);
-            return ResponseEntity.ok(ApiResponse.success(document));
+            return ResponseEntity.ok()
+                .eTag(eTag(document.getVersion()))
+                .body(ApiResponse.success(document));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(ApiResponse.error(e.getMessage()));
@@ -54,11 +116,46 @@ public class XmlDocumentController {
         }
     }
     
+    /**
+     * Raw XML content of a document, streamed from eXist-db. Supports single byte ranges.
+     */
+    @GetMapping("/documents/{id}/content")
+    public ResponseEntity<ApiResponse<Void>> getDocumentContent(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            WebRequest webRequest,
+            HttpServletResponse response) {
+        try {
+            String eTag = eTag(xmlDocumentService.getDocumentVersion(id));
+            if (webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            xmlDocumentService.streamDocumentContent(id, range, response);
+            // Response has been written directly
+            return null;
+        } catch (ExistDbUnavailableException e) {
+            return StreamingResponses.errorUnlessCommitted(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (HttpClientErrorException.NotFound e) {
+            return StreamingResponses.errorUnlessCommitted(response, HttpStatus.NOT_FOUND, "Document content not found in eXist-db");
+        } catch (UncheckedIOException e) {
+            // Client went away while streaming; nothing left to answer
+            return null;
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return StreamingResponses.errorUnlessCommitted(response, HttpStatus.NOT_FOUND, e.getMessage());
+            }
+            return StreamingResponses.errorUnlessCommitted(response, HttpStatus.BAD_GATEWAY,
+                "Failed to stream document content: " + e.getMessage());
+        }
+    }
+    
     @PostMapping("/documents")
     public ResponseEntity<ApiResponse<XmlDocumentDto>> saveDocument(@Valid @RequestBody SaveXmlRequest request) {
         try {
             XmlDocumentDto document = xmlDocumentService.saveDocument(request);
             return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(eTag(document.getVersion()))
                 .body(ApiResponse.success(document));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -69,13 +166,76 @@ public class XmlDocumentController {
         }
     }
     
+    /**
+     * Create a document from a raw XML request body (Content-Type: application/xml).
+     * The body is streamed to eXist-db while it is checked for well-formedness.
+     */
+    @PostMapping(value = "/documents", consumes = {MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE})
+    public ResponseEntity<ApiResponse<XmlDocumentDto>> saveDocumentStream(
+            @RequestParam String name,
+            HttpServletRequest request) {
+        if (name.isBlank() || name.length() > 255) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Document name is required and must not exceed 255 characters"));
+        }
+        try {
+            XmlDocumentDto document = xmlDocumentService.saveDocumentStream(
+                name, request.getInputStream(), request.getContentLengthLong());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(eTag(document.getVersion()))
+                .body(ApiResponse.success(document));
+        } catch (Exception e) {
+            return streamingSaveError(e);
+        }
+    }
+    
+    /**
+     * Replace a document's content with a raw XML request body (Content-Type: application/xml).
+     * An If-Match header makes the update conditional on the document's current ETag.
+     */
+    @PutMapping(value = "/documents/{id}/content", consumes = {MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE})
+    public ResponseEntity<ApiResponse<XmlDocumentDto>> updateDocumentStream(
+            @PathVariable Long id,
+            @RequestParam(required = false) String name,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            HttpServletRequest request) {
+        if (name != null && name.length() > 255) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Document name must not exceed 255 characters"));
+        }
+        try {
+            XmlDocumentDto document = xmlDocumentService.updateDocumentStream(
+                id, name, request.getInputStream(), request.getContentLengthLong(), expectedVersion(ifMatch));
+            return ResponseEntity.ok()
+                .eTag(eTag(document.getVersion()))
+                .body(ApiResponse.success(document));
+        } catch (Exception e) {
+            return streamingSaveError(e);
+        }
+    }
+    
+    /**
+     * Update a document. An If-Match header makes the update conditional: a stale ETag is
+     * rejected with 412 before anything is validated or written. A buffered autosave draft
+     * of the document is superseded by the update; a client that autosaved sends its
+     * autosave token along, so its own written drafts do not make its ETag stale.
+     */
     @PutMapping("/documents/{id}")
     public ResponseEntity<ApiResponse<XmlDocumentDto>> updateDocument(
             @PathVariable Long id, 
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = AUTOSAVE_TOKEN, required = false) String autosaveToken,
             @Valid @RequestBody SaveXmlRequest request) {
         try {
-            XmlDocumentDto document = xmlDocumentService.updateDocument(id, request);
-            return ResponseEntity.ok(ApiResponse.success(document));
+            XmlDocumentDto document = autosaveBuffer.save(id, request, expectedVersion(ifMatch), autosaveToken);
+            return ResponseEntity.ok()
+                .eTag(eTag(document.getVersion()))
+                .body(ApiResponse.success(document));
+        } catch (DocumentVersionConflictException | OptimisticLockingFailureException e) {
+            return preconditionFailed(e);
+        } catch (SchemaValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
         } catch (RuntimeException e) {
             if (e.getMessage().contains("not found")) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -89,10 +249,76 @@ public class XmlDocumentController {
         }
     }
     
+    /**
+     * Autosave a draft. Only the latest draft per document is kept; it is written as a
+     * regular update after webdws.autosave.flush-interval, or dropped when the document is
+     * saved explicitly. If-Match is checked right away. The response carries an autosave
+     * token; a client that sends it back with its next drafts and the explicit save keeps
+     * the ETag it loaded valid across the writes of its own drafts.
+     */
+    @PutMapping("/documents/{id}/autosave")
+    public ResponseEntity<ApiResponse<Void>> autosaveDocument(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = AUTOSAVE_TOKEN, required = false) String autosaveToken,
+            @Valid @RequestBody SaveXmlRequest request) {
+        try {
+            String token = autosaveBuffer.put(id, request, expectedVersion(ifMatch), autosaveToken);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(AUTOSAVE_TOKEN, token)
+                .body(ApiResponse.success(null));
+        } catch (DocumentVersionConflictException e) {
+            return preconditionFailed(e);
+        } catch (MalformedXmlException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Invalid XML: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Failed to autosave document: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * The autosaved draft of a document that has not been written yet; 404 if there is none.
+     */
+    @GetMapping("/documents/{id}/autosave")
+    public ResponseEntity<ApiResponse<AutosaveDraftDto>> getAutosaveDraft(@PathVariable Long id) {
+        return autosaveBuffer.get(id)
+            .map(draft -> ResponseEntity.ok(ApiResponse.success(draft)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error("No autosaved draft for document " + id)));
+    }
+    
+    /**
+     * Apply node-level edits, addressed by eXist-db node id, without re-sending the document.
+     */
+    @PatchMapping("/documents/{id}/nodes")
+    public ResponseEntity<ApiResponse<XmlDocumentDto>> patchNodes(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody NodePatchRequest request) {
+        try {
+            XmlDocumentDto document = xmlDocumentService.patchNodes(id, request, expectedVersion(ifMatch));
+            return ResponseEntity.ok()
+                .eTag(eTag(document.getVersion()))
+                .body(ApiResponse.success(document));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return streamingSaveError(e);
+        }
+    }
+    
     @DeleteMapping("/documents/{id}")
     public ResponseEntity<ApiResponse<Void>> deleteDocument(@PathVariable Long id) {
         try {
             xmlDocumentService.deleteDocument(id);
+            autosaveBuffer.discard(id);
             return ResponseEntity.ok(ApiResponse.success(null));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -103,11 +329,40 @@ public class XmlDocumentController {
         }
     }
     
+    /**
+     * Check well-formedness and, when a schema is configured or given (a classpath path
+     * below schema/), validity. All schema errors are returned with their positions.
+     */
     @PostMapping("/validate")
-    public ResponseEntity<ApiResponse<ValidationResult>> validateXml(@RequestBody SaveXmlRequest request) {
+    public ResponseEntity<ApiResponse<ValidationResult>> validateXml(
+            @RequestParam(required = false) String schema,
+            @RequestBody SaveXmlRequest request) {
         try {
-            ValidationResult result = xmlDocumentService.validateXml(request.getContent());
+            ValidationResult result = xmlDocumentService.validateXml(request.getContent(), schema);
             return ResponseEntity.ok(ApiResponse.success(result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Validation failed: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Check one subtree (e.g. an edited cell) against the schema declaration at its
+     * root-to-node path, without sending the rest of the document.
+     */
+    @PostMapping("/validate/fragment")
+    public ResponseEntity<ApiResponse<ValidationResult>> validateFragment(
+            @RequestParam(required = false) String schema,
+            @Valid @RequestBody FragmentValidationRequest request) {
+        try {
+            ValidationResult result = xmlDocumentService.validateFragment(request.getContent(), request.getPath(), schema);
+            return ResponseEntity.ok(ApiResponse.success(result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error("Validation failed: " + e.getMessage()));
@@ -118,4 +373,70 @@ public class XmlDocumentController {
     public ResponseEntity<ApiResponse<String>> health() {
         return ResponseEntity.ok(ApiResponse.success("XML Editor Backend is running"));
     }
+    
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+    
+    /**
+     * The version an If-Match header refers to: null when absent or "*" (any version).
+     * Weak, foreign or multiple ETags can never match a single strong ETag of ours.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new DocumentVersionConflictException("If-Match " + ifMatch + " does not match the current document version");
+    }
+    
+    private static <T> ResponseEntity<ApiResponse<T>> preconditionFailed(Exception e) {
+        String message = e instanceof DocumentVersionConflictException
+            ? e.getMessage()
+            : "Document was modified concurrently";
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+            .body(ApiResponse.error(message));
+    }
+    
+    private ResponseEntity<ApiResponse<XmlDocumentDto>> streamingSaveError(Exception e) {
+        MalformedXmlException malformed = findCause(e, MalformedXmlException.class);
+        if (malformed != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Invalid XML: " + malformed.getMessage()));
+        }
+        SchemaValidationException invalid = findCause(e, SchemaValidationException.class);
+        if (invalid != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(invalid.getMessage()));
+        }
+        if (e instanceof ExistDbUnavailableException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.error(e.getMessage()));
+        }
+        if (e instanceof DocumentVersionConflictException || e instanceof OptimisticLockingFailureException) {
+            return preconditionFailed(e);
+        }
+        if (e.getMessage() != null && e.getMessage().contains("not found")) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error(e.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body(ApiResponse.error("Failed to save document: " + e.getMessage()));
+    }
+    
+    private static <T extends Throwable> T findCause(Throwable e, Class<T> type) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return type.cast(t);
+            }
+        }
+        return null;
+    }
 }
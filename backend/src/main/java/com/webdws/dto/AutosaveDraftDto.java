@@ -0,0 +1,75 @@
+package com.webdws.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * AutosaveDraftDto - Response DTO for a Buffered Autosave Draft
+ * 
+ * This DTO represents the latest draft of a document that has not been written yet and includes:
+ * - Document id, name and XML content as last autosaved
+ * - The document version the draft is based on, if the client sent one
+ * - When the draft was received
+ */
+public class AutosaveDraftDto {
+    private String id;
+    private String name;
+    private String content;
+    private Long baseVersion;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime savedAt;
+    
+    // Constructors
+    public AutosaveDraftDto() {}
+    
+    public AutosaveDraftDto(String id, String name, String content, Long baseVersion, LocalDateTime savedAt) {
+        this.id = id;
+        this.name = name;
+        this.content = content;
+        this.baseVersion = baseVersion;
+        this.savedAt = savedAt;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public Long getBaseVersion() {
+        return baseVersion;
+    }
+    
+    public void setBaseVersion(Long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+    
+    public LocalDateTime getSavedAt() {
+        return savedAt;
+    }
+    
+    public void setSavedAt(LocalDateTime savedAt) {
+        this.savedAt = savedAt;
+    }
+}
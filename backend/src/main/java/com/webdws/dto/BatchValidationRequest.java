@@ -0,0 +1,37 @@
+package com.webdws.dto;
+
+import java.util.List;
+
+/**
+ * BatchValidationRequest - Request DTO for Validating Many Documents
+ * 
+ * This DTO represents the request payload for batch validation and includes:
+ * - The ids of the documents to validate (none: the whole collection)
+ * - Optional classpath schema to validate against instead of the configured one
+ */
+public class BatchValidationRequest {
+    
+    private List<Long> ids;
+    
+    private String schema;
+    
+    // Constructors
+    public BatchValidationRequest() {}
+    
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+    
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+    
+    public String getSchema() {
+        return schema;
+    }
+    
+    public void setSchema(String schema) {
+        this.schema = schema;
+    }
+}
@@ -0,0 +1,104 @@
+package com.webdws.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * BatchValidationResultDto - DTO for One Line of a Batch Validation
+ * 
+ * This DTO represents the outcome for a single document and includes:
+ * - Document id and name
+ * - Status: valid, invalid, or error when the content could not be read
+ * - Message and position of the first error, and all schema errors
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchValidationResultDto {
+    
+    public static final String VALID = "valid";
+    public static final String INVALID = "invalid";
+    public static final String ERROR = "error";
+    
+    private String id;
+    private String name;
+    private String status;
+    private String error;
+    private Integer lineNumber;
+    private Integer columnNumber;
+    private List<ValidationErrorDto> errors;
+    
+    // Constructors
+    public BatchValidationResultDto() {}
+    
+    public BatchValidationResultDto(String id, String name, String status) {
+        this.id = id;
+        this.name = name;
+        this.status = status;
+    }
+    
+    public static BatchValidationResultDto of(String id, String name, ValidationResult result) {
+        BatchValidationResultDto dto = new BatchValidationResultDto(id, name, result.isValid() ? VALID : INVALID);
+        dto.setError(result.getError());
+        dto.setLineNumber(result.getLineNumber());
+        dto.setColumnNumber(result.getColumnNumber());
+        dto.setErrors(result.getErrors());
+        return dto;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+    
+    public void setLineNumber(Integer lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
+    public Integer getColumnNumber() {
+        return columnNumber;
+    }
+    
+    public void setColumnNumber(Integer columnNumber) {
+        this.columnNumber = columnNumber;
+    }
+    
+    public List<ValidationErrorDto> getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(List<ValidationErrorDto> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,78 @@
+package com.webdws.dto;
+
+/**
+ * BatchValidationSummaryDto - DTO for the Last Line of a Batch Validation
+ * 
+ * This DTO represents the totals of a finished batch validation and includes:
+ * - Number of documents checked, valid, invalid and unreadable
+ * - Elapsed time and throughput
+ */
+public class BatchValidationSummaryDto {
+    private long total;
+    private long valid;
+    private long invalid;
+    private long errors;
+    private long elapsedMillis;
+    private double documentsPerSecond;
+    
+    // Constructors
+    public BatchValidationSummaryDto() {}
+    
+    public BatchValidationSummaryDto(long total, long valid, long invalid, long errors, long elapsedMillis) {
+        this.total = total;
+        this.valid = valid;
+        this.invalid = invalid;
+        this.errors = errors;
+        this.elapsedMillis = elapsedMillis;
+        this.documentsPerSecond = elapsedMillis > 0 ? total * 1000.0 / elapsedMillis : 0;
+    }
+    
+    // Getters and Setters
+    public long getTotal() {
+        return total;
+    }
+    
+    public void setTotal(long total) {
+        this.total = total;
+    }
+    
+    public long getValid() {
+        return valid;
+    }
+    
+    public void setValid(long valid) {
+        this.valid = valid;
+    }
+    
+    public long getInvalid() {
+        return invalid;
+    }
+    
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+    
+    public long getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(long errors) {
+        this.errors = errors;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public double getDocumentsPerSecond() {
+        return documentsPerSecond;
+    }
+    
+    public void setDocumentsPerSecond(double documentsPerSecond) {
+        this.documentsPerSecond = documentsPerSecond;
+    }
+}
@@ -0,0 +1,48 @@
+package com.webdws.dto;
+
+/**
+ * DocumentSuggestionDto - DTO for Name Search Suggestions
+ * 
+ * This DTO represents one typeahead match and includes:
+ * - Document id, to open the document
+ * - Document name and entry title, as stored
+ */
+public class DocumentSuggestionDto {
+    private String id;
+    private String name;
+    private String title;
+    
+    // Constructors
+    public DocumentSuggestionDto() {}
+    
+    public DocumentSuggestionDto(String id, String name, String title) {
+        this.id = id;
+        this.name = name;
+        this.title = title;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
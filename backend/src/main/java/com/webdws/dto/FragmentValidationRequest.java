@@ -0,0 +1,44 @@
+package com.webdws.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * FragmentValidationRequest - Request DTO for Validating Part of a Document
+ * 
+ * This DTO represents the request payload for fragment validation and includes:
+ * - The XML of one subtree, e.g. an edited table-view cell
+ * - The root-to-node path of the subtree in its document, e.g. /library/book/title
+ */
+public class FragmentValidationRequest {
+    
+    @NotBlank(message = "Fragment content is required")
+    private String content;
+    
+    @NotBlank(message = "Path is required")
+    private String path;
+    
+    // Constructors
+    public FragmentValidationRequest() {}
+    
+    public FragmentValidationRequest(String content, String path) {
+        this.content = content;
+        this.path = path;
+    }
+    
+    // Getters and Setters
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+}
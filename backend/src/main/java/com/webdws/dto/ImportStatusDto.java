@@ -0,0 +1,148 @@
+package com.webdws.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ImportStatusDto - DTO for Bulk Import Progress
+ * 
+ * This DTO represents the state of a bulk import job and includes:
+ * - Job id and status (RUNNING, COMPLETED, FAILED)
+ * - Counters for processed, imported and failed entries
+ * - Throughput and timing information
+ * - Per-entry error messages (capped)
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportStatusDto {
+    private String jobId;
+    private String status;
+    private long processed;
+    private long imported;
+    private long failed;
+    private double entriesPerSecond;
+    private String error;
+    private List<EntryError> errors;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime startedAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime finishedAt;
+    
+    /**
+     * Error for a single entry of the import
+     */
+    public static class EntryError {
+        private String entry;
+        private String message;
+        
+        public EntryError() {}
+        
+        public EntryError(String entry, String message) {
+            this.entry = entry;
+            this.message = message;
+        }
+        
+        public String getEntry() {
+            return entry;
+        }
+        
+        public void setEntry(String entry) {
+            this.entry = entry;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+    
+    public ImportStatusDto() {}
+    
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public long getProcessed() {
+        return processed;
+    }
+    
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+    
+    public long getImported() {
+        return imported;
+    }
+    
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+    
+    public double getEntriesPerSecond() {
+        return entriesPerSecond;
+    }
+    
+    public void setEntriesPerSecond(double entriesPerSecond) {
+        this.entriesPerSecond = entriesPerSecond;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public List<EntryError> getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(List<EntryError> errors) {
+        this.errors = errors;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
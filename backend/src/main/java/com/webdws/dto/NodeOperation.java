@@ -0,0 +1,57 @@
+package com.webdws.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * NodeOperation - One Node-level Edit in a Document
+ * 
+ * This DTO represents a single change to a node identified by its eXist-db node id and includes:
+ * - The node id as returned by table-view queries (e.g. 1.3.2)
+ * - Either an XML fragment that replaces the node (elements)
+ * - Or a new string value for the node (elements, attributes and text)
+ */
+public class NodeOperation {
+    
+    @NotBlank(message = "Node id is required")
+    @Pattern(regexp = "\\d+(\\.\\d+)*", message = "Node id must be an eXist-db node id such as 1.3.2")
+    private String nodeId;
+    
+    private String fragment;
+    
+    private String value;
+    
+    // Constructors
+    public NodeOperation() {}
+    
+    public NodeOperation(String nodeId, String fragment, String value) {
+        this.nodeId = nodeId;
+        this.fragment = fragment;
+        this.value = value;
+    }
+    
+    // Getters and Setters
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public String getFragment() {
+        return fragment;
+    }
+    
+    public void setFragment(String fragment) {
+        this.fragment = fragment;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public void setValue(String value) {
+        this.value = value;
+    }
+}
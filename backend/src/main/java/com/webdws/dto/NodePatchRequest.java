@@ -0,0 +1,35 @@
+package com.webdws.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NodePatchRequest - Request DTO for Node-level Document Updates
+ * 
+ * This DTO represents a set of node edits that are applied together and includes:
+ * - The list of node operations, applied atomically in eXist-db
+ */
+public class NodePatchRequest {
+    
+    @NotEmpty(message = "At least one node operation is required")
+    private List<@Valid NodeOperation> operations = new ArrayList<>();
+    
+    // Constructors
+    public NodePatchRequest() {}
+    
+    public NodePatchRequest(List<NodeOperation> operations) {
+        this.operations = operations;
+    }
+    
+    // Getters and Setters
+    public List<NodeOperation> getOperations() {
+        return operations;
+    }
+    
+    public void setOperations(List<NodeOperation> operations) {
+        this.operations = operations;
+    }
+}
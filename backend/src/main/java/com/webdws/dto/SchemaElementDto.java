@@ -12,9 +12,12 @@ import java.util.Map;
  * - Element type and occurrence constraints
  * - Child elements and attributes
  * - Schema validation rules
+ * - The declaration id, for fetching the children of an element listed without them
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class SchemaElementDto {
+    private Integer id;
+    private Boolean hasChildren;
     private String name;
     private String namespace;
     private String type;
@@ -37,6 +40,22 @@ public class SchemaElementDto {
     }
     
     // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+    
+    public void setId(Integer id) {
+        this.id = id;
+    }
+    
+    public Boolean getHasChildren() {
+        return hasChildren;
+    }
+    
+    public void setHasChildren(Boolean hasChildren) {
+        this.hasChildren = hasChildren;
+    }
+    
     public String getName() {
         return name;
     }
@@ -0,0 +1,54 @@
+package com.webdws.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * ValidationErrorDto - One Error Found by Validation
+ * 
+ * This DTO represents a single validation error and includes:
+ * - The validator's message
+ * - Line and column the error refers to, when known
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ValidationErrorDto {
+    private String message;
+    private Integer lineNumber;
+    private Integer columnNumber;
+    
+    public ValidationErrorDto() {}
+    
+    /**
+     * @param lineNumber line of the error, or -1 if unknown
+     * @param columnNumber column of the error, or -1 if unknown
+     */
+    public ValidationErrorDto(String message, int lineNumber, int columnNumber) {
+        this.message = message;
+        this.lineNumber = lineNumber >= 0 ? lineNumber : null;
+        this.columnNumber = columnNumber >= 0 ? columnNumber : null;
+    }
+    
+    // Getters and Setters
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+    
+    public void setLineNumber(Integer lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
+    public Integer getColumnNumber() {
+        return columnNumber;
+    }
+    
+    public void setColumnNumber(Integer columnNumber) {
+        this.columnNumber = columnNumber;
+    }
+}
@@ -1,11 +1,17 @@
 package com.webdws.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
 /**
  * ValidationResult - DTO for XML Validation Results
  * 
  * This DTO represents the result of XML validation operations and includes:
  * - Validation status (valid/invalid)
  * - Error message for invalid XML
+ * - Line and column of the first error, when known
+ * - All schema errors with their positions, for schema validation
  * - Static factory methods for common validation results
  * - Simple structure for API responses
  */
@@ -13,6 +19,15 @@ public class ValidationResult {
     private boolean valid;
     private String error;
     
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer lineNumber;
+    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer columnNumber;
+    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ValidationErrorDto> errors;
+    
     public ValidationResult() {}
     
     public ValidationResult(boolean valid, String error) {
@@ -28,6 +43,28 @@ public class ValidationResult {
         return new ValidationResult(false, error);
     }
     
+    /**
+     * An invalid result pointing at the first error; a position of -1 (unknown) is left out.
+     */
+    public static ValidationResult invalid(String error, int lineNumber, int columnNumber) {
+        ValidationResult result = new ValidationResult(false, error);
+        result.setLineNumber(lineNumber >= 0 ? lineNumber : null);
+        result.setColumnNumber(columnNumber >= 0 ? columnNumber : null);
+        return result;
+    }
+    
+    /**
+     * An invalid result listing all errors; error and position are those of the first one.
+     */
+    public static ValidationResult invalid(List<ValidationErrorDto> errors) {
+        ValidationErrorDto first = errors.get(0);
+        ValidationResult result = new ValidationResult(false, first.getMessage());
+        result.setLineNumber(first.getLineNumber());
+        result.setColumnNumber(first.getColumnNumber());
+        result.setErrors(errors);
+        return result;
+    }
+    
     // Getters and Setters
     public boolean isValid() {
         return valid;
@@ -44,4 +81,28 @@ public class ValidationResult {
     public void setError(String error) {
         this.error = error;
     }
+    
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+    
+    public void setLineNumber(Integer lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+    
+    public Integer getColumnNumber() {
+        return columnNumber;
+    }
+    
+    public void setColumnNumber(Integer columnNumber) {
+        this.columnNumber = columnNumber;
+    }
+    
+    public List<ValidationErrorDto> getErrors() {
+        return errors;
+    }
+    
+    public void setErrors(List<ValidationErrorDto> errors) {
+        this.errors = errors;
+    }
 }
@@ -0,0 +1,61 @@
+package com.webdws.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * ViewNodeDto - DTO for One Item in a Table-View Cell
+ * 
+ * This DTO represents a single XPath result inside a cell and includes:
+ * - eXist-db node id and root-to-node path (absent for atomic values)
+ * - String value of the node or atomic value
+ * - Serialized XML for element nodes, so the cell can be edited client-side
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ViewNodeDto {
+    private String nodeId;
+    private String path;
+    private String value;
+    private String xml;
+    
+    public ViewNodeDto() {}
+    
+    public ViewNodeDto(String nodeId, String path, String value, String xml) {
+        this.nodeId = nodeId;
+        this.path = path;
+        this.value = value;
+        this.xml = xml;
+    }
+    
+    // Getters and Setters
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public void setValue(String value) {
+        this.value = value;
+    }
+    
+    public String getXml() {
+        return xml;
+    }
+    
+    public void setXml(String xml) {
+        this.xml = xml;
+    }
+}
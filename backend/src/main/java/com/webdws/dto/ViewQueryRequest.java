@@ -0,0 +1,72 @@
+package com.webdws.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ViewQueryRequest - Request DTO for Table-View Queries
+ * 
+ * This DTO represents one page request of a table view and includes:
+ * - Row XPath, evaluated against every document in the collection
+ * - Column XPaths, evaluated relative to each row node
+ * - Offset and page size for server-side paging
+ */
+public class ViewQueryRequest {
+    
+    @NotBlank(message = "Row XPath is required")
+    private String rowXPath;
+    
+    private List<@NotBlank(message = "Column XPath must not be empty") String> columns = new ArrayList<>();
+    
+    @Min(value = 0, message = "Offset must not be negative")
+    private long offset;
+    
+    @Min(value = 1, message = "Limit must be at least 1")
+    private Integer limit;
+    
+    // Constructors
+    public ViewQueryRequest() {}
+    
+    public ViewQueryRequest(String rowXPath, List<String> columns, long offset, Integer limit) {
+        this.rowXPath = rowXPath;
+        this.columns = columns;
+        this.offset = offset;
+        this.limit = limit;
+    }
+    
+    // Getters and Setters
+    public String getRowXPath() {
+        return rowXPath;
+    }
+    
+    public void setRowXPath(String rowXPath) {
+        this.rowXPath = rowXPath;
+    }
+    
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+    
+    public Integer getLimit() {
+        return limit;
+    }
+    
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,69 @@
+package com.webdws.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ViewRowDto - DTO for One Row of a Table View
+ * 
+ * This DTO represents a row node matched by the row XPath and includes:
+ * - Owning document (metadata id and eXist-db id)
+ * - eXist-db node id and root-to-node path of the row node
+ * - One cell per column, each holding the items its XPath returned
+ */
+public class ViewRowDto {
+    private Long documentId;
+    private String existDbId;
+    private String nodeId;
+    private String path;
+    private List<List<ViewNodeDto>> cells = new ArrayList<>();
+    
+    public ViewRowDto() {}
+    
+    public ViewRowDto(String existDbId, String nodeId, String path) {
+        this.existDbId = existDbId;
+        this.nodeId = nodeId;
+        this.path = path;
+    }
+    
+    // Getters and Setters
+    public Long getDocumentId() {
+        return documentId;
+    }
+    
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+    
+    public String getExistDbId() {
+        return existDbId;
+    }
+    
+    public void setExistDbId(String existDbId) {
+        this.existDbId = existDbId;
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+    
+    public List<List<ViewNodeDto>> getCells() {
+        return cells;
+    }
+    
+    public void setCells(List<List<ViewNodeDto>> cells) {
+        this.cells = cells;
+    }
+}
@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
  * XmlDocumentDto - Data Transfer Object for XML Documents
  * 
  * This DTO represents an XML document in API requests and responses and includes:
- * - Document metadata (id, name, timestamps)
+ * - Document metadata (id, name, entry title, timestamps, version)
  * - XML content with validation constraints
  * - JSON serialization configuration for date formatting
  * - Validation annotations for data integrity
@@ -23,6 +23,9 @@ public class XmlDocumentDto {
     @Size(max = 255, message = "Document name must not exceed 255 characters")
     private String name;
     
+    // Computed from the configured title XPath; null if the document has none
+    private String title;
+    
     @NotBlank(message = "Document content is required")
     private String content;
     
@@ -32,6 +35,8 @@ public class XmlDocumentDto {
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime updatedAt;
     
+    private long version;
+    
     // Constructors
     public XmlDocumentDto() {}
     
@@ -83,4 +88,20 @@ public class XmlDocumentDto {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
 }
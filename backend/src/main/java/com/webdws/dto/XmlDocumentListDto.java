@@ -1,41 +1,54 @@
 package com.webdws.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 /**
  * XmlDocumentListDto - DTO for Paginated XML Document Lists
  * 
- * This DTO represents a paginated list of XML documents and includes:
- * - List of XML document DTOs
- * - Total count for pagination metadata
- * - Support for paginated API responses
+ * This DTO represents one page of the document list and includes:
+ * - List of XML document summaries (metadata only, no content)
+ * - Opaque cursor for the next page (absent on the last page)
+ * - Total count, only when requested (cached or estimated)
  * - Simple structure for frontend integration
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class XmlDocumentListDto {
-    private List<XmlDocumentDto> documents;
-    private long total;
+    private List<XmlDocumentSummaryDto> documents;
+    private String nextCursor;
+    private Long total;
     
     public XmlDocumentListDto() {}
     
-    public XmlDocumentListDto(List<XmlDocumentDto> documents, long total) {
+    public XmlDocumentListDto(List<XmlDocumentSummaryDto> documents, String nextCursor, Long total) {
         this.documents = documents;
+        this.nextCursor = nextCursor;
         this.total = total;
     }
     
     // Getters and Setters
-    public List<XmlDocumentDto> getDocuments() {
+    public List<XmlDocumentSummaryDto> getDocuments() {
         return documents;
     }
     
-    public void setDocuments(List<XmlDocumentDto> documents) {
+    public void setDocuments(List<XmlDocumentSummaryDto> documents) {
         this.documents = documents;
     }
     
-    public long getTotal() {
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public Long getTotal() {
         return total;
     }
     
-    public void setTotal(long total) {
+    public void setTotal(Long total) {
         this.total = total;
     }
 }
@@ -0,0 +1,128 @@
+package com.webdws.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * ExistDbOutboxEntry Entity - Pending eXist-db Write
+ * 
+ * This entity records a write to eXist-db that was committed in PostgreSQL together with
+ * the document metadata, and provides:
+ * - The target eXist-db resource id, which doubles as idempotency key (a store or delete
+ *   repeated after a lost response has the same effect)
+ * - The content to store, or none for a delete
+ * - Retry bookkeeping (attempts, next attempt time, last error)
+ */
+@Entity
+@Table(name = "exist_outbox", indexes = {
+    @Index(name = "idx_exist_outbox_next_attempt_at", columnList = "next_attempt_at, id"),
+    @Index(name = "idx_exist_outbox_exist_db_id", columnList = "exist_db_id, id")
+})
+public class ExistDbOutboxEntry {
+    
+    public enum Operation { STORE, DELETE }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "exist_db_id", nullable = false)
+    private String existDbId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+    
+    // Document content for STORE, null for DELETE
+    @Column(columnDefinition = "TEXT")
+    private String content;
+    
+    @Column(nullable = false)
+    private int attempts;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public ExistDbOutboxEntry() {}
+    
+    public ExistDbOutboxEntry(String existDbId, Operation operation, String content) {
+        this.existDbId = existDbId;
+        this.operation = operation;
+        this.content = content;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getExistDbId() {
+        return existDbId;
+    }
+    
+    public void setExistDbId(String existDbId) {
+        this.existDbId = existDbId;
+    }
+    
+    public Operation getOperation() {
+        return operation;
+    }
+    
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+    
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
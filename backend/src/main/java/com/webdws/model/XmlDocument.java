@@ -13,13 +13,21 @@ import java.time.LocalDateTime;
  * 
  * This entity represents an XML document in the database and provides:
  * - Primary key and metadata fields (id, name, timestamps)
- * - XML content storage with TEXT column type for large documents
+ * - Hash of the XML content; a full copy is only kept in content-storage mode TEXT
  * - Integration with eXist-db for advanced XML processing
  * - Validation constraints for data integrity
  * - Automatic timestamp management for audit trails
+ * - Version counter for optimistic locking and HTTP ETags
+ * - Entry title computed from the configured title XPath, for sorting and search
  */
 @Entity
-@Table(name = "xml_documents")
+@Table(name = "xml_documents", indexes = {
+    // (sort column, id) indexes serving the keyset-paginated document list
+    @Index(name = "idx_xml_documents_name_id", columnList = "name, id"),
+    @Index(name = "idx_xml_documents_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_xml_documents_updated_at_id", columnList = "updated_at, id"),
+    @Index(name = "idx_xml_documents_title_id", columnList = "title, id")
+})
 public class XmlDocument {
     
     @Id
@@ -31,10 +39,14 @@ public class XmlDocument {
     @Column(nullable = false)
     private String name;
     
-    @NotBlank(message = "Document content is required")
+    // Full copy of the content, only written in content-storage mode TEXT; eXist-db is authoritative
     @Column(columnDefinition = "TEXT")
     private String content;
     
+    // SHA-256 (hex) of the content; null when it is not known (streamed saves, node patches)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
     @Column(name = "exist_db_id")
     private String existDbId;
     
@@ -46,6 +58,19 @@ public class XmlDocument {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Incremented on every update; used for ETags and optimistic locking
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+    
+    // Result of webdws.title.xpath for this document; empty if it gave no title
+    @Column(nullable = false, length = 1000, columnDefinition = "varchar(1000) default ''")
+    private String title = "";
+    
+    // Hash of the title XPath the title was computed with; titles with another hash are recomputed
+    @Column(name = "title_xpath_hash")
+    private Integer titleXPathHash;
+    
     // Constructors
     public XmlDocument() {}
     
@@ -79,6 +104,14 @@ public class XmlDocument {
         this.content = content;
     }
     
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
     public String getExistDbId() {
         return existDbId;
     }
@@ -102,4 +135,28 @@ public class XmlDocument {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public Integer getTitleXPathHash() {
+        return titleXPathHash;
+    }
+    
+    public void setTitleXPathHash(Integer titleXPathHash) {
+        this.titleXPathHash = titleXPathHash;
+    }
 }
@@ -0,0 +1,62 @@
+package com.webdws.model;
+
+import jakarta.persistence.*;
+
+/**
+ * XmlDocumentSnapshot Entity - Compressed Copy of a Document's Content
+ * 
+ * This entity keeps a deflate-compressed copy of a document's content outside the
+ * xml_documents table, so loading document metadata never reads it, and provides:
+ * - The eXist-db resource id of the document as key (known before the metadata row is inserted)
+ * - The hash of the content it holds; a snapshot is current only while it matches the
+ *   hash stored with the document
+ * - The compressed content, for reads while eXist-db is unavailable and for recovery
+ */
+@Entity
+@Table(name = "xml_document_snapshots")
+public class XmlDocumentSnapshot {
+    
+    @Id
+    @Column(name = "exist_db_id")
+    private String existDbId;
+    
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+    
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+    
+    // Constructors
+    public XmlDocumentSnapshot() {}
+    
+    public XmlDocumentSnapshot(String existDbId, String contentHash, byte[] data) {
+        this.existDbId = existDbId;
+        this.contentHash = contentHash;
+        this.data = data;
+    }
+    
+    // Getters and Setters
+    public String getExistDbId() {
+        return existDbId;
+    }
+    
+    public void setExistDbId(String existDbId) {
+        this.existDbId = existDbId;
+    }
+    
+    public String getContentHash() {
+        return contentHash;
+    }
+    
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
+    public byte[] getData() {
+        return data;
+    }
+    
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+}
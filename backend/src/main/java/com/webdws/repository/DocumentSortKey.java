@@ -0,0 +1,44 @@
+package com.webdws.repository;
+
+/**
+ * DocumentSortKey - Sortable Columns of the Document List
+ * 
+ * Each key maps to an indexed column; lists are ordered by (column, id) so that
+ * a keyset cursor can always continue after the last row it returned.
+ */
+public enum DocumentSortKey {
+    ID("id", "id"),
+    NAME("name", "name"),
+    TITLE("title", "title"),
+    CREATED_AT("createdAt", "created_at"),
+    UPDATED_AT("updatedAt", "updated_at");
+    
+    private final String param;
+    private final String column;
+    
+    DocumentSortKey(String param, String column) {
+        this.param = param;
+        this.column = column;
+    }
+    
+    /**
+     * Name used in request parameters and cursors.
+     */
+    public String getParam() {
+        return param;
+    }
+    
+    public String getColumn() {
+        return column;
+    }
+    
+    public static DocumentSortKey fromParam(String param) {
+        for (DocumentSortKey key : values()) {
+            if (key.param.equalsIgnoreCase(param)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Cannot sort documents by " + param
+            + " (use id, name, title, createdAt or updatedAt)");
+    }
+}
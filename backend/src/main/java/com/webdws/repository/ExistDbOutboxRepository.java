@@ -0,0 +1,47 @@
+package com.webdws.repository;
+
+import com.webdws.model.ExistDbOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ExistDbOutboxRepository - Data Access Layer for Pending eXist-db Writes
+ * 
+ * This repository interface provides:
+ * - The entries due for dispatch, oldest first
+ * - The latest pending entry of a document (read-your-writes before dispatch)
+ * - Removing or rescheduling all entries of a document up to a given entry
+ */
+@Repository
+public interface ExistDbOutboxRepository extends JpaRepository<ExistDbOutboxEntry, Long> {
+    
+    List<ExistDbOutboxEntry> findByNextAttemptAtLessThanEqualOrderByIdAsc(LocalDateTime now, Pageable limit);
+    
+    Optional<ExistDbOutboxEntry> findFirstByExistDbIdOrderByIdDesc(String existDbId);
+    
+    List<ExistDbOutboxEntry> findByExistDbIdOrderByIdAsc(String existDbId);
+    
+    /**
+     * Remove the entries of a document that are superseded by, or equal to, a dispatched one.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ExistDbOutboxEntry e WHERE e.existDbId = :existDbId AND e.id <= :upToId")
+    int deleteUpTo(@Param("existDbId") String existDbId, @Param("upToId") Long upToId);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE ExistDbOutboxEntry e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt,"
+        + " e.lastError = :error WHERE e.existDbId = :existDbId AND e.id <= :upToId")
+    int reschedule(@Param("existDbId") String existDbId, @Param("upToId") Long upToId,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+}
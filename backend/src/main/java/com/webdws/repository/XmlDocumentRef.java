@@ -0,0 +1,20 @@
+package com.webdws.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * XmlDocumentRef - Lightweight Projection of an XML Document
+ * 
+ * Only the columns needed to locate a document in eXist-db; used when walking
+ * large numbers of rows (e.g. exports) without loading full entities.
+ */
+public interface XmlDocumentRef {
+    
+    Long getId();
+    
+    String getName();
+    
+    String getExistDbId();
+    
+    LocalDateTime getUpdatedAt();
+}
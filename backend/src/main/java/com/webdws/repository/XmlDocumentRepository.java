@@ -1,13 +1,15 @@
 package com.webdws.repository;
 
 import com.webdws.model.XmlDocument;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,17 +19,35 @@ import java.util.Optional;
  * - Standard CRUD operations through JpaRepository inheritance
  * - Custom query methods for document retrieval
  * - Integration with eXist-db ID mapping
- * - Pagination support for large document collections
- * - Search functionality by document name
+ * - Pagination support for large document collections (keyset, see XmlDocumentRepositoryCustom)
+ * - Batched inserts for bulk imports (see XmlDocumentRepositoryCustom)
  */
 @Repository
-public interface XmlDocumentRepository extends JpaRepository<XmlDocument, Long> {
+public interface XmlDocumentRepository extends JpaRepository<XmlDocument, Long>, XmlDocumentRepositoryCustom {
     
     Optional<XmlDocument> findByExistDbId(String existDbId);
     
-    @Query("SELECT x FROM XmlDocument x WHERE x.name LIKE %:name%")
-    Page<XmlDocument> findByNameContaining(@Param("name") String name, Pageable pageable);
+    List<XmlDocumentRef> findByExistDbIdIn(Collection<String> existDbIds);
+    
+    List<XmlDocumentRef> findByIdInOrderByIdAsc(Collection<Long> ids);
+    
+    /**
+     * Current version of a document, without loading the entity (for ETag checks).
+     */
+    @Query("SELECT x.version FROM XmlDocument x WHERE x.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
     
     @Query("SELECT COUNT(x) FROM XmlDocument x")
     long countAllDocuments();
+    
+    /**
+     * Keyset (seek) cursor over all documents in id order: pass the last id seen
+     * (0 to start) and a Pageable for the batch size.
+     */
+    List<XmlDocumentRef> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable limit);
+    
+    /**
+     * Keyset cursor over documents changed after a point in time, in id order.
+     */
+    List<XmlDocumentRef> findByIdGreaterThanAndUpdatedAtAfterOrderByIdAsc(Long afterId, LocalDateTime since, Pageable limit);
 }
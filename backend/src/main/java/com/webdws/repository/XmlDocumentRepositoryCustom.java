@@ -0,0 +1,64 @@
+package com.webdws.repository;
+
+import com.webdws.model.XmlDocument;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * XmlDocumentRepositoryCustom - Hand-written Data Access for XML Documents
+ * 
+ * This fragment of XmlDocumentRepository provides operations that Spring Data
+ * cannot derive efficiently:
+ * - Batched inserts of document metadata (JDBC batching, bypassing IDENTITY round trips)
+ * - Keyset (seek) pages of the document list for any sortable column
+ * - A cheap estimate of the number of documents
+ * - Finding and updating titles computed with an outdated title XPath
+ * - Moving content out of the legacy content column
+ */
+public interface XmlDocumentRepositoryCustom {
+    
+    /**
+     * Insert the metadata rows of many documents using JDBC batching.
+     * Generated ids are not read back; the entities' id fields stay null.
+     */
+    void batchInsert(List<XmlDocument> documents);
+    
+    /**
+     * One page of document summaries ordered by (sort column, id), starting after the
+     * row identified by {@code afterValue}/{@code afterId} (both null for the first page).
+     * Served from the (column, id) index without OFFSET, so every page costs the same.
+     */
+    List<XmlDocumentSummary> findSummariesAfter(DocumentSortKey sortKey, boolean descending,
+                                                Object afterValue, Long afterId, int limit);
+    
+    /**
+     * Estimated number of documents from the database statistics, or -1 when the
+     * database has no usable estimate.
+     */
+    long estimateCount();
+    
+    /**
+     * Next documents in id order whose title was not computed with the title XPath
+     * identified by {@code titleXPathHash}.
+     */
+    List<XmlDocumentRef> findWithStaleTitle(int titleXPathHash, long afterId, int limit);
+    
+    /**
+     * Store recomputed titles (document id to title, empty for none). Rows whose title
+     * has meanwhile been written with {@code titleXPathHash} by a save are left alone.
+     */
+    void updateTitles(Map<Long, String> titles, int titleXPathHash);
+    
+    /**
+     * Next documents in id order that still have content in the content column, as
+     * document id to (existDbId, content).
+     */
+    Map<Long, Map.Entry<String, String>> findWithInlineContent(long afterId, int limit);
+    
+    /**
+     * Clear the content column, storing the content hash instead (document id to hash).
+     * Rows whose content has meanwhile been replaced by a save are left alone.
+     */
+    void clearInlineContent(Map<Long, String> contentHashes);
+}
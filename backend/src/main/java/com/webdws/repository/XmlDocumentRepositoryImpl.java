@@ -0,0 +1,200 @@
+package com.webdws.repository;
+
+import com.webdws.model.XmlDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * XmlDocumentRepositoryImpl - Implementation of XmlDocumentRepositoryCustom
+ * 
+ * Picked up by Spring Data as the implementation of the custom repository fragment.
+ */
+public class XmlDocumentRepositoryImpl implements XmlDocumentRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO xml_documents (name, title, title_xpath_hash, content, content_hash, exist_db_id, created_at, updated_at, version)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+    
+    private static final String UPDATE_TITLE_SQL =
+        "UPDATE xml_documents SET title = ?, title_xpath_hash = ?"
+            + " WHERE id = ? AND (title_xpath_hash IS NULL OR title_xpath_hash <> ?)";
+    
+    private static final String CLEAR_CONTENT_SQL =
+        "UPDATE xml_documents SET content = NULL, content_hash = ? WHERE id = ? AND content IS NOT NULL";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Override
+    @Transactional
+    public void batchInsert(List<XmlDocument> documents) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, documents, documents.size(), (statement, document) -> {
+            statement.setString(1, document.getName());
+            statement.setString(2, document.getTitle());
+            statement.setObject(3, document.getTitleXPathHash(), Types.INTEGER);
+            statement.setString(4, document.getContent());
+            statement.setString(5, document.getContentHash());
+            statement.setString(6, document.getExistDbId());
+            statement.setTimestamp(7, Timestamp.valueOf(document.getCreatedAt()));
+            statement.setTimestamp(8, Timestamp.valueOf(document.getUpdatedAt()));
+        });
+    }
+    
+    @Override
+    public List<XmlDocumentSummary> findSummariesAfter(DocumentSortKey sortKey, boolean descending,
+                                                       Object afterValue, Long afterId, int limit) {
+        String column = sortKey.getColumn();
+        String direction = descending ? "DESC" : "ASC";
+        StringBuilder sql = new StringBuilder("SELECT id, name, title, created_at, updated_at FROM xml_documents");
+        List<Object> args = new ArrayList<>(3);
+        if (afterId != null) {
+            String comparison = descending ? "<" : ">";
+            if (sortKey == DocumentSortKey.ID) {
+                sql.append(" WHERE id ").append(comparison).append(" ?");
+            } else {
+                // Row-value comparison, so the (column, id) index serves it as a single range
+                sql.append(" WHERE (").append(column).append(", id) ").append(comparison).append(" (?, ?)");
+                args.add(afterValue instanceof LocalDateTime time ? Timestamp.valueOf(time) : afterValue);
+            }
+            args.add(afterId);
+        }
+        if (sortKey == DocumentSortKey.ID) {
+            sql.append(" ORDER BY id ").append(direction);
+        } else {
+            sql.append(" ORDER BY ").append(column).append(' ').append(direction).append(", id ").append(direction);
+        }
+        sql.append(" LIMIT ?");
+        args.add(limit);
+        
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new SummaryRow(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("title"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime()), args.toArray());
+    }
+    
+    @Override
+    public long estimateCount() {
+        try {
+            Long estimate = jdbcTemplate.queryForObject(
+                "SELECT reltuples::bigint FROM pg_class WHERE oid = 'xml_documents'::regclass", Long.class);
+            // -1 means the table has never been analyzed
+            return estimate != null && estimate >= 0 ? estimate : -1;
+        } catch (DataAccessException e) {
+            // Not PostgreSQL (e.g. H2 in tests)
+            return -1;
+        }
+    }
+    
+    @Override
+    public List<XmlDocumentRef> findWithStaleTitle(int titleXPathHash, long afterId, int limit) {
+        return jdbcTemplate.query(
+            "SELECT id, name, exist_db_id, updated_at FROM xml_documents"
+                + " WHERE id > ? AND (title_xpath_hash IS NULL OR title_xpath_hash <> ?) ORDER BY id LIMIT ?",
+            (rs, rowNum) -> new RefRow(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("exist_db_id"),
+                rs.getTimestamp("updated_at").toLocalDateTime()),
+            afterId, titleXPathHash, limit);
+    }
+    
+    @Override
+    @Transactional
+    public void updateTitles(Map<Long, String> titles, int titleXPathHash) {
+        List<Map.Entry<Long, String>> rows = new ArrayList<>(titles.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_TITLE_SQL, rows, rows.size(), (statement, row) -> {
+            statement.setString(1, row.getValue());
+            statement.setInt(2, titleXPathHash);
+            statement.setLong(3, row.getKey());
+            statement.setInt(4, titleXPathHash);
+        });
+    }
+    
+    @Override
+    public Map<Long, Map.Entry<String, String>> findWithInlineContent(long afterId, int limit) {
+        Map<Long, Map.Entry<String, String>> rows = new LinkedHashMap<>();
+        jdbcTemplate.query(
+            "SELECT id, exist_db_id, content FROM xml_documents WHERE id > ? AND content IS NOT NULL ORDER BY id LIMIT ?",
+            rs -> {
+                rows.put(rs.getLong("id"), new AbstractMap.SimpleImmutableEntry<>(
+                    rs.getString("exist_db_id"), rs.getString("content")));
+            },
+            afterId, limit);
+        return rows;
+    }
+    
+    @Override
+    @Transactional
+    public void clearInlineContent(Map<Long, String> contentHashes) {
+        List<Map.Entry<Long, String>> rows = new ArrayList<>(contentHashes.entrySet());
+        jdbcTemplate.batchUpdate(CLEAR_CONTENT_SQL, rows, rows.size(), (statement, row) -> {
+            statement.setString(1, row.getValue());
+            statement.setLong(2, row.getKey());
+        });
+    }
+    
+    private record SummaryRow(Long id, String name, String title, LocalDateTime createdAt, LocalDateTime updatedAt)
+            implements XmlDocumentSummary {
+        
+        @Override
+        public Long getId() {
+            return id;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+        
+        @Override
+        public String getTitle() {
+            return title;
+        }
+        
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+        
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+    
+    private record RefRow(Long id, String name, String existDbId, LocalDateTime updatedAt) implements XmlDocumentRef {
+        
+        @Override
+        public Long getId() {
+            return id;
+        }
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+        
+        @Override
+        public String getExistDbId() {
+            return existDbId;
+        }
+        
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.webdws.repository;
+
+import com.webdws.model.XmlDocumentSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * XmlDocumentSnapshotRepository - Data Access Layer for Compressed Content Snapshots
+ * 
+ * This repository interface provides:
+ * - Standard CRUD operations, keyed by eXist-db resource id
+ * - Removing the snapshot of a deleted document in one statement
+ */
+@Repository
+public interface XmlDocumentSnapshotRepository extends JpaRepository<XmlDocumentSnapshot, String> {
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM XmlDocumentSnapshot s WHERE s.existDbId = :existDbId")
+    int deleteByExistDbId(@Param("existDbId") String existDbId);
+}
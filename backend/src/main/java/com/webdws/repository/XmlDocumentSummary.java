@@ -0,0 +1,25 @@
+package com.webdws.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * XmlDocumentSummary - Listing Projection of an XML Document
+ * 
+ * The columns shown in document lists; selecting only these keeps the content
+ * column out of list queries.
+ */
+public interface XmlDocumentSummary {
+    
+    Long getId();
+    
+    String getName();
+    
+    /**
+     * Entry title, empty if the document has none.
+     */
+    String getTitle();
+    
+    LocalDateTime getCreatedAt();
+    
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,361 @@
+package com.webdws.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webdws.config.AutosaveConfig;
+import com.webdws.dto.AutosaveDraftDto;
+import com.webdws.dto.SaveXmlRequest;
+import com.webdws.dto.XmlDocumentDto;
+import com.webdws.xml.XmlStreamParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AutosaveBuffer - Coalescing Buffer for Autosaved Drafts
+ * 
+ * Editors autosave open entries periodically; writing every autosave as a full update would
+ * validate, store and replicate the same document over and over. This service handles:
+ * - Keeping only the latest draft per document; a newer draft replaces the buffered one
+ * - Writing a document's draft once it has been buffered for the flush interval
+ * - Writing the oldest drafts early when the buffer exceeds its draft or byte bound
+ * - Explicit saves, which supersede the buffered draft of the document
+ * - Carrying a client's If-Match version across writes of its own drafts, identified by an
+ *   autosave token the client sends back
+ * - Flushing all drafts on shutdown
+ * - Metrics on buffered drafts and on what became of each draft (writes saved)
+ */
+@Service
+public class AutosaveBuffer {
+    
+    private static final Logger log = LoggerFactory.getLogger(AutosaveBuffer.class);
+    
+    // Approximate per-draft overhead (map node, record, strings) added to the weight
+    private static final int DRAFT_OVERHEAD = 128;
+    private static final int LOCK_STRIPES = 64;
+    
+    @Autowired
+    private AutosaveConfig config;
+    
+    @Autowired
+    private XmlDocumentService xmlDocumentService;
+    
+    @Autowired
+    private XmlStreamParser xmlStreamParser;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<Long, Draft> drafts = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    // Drafts and writes of one document are serialized; documents are independent
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    // Document id -> last draft written for it. The client that autosaved it keeps sending the
+    // ETag it loaded, so that ETag stays valid for that client (and only for that client).
+    private Cache<Long, WrittenDraft> writtenVersions;
+    
+    private ScheduledExecutorService flusher;
+    private Counter superseded;
+    private Counter flushed;
+    private Counter discarded;
+    private Counter failed;
+    
+    public AutosaveBuffer() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        writtenVersions = Caffeine.newBuilder()
+            .maximumSize(Math.max(1000L, 10L * config.getMaxDrafts()))
+            .expireAfterAccess(Duration.ofHours(12))
+            .build();
+    
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(1000, config.getFlushInterval().toMillis() / 10);
+        flusher.scheduleWithFixedDelay(this::flushDueSafely, tick, tick, TimeUnit.MILLISECONDS);
+    
+        Gauge.builder("autosave.buffer.drafts", drafts, Map::size)
+            .description("Autosaved drafts waiting to be written")
+            .register(meterRegistry);
+        Gauge.builder("autosave.buffer.size.bytes", bufferedBytes, AtomicLong::get)
+            .description("Approximate memory held by buffered drafts")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        // Every draft ends in exactly one outcome; superseded and discarded drafts are writes saved
+        superseded = outcomeCounter("superseded");
+        flushed = outcomeCounter("flushed");
+        discarded = outcomeCounter("discarded");
+        failed = outcomeCounter("failed");
+    }
+    
+    private Counter outcomeCounter(String outcome) {
+        return Counter.builder("autosave.drafts")
+            .description("Autosaved drafts by outcome")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int count = flushAll();
+        if (count > 0) {
+            log.info("Flushed {} autosaved drafts on shutdown", count);
+        }
+    }
+    
+    /**
+     * Buffer the latest draft of a document, replacing any draft buffered before. The
+     * version check is done now against PostgreSQL and the draft is checked for
+     * well-formedness, so a draft that could not be written is rejected right away instead
+     * of being dropped when it would be written.
+     * 
+     * @param expectedVersion version the client based its draft on (If-Match), or null
+     * @param token autosave token returned by an earlier call for the same editing session,
+     *              or null to start one
+     * @return the autosave token to send with the next drafts and the explicit save
+     * @throws com.webdws.xml.MalformedXmlException if the draft is not well-formed
+     */
+    public String put(Long id, SaveXmlRequest request, Long expectedVersion, String token) {
+        try {
+            xmlStreamParser.parse(new StringReader(request.getContent()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String owner = token != null ? token : UUID.randomUUID().toString();
+        synchronized (lockFor(id)) {
+            long current = xmlDocumentService.getDocumentVersion(id);
+            Long baseVersion = currentVersionFor(id, owner, expectedVersion);
+            if (baseVersion != null && baseVersion != current) {
+                throw new DocumentVersionConflictException("Document " + id + " has been modified (current version "
+                    + current + ", expected " + expectedVersion + ")");
+            }
+            Draft previous = drafts.get(id);
+            checkNotOwnedByOther(id, previous, owner, expectedVersion);
+            // Keep the age of the first unwritten draft, so steady autosaving is still written
+            long firstBufferedAt = previous != null ? previous.firstBufferedAt() : System.nanoTime();
+            Draft draft = new Draft(owner, request.getName(), request.getContent(), expectedVersion, baseVersion,
+                LocalDateTime.now(), firstBufferedAt, weigh(request));
+            drafts.put(id, draft);
+            bufferedBytes.addAndGet(draft.weight() - (previous != null ? previous.weight() : 0));
+            if (previous != null) {
+                superseded.increment();
+            }
+        }
+        evictOverflow();
+        return owner;
+    }
+    
+    /**
+     * The draft of a document that has not been written yet, if any.
+     */
+    public Optional<AutosaveDraftDto> get(Long id) {
+        Draft draft = drafts.get(id);
+        if (draft == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new AutosaveDraftDto(id.toString(), draft.name(), draft.content(),
+            draft.baseVersion(), draft.receivedAt()));
+    }
+    
+    /**
+     * Explicitly save a document. The saved content supersedes the buffered draft, which
+     * is dropped once the update has succeeded.
+     * 
+     * @param expectedVersion version the client based its change on (If-Match), or null
+     * @param token the client's autosave token, or null if it has not autosaved
+     */
+    public XmlDocumentDto save(Long id, SaveXmlRequest request, Long expectedVersion, String token) {
+        synchronized (lockFor(id)) {
+            checkNotOwnedByOther(id, drafts.get(id), token, expectedVersion);
+            XmlDocumentDto document = xmlDocumentService.updateDocument(id, request,
+                currentVersionFor(id, token, expectedVersion));
+            writtenVersions.invalidate(id);
+            Draft draft = drafts.remove(id);
+            if (draft != null) {
+                bufferedBytes.addAndGet(-draft.weight());
+                superseded.increment();
+            }
+            return document;
+        }
+    }
+    
+    /**
+     * Drop the draft of a document that is being deleted.
+     */
+    public void discard(Long id) {
+        synchronized (lockFor(id)) {
+            writtenVersions.invalidate(id);
+            Draft draft = drafts.remove(id);
+            if (draft != null) {
+                bufferedBytes.addAndGet(-draft.weight());
+                discarded.increment();
+            }
+        }
+    }
+    
+    /**
+     * Write every buffered draft now.
+     * 
+     * @return number of drafts written
+     */
+    public int flushAll() {
+        int count = 0;
+        for (Long id : new ArrayList<>(drafts.keySet())) {
+            if (flush(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private void flushDueSafely() {
+        try {
+            long dueBefore = System.nanoTime() - config.getFlushInterval().toNanos();
+            for (Map.Entry<Long, Draft> entry : drafts.entrySet()) {
+                if (entry.getValue().firstBufferedAt() - dueBefore <= 0) {
+                    flush(entry.getKey());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Autosave flush failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Write the oldest drafts until the buffer is within its bounds again. Drafts are never
+     * dropped to make room; they are only written earlier than planned.
+     */
+    private void evictOverflow() {
+        while (drafts.size() > config.getMaxDrafts() || bufferedBytes.get() > config.getMaxBytes()) {
+            Optional<Long> oldest = drafts.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().firstBufferedAt()))
+                .map(Map.Entry::getKey);
+            if (oldest.isEmpty()) {
+                return;
+            }
+            flush(oldest.get());
+        }
+    }
+    
+    /**
+     * Write the buffered draft of one document as a regular update. Drafts that can never
+     * be written (deleted document, or one changed by an unconditional write) are dropped;
+     * on a database error the draft is kept for the next attempt.
+     * 
+     * @return whether a draft was written
+     */
+    private boolean flush(Long id) {
+        synchronized (lockFor(id)) {
+            Draft draft = drafts.remove(id);
+            if (draft == null) {
+                return false;
+            }
+            bufferedBytes.addAndGet(-draft.weight());
+            try {
+                // Drafts may be incomplete; the schema is enforced on the explicit save
+                XmlDocumentDto document = xmlDocumentService.updateDocument(id,
+                    new SaveXmlRequest(draft.name(), draft.content()), draft.baseVersion(), false);
+                if (draft.clientVersion() != null) {
+                    writtenVersions.put(id, new WrittenDraft(draft.owner(), draft.clientVersion(), document.getVersion()));
+                }
+                flushed.increment();
+                return true;
+            } catch (DataAccessException e) {
+                log.warn("Could not write autosaved draft of document {}, will retry: {}", id, e.getMessage());
+                drafts.put(id, draft);
+                bufferedBytes.addAndGet(draft.weight());
+                return false;
+            } catch (RuntimeException e) {
+                log.warn("Dropping autosaved draft of document {}: {}", id, e.getMessage());
+                failed.increment();
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * The version a write based on {@code expectedVersion} must be checked against: the
+     * version of the document's last autosave write if that write was a draft of the same
+     * client ({@code token}) based on the same version, else {@code expectedVersion} itself.
+     */
+    private Long currentVersionFor(Long id, String token, Long expectedVersion) {
+        if (expectedVersion == null || token == null) {
+            return expectedVersion;
+        }
+        WrittenDraft written = writtenVersions.getIfPresent(id);
+        return written != null && written.owner().equals(token) && written.clientVersion() == expectedVersion
+            ? written.version() : expectedVersion;
+    }
+    
+    /**
+     * A conditional write must not replace the unwritten draft of another client: the
+     * document has moved on from the version it is based on, it just is not stored yet.
+     */
+    private static void checkNotOwnedByOther(Long id, Draft draft, String token, Long expectedVersion) {
+        if (expectedVersion != null && draft != null && !Objects.equals(draft.owner(), token)) {
+            throw new DocumentVersionConflictException("Document " + id
+                + " has an autosaved draft of another client that has not been written yet");
+        }
+    }
+    
+    private Object lockFor(Long id) {
+        return locks[Math.floorMod(id.hashCode(), LOCK_STRIPES)];
+    }
+    
+    private static long weigh(SaveXmlRequest request) {
+        long chars = (long) request.getContent().length() + request.getName().length();
+        return 2 * chars + DRAFT_OVERHEAD;
+    }
+    
+    /**
+     * A buffered draft. {@code owner} is the autosave token of the client that sent it,
+     * {@code clientVersion} the If-Match version as sent, {@code baseVersion} the version it
+     * was checked against; {@code firstBufferedAt} is a System.nanoTime() value.
+     */
+    private record Draft(String owner, String name, String content, Long clientVersion, Long baseVersion,
+                         LocalDateTime receivedAt, long firstBufferedAt, long weight) {}
+    
+    /**
+     * The last draft written for a document: who sent it, the If-Match version it was sent
+     * with, and the version it was written as.
+     */
+    private record WrittenDraft(String owner, long clientVersion, long version) {}
+}
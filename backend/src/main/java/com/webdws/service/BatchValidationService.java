@@ -0,0 +1,297 @@
+package com.webdws.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webdws.config.ValidationConfig;
+import com.webdws.dto.BatchValidationResultDto;
+import com.webdws.dto.BatchValidationSummaryDto;
+import com.webdws.dto.ValidationErrorDto;
+import com.webdws.dto.ValidationResult;
+import com.webdws.repository.XmlDocumentRef;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.xml.MalformedXmlException;
+import com.webdws.xml.SchemaViolation;
+import com.webdws.xml.XmlSchemaValidator;
+import com.webdws.xml.XmlStreamParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * BatchValidationService - Parallel Validation of Many Documents
+ * 
+ * This service validates a set of documents (or the whole collection) in one job and handles:
+ * - Walking the documents with a keyset cursor, or the requested ids in chunks
+ * - Fetching content from eXist-db with bounded concurrency, or from the outbox while a
+ *   saved document has not reached eXist-db yet
+ * - Validating on a fork-join pool sized to the available cores, with pooled schema validators
+ * - Writing one NDJSON line per document as soon as it is done, then a summary line
+ * - Keeping memory flat: at most batch-max-in-flight documents are held at a time
+ */
+@Service
+public class BatchValidationService {
+    
+    private static final Logger log = LoggerFactory.getLogger(BatchValidationService.class);
+    
+    @Autowired
+    private ValidationConfig config;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private ExistDbService existDbService;
+    
+    @Autowired
+    private ExistDbOutbox outbox;
+    
+    @Autowired
+    private XmlSchemaValidator schemaValidator;
+    
+    @Autowired
+    private XmlStreamParser xmlStreamParser;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private ExecutorService fetchPool;
+    private ForkJoinPool validatePool;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        fetchPool = Executors.newFixedThreadPool(config.getBatchFetchConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "validate-fetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        validatePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        fetchPool.shutdownNow();
+        validatePool.shutdownNow();
+    }
+    
+    /**
+     * The schema a batch is validated against: the given classpath schema, else the
+     * configured one, else null (well-formedness only). Call before writing the response,
+     * so an unknown schema can still be reported as an error.
+     * 
+     * @throws IllegalArgumentException if the schema does not exist
+     */
+    public XmlSchemaValidator.CompiledSchema resolveSchema(String schema) {
+        if (schema != null && !schema.isBlank()) {
+            return schemaValidator.schema(schema);
+        }
+        return schemaValidator.isEnabled() ? schemaValidator.defaultSchema() : null;
+    }
+    
+    /**
+     * Validate the documents with the given ids (all documents if null or empty) and write
+     * the results to {@code out} as NDJSON, in the order they finish.
+     * 
+     * @param schema schema from resolveSchema, or null to check well-formedness only
+     * @return the summary, which is also written as the last line
+     */
+    public BatchValidationSummaryDto validate(List<Long> ids, XmlSchemaValidator.CompiledSchema schema,
+                                              OutputStream out) throws IOException {
+        Batch batch = new Batch(schema, out);
+        try {
+            if (ids == null || ids.isEmpty()) {
+                long afterId = 0;
+                List<XmlDocumentRef> page;
+                do {
+                    page = repository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, config.getBatchPageSize()));
+                    for (XmlDocumentRef ref : page) {
+                        batch.submit(ref);
+                    }
+                    if (!page.isEmpty()) {
+                        afterId = page.get(page.size() - 1).getId();
+                    }
+                } while (page.size() == config.getBatchPageSize());
+            } else {
+                List<Long> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+                for (int from = 0; from < unique.size(); from += config.getBatchPageSize()) {
+                    List<Long> chunk = unique.subList(from, Math.min(unique.size(), from + config.getBatchPageSize()));
+                    Set<Long> missing = new HashSet<>(chunk);
+                    for (XmlDocumentRef ref : repository.findByIdInOrderByIdAsc(chunk)) {
+                        missing.remove(ref.getId());
+                        batch.submit(ref);
+                    }
+                    for (Long id : missing) {
+                        BatchValidationResultDto notFound = new BatchValidationResultDto(id.toString(), null,
+                            BatchValidationResultDto.ERROR);
+                        notFound.setError("Document not found with id: " + id);
+                        batch.write(notFound);
+                    }
+                }
+            }
+            return batch.finish();
+        } catch (IOException | RuntimeException e) {
+            // Client gone or cursor failed: documents still in flight skip their fetch
+            batch.cancelled.set(true);
+            throw e;
+        }
+    }
+    
+    private byte[] fetch(XmlDocumentRef ref, AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            return null;
+        }
+        // Validate what was saved, even if it has not been dispatched to eXist-db yet
+        Optional<String> pending = outbox.pendingContent(ref.getExistDbId());
+        if (pending.isPresent()) {
+            return pending.get().getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return existDbService.streamDocument(ref.getExistDbId(), null, response -> response.getBody().readAllBytes());
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+    
+    private BatchValidationResultDto check(XmlDocumentRef ref, byte[] content, XmlSchemaValidator.CompiledSchema schema) {
+        String id = ref.getId().toString();
+        if (content == null) {
+            BatchValidationResultDto result = new BatchValidationResultDto(id, ref.getName(), BatchValidationResultDto.ERROR);
+            result.setError("Document has no content in eXist-db");
+            return result;
+        }
+        return BatchValidationResultDto.of(id, ref.getName(), validateContent(content, schema));
+    }
+    
+    private ValidationResult validateContent(byte[] content, XmlSchemaValidator.CompiledSchema schema) {
+        try {
+            if (schema == null) {
+                xmlStreamParser.parse(new ByteArrayInputStream(content));
+                return ValidationResult.valid();
+            }
+            List<SchemaViolation> violations = schemaValidator.validate(new ByteArrayInputStream(content), schema);
+            if (violations.isEmpty()) {
+                return ValidationResult.valid();
+            }
+            return ValidationResult.invalid(violations.stream()
+                .map(v -> new ValidationErrorDto(v.message(), v.lineNumber(), v.columnNumber()))
+                .collect(Collectors.toList()));
+        } catch (MalformedXmlException e) {
+            return ValidationResult.invalid("Invalid XML: " + e.getMessage(), e.getLineNumber(), e.getColumnNumber());
+        } catch (IOException e) {
+            return ValidationResult.invalid("Invalid XML: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * One running batch. Documents are submitted and results written on the calling
+     * (request) thread; fetching and validating happen on the pools.
+     */
+    private class Batch {
+        final XmlSchemaValidator.CompiledSchema schema;
+        final OutputStream out;
+        final BlockingQueue<BatchValidationResultDto> done = new LinkedBlockingQueue<>();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final long startedAt = System.nanoTime();
+        int inFlight;
+        long valid;
+        long invalid;
+        long errors;
+        
+        Batch(XmlSchemaValidator.CompiledSchema schema, OutputStream out) {
+            this.schema = schema;
+            this.out = out;
+        }
+        
+        void submit(XmlDocumentRef ref) throws IOException {
+            while (inFlight >= config.getBatchMaxInFlight()) {
+                writeNextDone();
+            }
+            inFlight++;
+            CompletableFuture.supplyAsync(() -> fetch(ref, cancelled), fetchPool)
+                .thenApplyAsync(content -> check(ref, content, schema), validatePool)
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    BatchValidationResultDto result = new BatchValidationResultDto(ref.getId().toString(),
+                        ref.getName(), BatchValidationResultDto.ERROR);
+                    result.setError("Failed to validate document: " + cause.getMessage());
+                    return result;
+                })
+                .thenAccept(done::add);
+            // Write whatever is ready without waiting
+            BatchValidationResultDto result;
+            while ((result = done.poll()) != null) {
+                inFlight--;
+                write(result);
+            }
+        }
+        
+        BatchValidationSummaryDto finish() throws IOException {
+            while (inFlight > 0) {
+                writeNextDone();
+            }
+            long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+            BatchValidationSummaryDto summary = new BatchValidationSummaryDto(valid + invalid + errors,
+                valid, invalid, errors, elapsedMillis);
+            writeLine(Map.of("summary", summary));
+            out.flush();
+            log.info("Batch validation of {} document(s) in {} ms: {} valid, {} invalid, {} failed",
+                summary.getTotal(), elapsedMillis, valid, invalid, errors);
+            return summary;
+        }
+        
+        private void writeNextDone() throws IOException {
+            BatchValidationResultDto result = done.poll();
+            if (result == null) {
+                // Let the client see what is done while we wait
+                out.flush();
+                try {
+                    result = done.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Batch validation interrupted", e);
+                }
+            }
+            inFlight--;
+            write(result);
+        }
+        
+        void write(BatchValidationResultDto result) throws IOException {
+            switch (result.getStatus()) {
+                case BatchValidationResultDto.VALID -> valid++;
+                case BatchValidationResultDto.INVALID -> invalid++;
+                default -> errors++;
+            }
+            writeLine(result);
+        }
+        
+        private void writeLine(Object value) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        }
+    }
+}
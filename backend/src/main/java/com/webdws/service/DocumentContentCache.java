@@ -0,0 +1,105 @@
+package com.webdws.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.webdws.config.ContentCacheConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * DocumentContentCache - In-process Read-through Cache of Document Content
+ * 
+ * This component keeps recently read documents in memory, keyed by eXist-db id, and provides:
+ * - Read-through loading, so a miss costs one eXist-db request and later reads none
+ * - A bound on total bytes rather than on the number of entries
+ * - W-TinyLFU eviction (Caffeine), which keeps frequently opened entries over one-off reads
+ * - Optional deflate compression of entries to fit more of the working set
+ * - Hit, miss, eviction and size metrics under the cache name "document.content"
+ */
+@Component
+public class DocumentContentCache {
+    
+    static final String CACHE_NAME = "document.content";
+    
+    // Approximate per-entry overhead (key, array header, cache node) added to the weight
+    private static final int ENTRY_OVERHEAD = 96;
+    
+    @Autowired
+    private ContentCacheConfig config;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Null when the cache is disabled
+    private Cache<String, byte[]> cache;
+    
+    @PostConstruct
+    public void init() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+            .maximumWeight(config.getMaxBytes())
+            .weigher((String key, byte[] value) ->
+                (int) Math.min(Integer.MAX_VALUE, value.length + 2L * key.length() + ENTRY_OVERHEAD))
+            .expireAfterAccess(config.getExpireAfterAccess())
+            .recordStats()
+            .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.size.bytes", cache, c -> c.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L))
+            .tag("cache", CACHE_NAME)
+            .description("Bytes held by the cache, including per-entry overhead")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Content of a document, loaded with {@code loader} on a miss. Concurrent misses for the
+     * same id share one load; a null result is returned but not cached.
+     */
+    public String get(String existDbId, Function<String, String> loader) {
+        if (cache == null) {
+            return loader.apply(existDbId);
+        }
+        byte[] stored = cache.get(existDbId, key -> {
+            String content = loader.apply(key);
+            return content != null ? encode(content) : null;
+        });
+        return stored != null ? decode(stored) : null;
+    }
+    
+    /**
+     * Drop a document after it was changed or deleted. Waits for an in-flight load of the
+     * same id, so a value read before the change cannot survive the invalidation.
+     */
+    public void invalidate(String existDbId) {
+        if (cache != null && existDbId != null) {
+            cache.invalidate(existDbId);
+        }
+    }
+    
+    private byte[] encode(String content) {
+        if (!config.isCompress()) {
+            return content.getBytes(StandardCharsets.UTF_8);
+        }
+        return DeflatedText.compress(content, Deflater.BEST_SPEED);
+    }
+    
+    private String decode(byte[] stored) {
+        if (!config.isCompress()) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        return DeflatedText.decompress(stored);
+    }
+}
@@ -0,0 +1,198 @@
+package com.webdws.service;
+
+import com.webdws.config.ContentStorageConfig;
+import com.webdws.model.XmlDocument;
+import com.webdws.model.XmlDocumentSnapshot;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.repository.XmlDocumentSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+/**
+ * DocumentContentStore - What PostgreSQL Keeps of Document Content
+ * 
+ * eXist-db holds the content of every document; PostgreSQL keeps a hash of it and, depending
+ * on webdws.content-storage.mode, a copy. This service handles:
+ * - Recording the hash (and the copy, if any) of content written through a save
+ * - Compressed snapshots in their own table, so metadata loads never read them
+ * - Serving a current copy as fallback when eXist-db cannot provide the content
+ * - Moving content out of the legacy content column in the background after startup
+ */
+@Service
+public class DocumentContentStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(DocumentContentStore.class);
+    
+    @Autowired
+    private ContentStorageConfig config;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private XmlDocumentSnapshotRepository snapshotRepository;
+    
+    private ExecutorService migrateExecutor;
+    
+    @PostConstruct
+    public void init() {
+        migrateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-migrate");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        migrateExecutor.shutdownNow();
+    }
+    
+    /**
+     * Record the content a document is being saved with. Must be called inside the
+     * transaction that writes the document, after its eXist-db id has been set.
+     */
+    public void record(XmlDocument document, String content) {
+        String hash = hash(content);
+        document.setContentHash(hash);
+        document.setContent(config.getMode() == ContentStorageConfig.Mode.TEXT ? content : null);
+        if (config.getMode() == ContentStorageConfig.Mode.SNAPSHOT) {
+            snapshotRepository.save(new XmlDocumentSnapshot(document.getExistDbId(), hash, compress(content)));
+        }
+    }
+    
+    /**
+     * Record snapshots for many new documents at once (bulk import); see record.
+     * The documents' content hashes must already be set.
+     */
+    public void recordAll(List<XmlDocument> documents, List<String> contents) {
+        if (config.getMode() == ContentStorageConfig.Mode.TEXT) {
+            for (int i = 0; i < documents.size(); i++) {
+                documents.get(i).setContent(contents.get(i));
+            }
+        } else if (config.getMode() == ContentStorageConfig.Mode.SNAPSHOT) {
+            List<XmlDocumentSnapshot> snapshots = new ArrayList<>(documents.size());
+            for (int i = 0; i < documents.size(); i++) {
+                XmlDocument document = documents.get(i);
+                snapshots.add(new XmlDocumentSnapshot(document.getExistDbId(), document.getContentHash(),
+                    compress(contents.get(i))));
+            }
+            snapshotRepository.saveAll(snapshots);
+        }
+    }
+    
+    /**
+     * Record that a document's content was changed in eXist-db without passing through
+     * here (streamed save, node patch): its hash is unknown and any copy is outdated.
+     */
+    public void forget(XmlDocument document) {
+        document.setContentHash(null);
+        document.setContent(null);
+    }
+    
+    /**
+     * Remove what is kept of a deleted document's content.
+     */
+    public void delete(String existDbId) {
+        if (existDbId != null) {
+            snapshotRepository.deleteByExistDbId(existDbId);
+        }
+    }
+    
+    /**
+     * A copy of the document's current content kept in PostgreSQL, if there is one. A
+     * copy only counts as current when its hash matches the one stored with the document.
+     */
+    public Optional<String> currentCopy(XmlDocument document) {
+        String hash = document.getContentHash();
+        if (hash == null) {
+            return Optional.empty();
+        }
+        if (document.getContent() != null && hash.equals(hash(document.getContent()))) {
+            return Optional.of(document.getContent());
+        }
+        return snapshotRepository.findById(document.getExistDbId())
+            .filter(snapshot -> hash.equals(snapshot.getContentHash()))
+            .map(snapshot -> DeflatedText.decompress(snapshot.getData()));
+    }
+    
+    /**
+     * SHA-256 of the UTF-8 encoded content, as lower-case hex.
+     */
+    public static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleMigration() {
+        if (config.getMode() != ContentStorageConfig.Mode.TEXT) {
+            migrateExecutor.execute(this::migrateInlineContent);
+        }
+    }
+    
+    /**
+     * Replace content stored in the legacy content column by its hash (and a snapshot in
+     * mode SNAPSHOT), one batch at a time. Space is returned to the database by VACUUM.
+     */
+    void migrateInlineContent() {
+        long afterId = 0;
+        long migrated = 0;
+        try {
+            Map<Long, Map.Entry<String, String>> batch;
+            do {
+                batch = repository.findWithInlineContent(afterId, config.getMigrateBatchSize());
+                Map<Long, String> hashes = new LinkedHashMap<>();
+                List<XmlDocumentSnapshot> snapshots = new ArrayList<>(batch.size());
+                for (Map.Entry<Long, Map.Entry<String, String>> row : batch.entrySet()) {
+                    String existDbId = row.getValue().getKey();
+                    String content = row.getValue().getValue();
+                    String hash = hash(content);
+                    hashes.put(row.getKey(), hash);
+                    if (config.getMode() == ContentStorageConfig.Mode.SNAPSHOT && existDbId != null) {
+                        snapshots.add(new XmlDocumentSnapshot(existDbId, hash, compress(content)));
+                    }
+                    afterId = row.getKey();
+                }
+                if (!hashes.isEmpty()) {
+                    snapshotRepository.saveAll(snapshots);
+                    repository.clearInlineContent(hashes);
+                    migrated += hashes.size();
+                }
+            } while (batch.size() == config.getMigrateBatchSize() && !Thread.currentThread().isInterrupted());
+            if (migrated > 0) {
+                log.info("Moved content of {} document(s) out of xml_documents.content (mode {})", migrated, config.getMode());
+            }
+        } catch (RuntimeException e) {
+            // Resumed on the next startup; rows already migrated are not visited again
+            log.warn("Content migration stopped after {} document(s): {}", migrated, e.getMessage());
+        }
+    }
+    
+    private static byte[] compress(String content) {
+        return DeflatedText.compress(content, Deflater.DEFAULT_COMPRESSION);
+    }
+}
@@ -0,0 +1,77 @@
+package com.webdws.service;
+
+import com.webdws.repository.DocumentSortKey;
+import com.webdws.repository.XmlDocumentSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * DocumentListCursor - Opaque Continuation Token for the Document List
+ * 
+ * Holds the sort value and id of the last row of a page. The token also records the
+ * sort key and direction it was made for, so it cannot be replayed against another order.
+ */
+final class DocumentListCursor {
+    
+    private static final String VERSION = "v1";
+    
+    private final Object afterValue;
+    private final long afterId;
+    
+    private DocumentListCursor(Object afterValue, long afterId) {
+        this.afterValue = afterValue;
+        this.afterId = afterId;
+    }
+    
+    Object getAfterValue() {
+        return afterValue;
+    }
+    
+    long getAfterId() {
+        return afterId;
+    }
+    
+    static String encode(DocumentSortKey sortKey, boolean descending, XmlDocumentSummary last) {
+        String value = switch (sortKey) {
+            case ID -> "";
+            case NAME -> last.getName();
+            case TITLE -> last.getTitle();
+            case CREATED_AT -> last.getCreatedAt().toString();
+            case UPDATED_AT -> last.getUpdatedAt().toString();
+        };
+        String raw = String.join("|", VERSION, sortKey.getParam(), descending ? "d" : "a",
+            String.valueOf(last.getId()), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static DocumentListCursor decode(String token, DocumentSortKey sortKey, boolean descending) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        try {
+            // The value comes last and may itself contain '|'
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !parts[0].equals(VERSION)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            if (!parts[1].equals(sortKey.getParam()) || !parts[2].equals(descending ? "d" : "a")) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort order");
+            }
+            long afterId = Long.parseLong(parts[3]);
+            Object afterValue = switch (sortKey) {
+                case ID -> null;
+                case NAME, TITLE -> parts[4];
+                case CREATED_AT, UPDATED_AT -> LocalDateTime.parse(parts[4]);
+            };
+            return new DocumentListCursor(afterValue, afterId);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.webdws.service;
+
+import com.webdws.config.TitleConfig;
+import com.webdws.model.XmlDocument;
+import com.webdws.repository.XmlDocumentRef;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.xml.MalformedXmlException;
+import com.webdws.xml.TitleExpression;
+import com.webdws.xml.XmlStreamParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.xml.sax.ContentHandler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DocumentTitleService - Entry Titles from the Configured Title XPath
+ * 
+ * This service owns webdws.title.xpath and handles:
+ * - Compiling the XPath once at startup (an unsupported expression fails startup)
+ * - Computing the title during a save's parse pass, as a SaveSubscriber
+ * - Recomputing, in the background, titles stored with a different XPath
+ * - Restarting an interrupted recompute when eXist-db becomes reachable again
+ */
+@Service
+public class DocumentTitleService implements SaveSubscriber {
+    
+    private static final Logger log = LoggerFactory.getLogger(DocumentTitleService.class);
+    
+    @Autowired
+    private TitleConfig config;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private ExistDbService existDbService;
+    
+    @Autowired
+    private ExistDbHealthMonitor healthMonitor;
+    
+    @Autowired
+    private XmlStreamParser xmlStreamParser;
+    
+    @Autowired
+    private NameSearchIndex nameSearchIndex;
+    
+    private TitleExpression expression;
+    private ExecutorService recomputeExecutor;
+    private final AtomicBoolean recomputing = new AtomicBoolean();
+    
+    @PostConstruct
+    public void init() {
+        expression = TitleExpression.compile(config.getXpath());
+        recomputeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "title-recompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthMonitor.addReconnectListener(this::scheduleRecompute);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        recomputeExecutor.shutdownNow();
+    }
+    
+    /**
+     * Compute the title of a document being saved from the save's parse events.
+     */
+    @Override
+    public Subscription subscribe() {
+        TitleExpression.Evaluation evaluation = expression.newEvaluation();
+        return new Subscription() {
+            @Override
+            public ContentHandler handler() {
+                return expression.isEmpty() ? null : evaluation;
+            }
+            
+            @Override
+            public void apply(XmlDocument document) {
+                setTitle(document, evaluation.getTitle());
+            }
+        };
+    }
+    
+    /**
+     * Store a title computed with the current title XPath on a document.
+     */
+    public void setTitle(XmlDocument document, String title) {
+        document.setTitle(title != null ? title : "");
+        document.setTitleXPathHash(getXPathHash());
+    }
+    
+    /**
+     * Identifies the current title XPath; stored with each title so that titles computed
+     * with an earlier XPath can be found.
+     */
+    public int getXPathHash() {
+        return expression.getSource().hashCode();
+    }
+    
+    /**
+     * Compute the title of a document stored in eXist-db (null if it has none).
+     */
+    public String readTitle(String existDbId) {
+        if (expression.isEmpty()) {
+            return null;
+        }
+        TitleExpression.Evaluation evaluation = expression.newEvaluation();
+        try {
+            existDbService.streamDocument(existDbId, null, response -> {
+                xmlStreamParser.parse(response.getBody(), evaluation);
+                return null;
+            });
+        } catch (HttpClientErrorException.NotFound | MalformedXmlException e) {
+            return null;
+        }
+        return evaluation.getTitle();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRecompute() {
+        if (recomputing.compareAndSet(false, true)) {
+            recomputeExecutor.execute(() -> {
+                try {
+                    recomputeStaleTitles();
+                } finally {
+                    recomputing.set(false);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Recompute every title stored with another title XPath, one batch at a time.
+     * Documents are read from eXist-db one after another, so the job adds little load.
+     */
+    void recomputeStaleTitles() {
+        // Let the initial load of the search index finish first, so it cannot overwrite
+        // the titles put into the index below with older ones
+        nameSearchIndex.catchUp();
+        
+        int hash = getXPathHash();
+        long afterId = 0;
+        long updated = 0;
+        try {
+            List<XmlDocumentRef> batch;
+            do {
+                batch = repository.findWithStaleTitle(hash, afterId, config.getRecomputeBatchSize());
+                Map<Long, String> titles = new LinkedHashMap<>();
+                for (XmlDocumentRef ref : batch) {
+                    String title = ref.getExistDbId() != null ? readTitle(ref.getExistDbId()) : null;
+                    titles.put(ref.getId(), title != null ? title : "");
+                }
+                if (!titles.isEmpty()) {
+                    repository.updateTitles(titles, hash);
+                    for (XmlDocumentRef ref : batch) {
+                        nameSearchIndex.put(ref.getId(), ref.getName(), titles.get(ref.getId()));
+                    }
+                    updated += titles.size();
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == config.getRecomputeBatchSize() && !Thread.currentThread().isInterrupted());
+            if (updated > 0) {
+                log.info("Recomputed {} title(s) for title XPath '{}'", updated, expression.getSource());
+            }
+        } catch (RuntimeException e) {
+            // Picked up again by the reconnect listener once eXist-db is back
+            log.warn("Title recompute stopped after {} document(s): {}", updated, e.getMessage());
+        }
+    }
+}
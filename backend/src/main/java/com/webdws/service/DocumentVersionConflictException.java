@@ -0,0 +1,16 @@
+package com.webdws.service;
+
+/**
+ * DocumentVersionConflictException - Thrown when a write is based on a stale version
+ * 
+ * Raised when the version a client sent (If-Match) is no longer the current version of
+ * the document, so controllers can answer with 412 Precondition Failed.
+ */
+public class DocumentVersionConflictException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public DocumentVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,176 @@
+package com.webdws.service;
+
+import com.webdws.config.ExistDbConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ExistDbHealthMonitor - Shared eXist-db Availability State
+ * 
+ * This component replaces per-operation availability probes and provides:
+ * - A background probe of eXist-db on a fixed delay
+ * - A circuit breaker (CLOSED / OPEN / HALF_OPEN) fed by the probe and by real operations
+ * - A cheap, cached {@link #allowRequest()} check so an outage fails fast
+ * - An actuator health contribution reporting the current circuit state
+ * 
+ * The probe and the reconnect listeners run on a thread of their own. Spring's shared task
+ * scheduler has a single thread by default, and a long job there (e.g. loading the name
+ * index) would otherwise hold the circuit in whatever state it was in.
+ */
+@Component
+public class ExistDbHealthMonitor implements HealthIndicator {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExistDbHealthMonitor.class);
+    
+    public enum State {
+        /** eXist-db is reachable; all requests go through. */
+        CLOSED,
+        /** eXist-db is considered down; requests fail fast until a probe succeeds. */
+        OPEN,
+        /** A probe succeeded after an outage; requests go through and the next result decides. */
+        HALF_OPEN
+    }
+    
+    @Autowired
+    private ExistDbConfig config;
+    
+    @Autowired
+    @Qualifier("existDbRestTemplate")
+    private RestTemplate restTemplate;
+    
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final List<Runnable> reconnectListeners = new CopyOnWriteArrayList<>();
+    private volatile Instant lastProbeAt;
+    private volatile String lastError;
+    private ScheduledExecutorService scheduler;
+    
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "exist-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHealthCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::probe, 0, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Whether an operation against eXist-db should be attempted. This never does I/O.
+     */
+    public boolean allowRequest() {
+        return state.get() != State.OPEN;
+    }
+    
+    public State getState() {
+        return state.get();
+    }
+    
+    /**
+     * Register a callback that runs (on the monitor's thread) whenever the circuit closes
+     * again after an outage, e.g. to re-check state that eXist-db may have lost.
+     */
+    public void addReconnectListener(Runnable listener) {
+        reconnectListeners.add(listener);
+    }
+    
+    /**
+     * Report a successful round trip to eXist-db.
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        lastError = null;
+        State previous = state.getAndSet(State.CLOSED);
+        if (previous != State.CLOSED) {
+            log.info("eXist-db circuit {} -> CLOSED", previous);
+            for (Runnable listener : reconnectListeners) {
+                scheduler.execute(listener);
+            }
+        }
+    }
+    
+    /**
+     * Report a failed round trip (connection error, timeout or 5xx) to eXist-db.
+     */
+    public void recordFailure(Exception e) {
+        lastError = e.getMessage();
+        int failures = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN
+                || (current == State.CLOSED && failures >= config.getFailureThreshold())) {
+            if (state.compareAndSet(current, State.OPEN)) {
+                log.warn("eXist-db circuit {} -> OPEN after {} failure(s): {}", current, failures, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Background probe. A HEAD request on the root collection is enough to tell whether
+     * the server answers; any non-5xx status counts as reachable.
+     */
+    void probe() {
+        lastProbeAt = Instant.now();
+        try {
+            String url = config.getUrl() + "/exist/rest/db";
+            restTemplate.execute(url, HttpMethod.HEAD, null, response -> null);
+            onProbeSuccess();
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode().is5xxServerError()) {
+                recordFailure(e);
+            } else {
+                onProbeSuccess();
+            }
+        } catch (Exception e) {
+            recordFailure(e);
+        }
+    }
+    
+    private void onProbeSuccess() {
+        if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            log.info("eXist-db probe succeeded, circuit OPEN -> HALF_OPEN");
+        } else {
+            recordSuccess();
+        }
+    }
+    
+    @Override
+    public Health health() {
+        State current = state.get();
+        Health.Builder builder = current == State.OPEN ? Health.down() : Health.up();
+        builder.withDetail("url", config.getUrl())
+            .withDetail("circuit", current)
+            .withDetail("consecutiveFailures", consecutiveFailures.get());
+        if (lastProbeAt != null) {
+            builder.withDetail("lastProbeAt", lastProbeAt.toString());
+        }
+        if (lastError != null) {
+            builder.withDetail("lastError", lastError);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,277 @@
+package com.webdws.service;
+
+import com.webdws.config.OutboxConfig;
+import com.webdws.model.ExistDbOutboxEntry;
+import com.webdws.repository.ExistDbOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ExistDbOutbox - Transactional Outbox for Writes to eXist-db
+ * 
+ * Saves record their eXist-db write as an outbox row in the same PostgreSQL transaction
+ * as the metadata, so both commit or neither does. This service handles:
+ * - Enqueueing stores and deletes inside the caller's transaction
+ * - Dispatching the outbox in the background, many documents per eXist-db request
+ * - Coalescing: only the latest pending write of a document is sent
+ * - Retries with exponential backoff; resource ids make repeated writes idempotent
+ * - Read-your-writes: the pending content of a document until it has been dispatched
+ * - Flushing one document synchronously before it is modified in eXist-db directly
+ */
+@Service
+public class ExistDbOutbox {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExistDbOutbox.class);
+    
+    @Autowired
+    private OutboxConfig config;
+    
+    @Autowired
+    private ExistDbOutboxRepository repository;
+    
+    @Autowired
+    private ExistDbService existDbService;
+    
+    @Autowired
+    private ExistDbHealthMonitor healthMonitor;
+    
+    @Autowired
+    private DocumentContentCache contentCache;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Serializes dispatch runs and flushes, so an older write can never overtake a newer one
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private ScheduledExecutorService dispatcher;
+    
+    @PostConstruct
+    public void init() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "exist-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getPollInterval().toMillis();
+        dispatcher.scheduleWithFixedDelay(this::dispatchSafely, interval, interval, TimeUnit.MILLISECONDS);
+        healthMonitor.addReconnectListener(this::wakeUp);
+        
+        Gauge.builder("exist.outbox.pending", repository, ExistDbOutboxRepository::count)
+            .description("eXist-db writes committed in PostgreSQL but not yet dispatched")
+            .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+    
+    /**
+     * Record that {@code content} must be stored in eXist-db under {@code existDbId}. Must be
+     * called inside the transaction that writes the document metadata; the dispatcher is
+     * woken up once that transaction has committed.
+     */
+    public void enqueueStore(String existDbId, String content) {
+        enqueue(new ExistDbOutboxEntry(existDbId, ExistDbOutboxEntry.Operation.STORE, content));
+    }
+    
+    /**
+     * Record that a document must be deleted from eXist-db; see enqueueStore.
+     */
+    public void enqueueDelete(String existDbId) {
+        enqueue(new ExistDbOutboxEntry(existDbId, ExistDbOutboxEntry.Operation.DELETE, null));
+    }
+    
+    private void enqueue(ExistDbOutboxEntry entry) {
+        repository.save(entry);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+    
+    /**
+     * Content of a document that is waiting in the outbox, if any. Readers use it so a
+     * saved document reads back as saved before it has reached eXist-db.
+     */
+    public Optional<String> pendingContent(String existDbId) {
+        return repository.findFirstByExistDbIdOrderByIdDesc(existDbId)
+            .filter(entry -> entry.getOperation() == ExistDbOutboxEntry.Operation.STORE)
+            .map(ExistDbOutboxEntry::getContent);
+    }
+    
+    /**
+     * Dispatch the pending writes of one document now, ignoring their backoff. Called
+     * before eXist-db is modified directly (streamed updates, node patches), which would
+     * otherwise be overwritten by an older pending write.
+     * 
+     * @throws ExistDbUnavailableException if the pending writes could not be dispatched
+     */
+    public void flush(String existDbId) {
+        List<ExistDbOutboxEntry> entries = repository.findByExistDbIdOrderByIdAsc(existDbId);
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, pending changes of document "
+                + existDbId + " cannot be written");
+        }
+        dispatchLock.lock();
+        try {
+            ExistDbOutboxEntry latest = entries.get(entries.size() - 1);
+            try {
+                write(latest);
+                completed(latest);
+            } catch (RuntimeException e) {
+                failed(latest, e);
+                throw new ExistDbUnavailableException("Pending changes of document " + existDbId
+                    + " could not be written to eXist-db: " + e.getMessage());
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+    
+    /**
+     * Run the dispatcher soon, e.g. after a commit or when eXist-db is back.
+     */
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            dispatcher.execute(() -> {
+                wakeUpPending.set(false);
+                dispatchSafely();
+            });
+        }
+    }
+    
+    private void dispatchSafely() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            log.warn("Outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Dispatch all due entries, one batch at a time. Every entry of a batch is either
+     * dispatched (and removed with the entries it supersedes) or rescheduled, so the loop
+     * ends when nothing is due any more.
+     */
+    void dispatch() {
+        dispatchLock.lock();
+        try {
+            while (healthMonitor.allowRequest()) {
+                List<ExistDbOutboxEntry> due = repository.findByNextAttemptAtLessThanEqualOrderByIdAsc(
+                    LocalDateTime.now(), PageRequest.of(0, config.getBatchSize()));
+                if (due.isEmpty()) {
+                    return;
+                }
+                
+                // Latest write per document; older ones are superseded
+                Map<String, ExistDbOutboxEntry> latest = new LinkedHashMap<>();
+                for (ExistDbOutboxEntry entry : due) {
+                    latest.remove(entry.getExistDbId());
+                    latest.put(entry.getExistDbId(), entry);
+                }
+                List<ExistDbOutboxEntry> stores = new ArrayList<>();
+                for (ExistDbOutboxEntry entry : latest.values()) {
+                    if (entry.getOperation() == ExistDbOutboxEntry.Operation.STORE) {
+                        stores.add(entry);
+                    } else {
+                        writeOne(entry);
+                    }
+                }
+                writeStores(stores);
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+    
+    /**
+     * Store a batch with one request; if that fails, fall back to one request per document
+     * so a single bad entry cannot hold up the others.
+     */
+    private void writeStores(List<ExistDbOutboxEntry> stores) {
+        if (stores.size() > 1) {
+            Map<String, String> contentsById = new LinkedHashMap<>();
+            for (ExistDbOutboxEntry entry : stores) {
+                contentsById.put(entry.getExistDbId(), entry.getContent());
+            }
+            try {
+                existDbService.storeDocuments(contentsById);
+                stores.forEach(this::completed);
+                return;
+            } catch (RestClientException | ExistDbUnavailableException e) {
+                log.debug("Outbox batch of {} failed, retrying one by one: {}", stores.size(), e.getMessage());
+            }
+        }
+        stores.forEach(this::writeOne);
+    }
+    
+    private void writeOne(ExistDbOutboxEntry entry) {
+        try {
+            write(entry);
+            completed(entry);
+        } catch (RestClientException | ExistDbUnavailableException e) {
+            failed(entry, e);
+        }
+    }
+    
+    private void write(ExistDbOutboxEntry entry) {
+        if (entry.getOperation() == ExistDbOutboxEntry.Operation.STORE) {
+            existDbService.putDocument(entry.getExistDbId(), entry.getContent());
+        } else {
+            existDbService.removeDocument(entry.getExistDbId());
+        }
+    }
+    
+    private void completed(ExistDbOutboxEntry entry) {
+        // Invalidate before the entry disappears, so no reader can fall back to stale cache
+        contentCache.invalidate(entry.getExistDbId());
+        repository.deleteUpTo(entry.getExistDbId(), entry.getId());
+    }
+    
+    private void failed(ExistDbOutboxEntry entry, RuntimeException e) {
+        int attempts = entry.getAttempts() + 1;
+        Duration backoff = config.getRetryBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(config.getMaxRetryBackoff()) > 0) {
+            backoff = config.getMaxRetryBackoff();
+        }
+        String error = String.valueOf(e.getMessage());
+        repository.reschedule(entry.getExistDbId(), entry.getId(), LocalDateTime.now().plus(backoff),
+            error.length() > 1000 ? error.substring(0, 1000) : error);
+        log.warn("Outbox: {} of {} failed (attempt {}), retrying in {}s: {}", entry.getOperation(),
+            entry.getExistDbId(), attempts, backoff.toSeconds(), error);
+    }
+}
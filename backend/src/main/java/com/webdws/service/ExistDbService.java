@@ -1,37 +1,73 @@
 package com.webdws.service;
 
 import com.webdws.config.ExistDbConfig;
+import com.webdws.dto.NodeOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * ExistDbService - eXist-db Integration Service
  * 
  * This service provides integration with eXist-db XML database and handles:
- * - XML document storage and retrieval from eXist-db
+ * - XML document storage and retrieval from eXist-db (buffered or streamed)
  * - REST API communication with eXist-db server
- * - Authentication and connection management
- * - Collection management and document operations
+ * - Authentication and connection management (pooled transport from ExistDbClientConfig)
+ * - Fail-fast behaviour based on the shared ExistDbHealthMonitor circuit state
+ * - Collection management (bootstrapped once, cached afterwards) and document operations
  * - Error handling and response processing
  */
 @Service
 public class ExistDbService {
     
+    private static final Logger log = LoggerFactory.getLogger(ExistDbService.class);
+    
     @Autowired
     private ExistDbConfig config;
     
+    @Autowired
+    @Qualifier("existDbRestTemplate")
     private RestTemplate restTemplate;
+    
+    @Autowired
+    private ExistDbHealthMonitor healthMonitor;
+    
     private HttpHeaders headers;
     
+    // Result of updateNodes when nothing was changed
+    private static final Pattern UPDATE_REJECTION = Pattern.compile("<(missing|invalid)>([^<]*)</\\1>");
+    
+    // Collections known to exist in eXist-db; reset when eXist-db reconnects
+    private final Set<String> knownCollections = ConcurrentHashMap.newKeySet();
+    
     @PostConstruct
     public void init() {
-        restTemplate = new RestTemplate();
+        healthMonitor.addReconnectListener(this::bootstrapCollections);
+        
         headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_XML);
         
@@ -44,50 +80,38 @@ public class ExistDbService {
         }
     }
     
-    public String storeDocument(String name, String content) {
+    /**
+     * Store a document under a given id, replacing any existing content. The id is chosen
+     * by the caller, so repeating the call (e.g. after a lost response) is harmless.
+     * Failures are thrown, never hidden.
+     */
+    public void putDocument(String documentId, String content) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot store document: " + documentId);
+        }
         try {
-            System.out.println("ExistDbService.storeDocument called for: " + name);
-            System.out.println("  eXist-db URL: " + config.getUrl());
-            System.out.println("  Collection: " + config.getCollection());
-            
-            // Check if eXist-db is available
-            if (!isExistDbAvailable()) {
-                System.out.println("eXist-db is not available, skipping document storage");
-                return "local-" + UUID.randomUUID().toString();
-            }
-            
-            // Ensure collection exists
-            createCollectionIfNotExists();
-            
-            String documentId = UUID.randomUUID().toString();
-            String url = config.getUrl() + "/exist/rest" + config.getCollection() + "/" + documentId;
-            
+            ensureCollection(config.getCollection());
             HttpEntity<String> request = new HttpEntity<>(content, headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, request, String.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return documentId;
-            } else {
-                throw new RuntimeException("Failed to store document: " + response.getStatusCode());
-            }   
-        } catch (Exception e) {
-            System.err.println("Failed to store document in eXist-db: " + e.getMessage());
-            // Return a local ID instead of failing completely
-            return "local-" + UUID.randomUUID().toString();
+            restTemplate.exchange(documentUrl(documentId), HttpMethod.PUT, request, String.class);
+            healthMonitor.recordSuccess();
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
         }
     }
     
     public String getDocument(String documentId) {
         try {
-            if (!isExistDbAvailable()) {
-                System.out.println("eXist-db is not available, cannot retrieve document: " + documentId);
+            if (!healthMonitor.allowRequest()) {
+                log.debug("eXist-db is not available, cannot retrieve document {}", documentId);
                 return null;
             }
             
-            String url = config.getUrl() + "/exist/rest" + config.getCollection() + "/" + documentId;
+            String url = documentUrl(documentId);
             
             HttpEntity<String> request = new HttpEntity<>(headers);
             ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
+            healthMonitor.recordSuccess();
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 return response.getBody();
@@ -97,128 +121,387 @@ public class ExistDbService {
                 throw new RuntimeException("Failed to get document: " + response.getStatusCode());
             }
         } catch (Exception e) {
-            System.err.println("Failed to get document from eXist-db: " + e.getMessage());
+            reportToHealthMonitor(e);
+            log.warn("Failed to get document {} from eXist-db: {}", documentId, e.getMessage());
             return null;
         }
     }
     
-    public void updateDocument(String documentId, String content) {
+    /**
+     * Delete a document; a document that is already gone counts as deleted. Unlike
+     * deleteDocument, failures are thrown.
+     */
+    public void removeDocument(String documentId) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot delete document: " + documentId);
+        }
         try {
-            if (!isExistDbAvailable()) {
-                System.out.println("eXist-db is not available, skipping document update: " + documentId);
-                return;
-            }
-            
-            String url = config.getUrl() + "/exist/rest" + config.getCollection() + "/" + documentId;
-            
-            HttpEntity<String> request = new HttpEntity<>(content, headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.PUT, request, String.class);
-            
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                throw new RuntimeException("Failed to update document: " + response.getStatusCode());
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to update document in eXist-db: " + e.getMessage());
+            restTemplate.exchange(documentUrl(documentId), HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
+            healthMonitor.recordSuccess();
+        } catch (HttpClientErrorException.NotFound e) {
+            healthMonitor.recordSuccess();
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
         }
     }
     
     public void deleteDocument(String documentId) {
         try {
-            if (!isExistDbAvailable()) {
-                System.out.println("eXist-db is not available, skipping document deletion: " + documentId);
+            if (!healthMonitor.allowRequest()) {
+                log.debug("eXist-db is not available, skipping deletion of document {}", documentId);
                 return;
             }
             
-            String url = config.getUrl() + "/exist/rest" + config.getCollection() + "/" + documentId;
+            String url = documentUrl(documentId);
             
             HttpEntity<String> request = new HttpEntity<>(headers);
             ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.DELETE, request, String.class);
+            healthMonitor.recordSuccess();
             
             if (!response.getStatusCode().is2xxSuccessful() && response.getStatusCode() != HttpStatus.NOT_FOUND) {
                 throw new RuntimeException("Failed to delete document: " + response.getStatusCode());
             }
         } catch (org.springframework.web.client.HttpClientErrorException e) {
+            healthMonitor.recordSuccess();
             // Handle specific HTTP errors
             if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
                 // Document not found in eXist-db - this is OK, just log it
-                System.out.println("Document " + documentId + " not found in eXist-db, continuing with deletion");
+                log.debug("Document {} not found in eXist-db, continuing with deletion", documentId);
                 return;
             }
-            System.err.println("Failed to delete document from eXist-db: " + e.getStatusCode());
+            log.warn("Failed to delete document {} from eXist-db: {}", documentId, e.getStatusCode());
         } catch (org.springframework.web.client.ResourceAccessException e) {
             // Handle connection issues
-            System.err.println("Failed to connect to eXist-db: " + e.getMessage());
+            healthMonitor.recordFailure(e);
+            log.warn("Failed to connect to eXist-db to delete document {}: {}", documentId, e.getMessage());
         } catch (Exception e) {
-            System.err.println("Failed to delete document from eXist-db: " + e.getMessage());
+            reportToHealthMonitor(e);
+            log.warn("Failed to delete document {} from eXist-db: {}", documentId, e.getMessage());
         }
     }
     
-    private boolean isExistDbAvailable() {
+    /**
+     * Store a new document whose content is produced by {@code body} while the request is
+     * being sent, so the content never has to be held in memory. Failures are thrown to the
+     * caller rather than queued for replication: a streamed body cannot be replayed later.
+     * 
+     * @param contentLength length of the body in bytes, or -1 to send it chunked
+     * @return the eXist-db id of the new document
+     */
+    public String storeDocumentStream(StreamingHttpOutputMessage.Body body, long contentLength) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot store document");
+        }
         try {
-            String url = config.getUrl() + "/exist/rest/db";
-            HttpEntity<String> request = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            System.out.println("eXist-db is not available: " + e.getMessage());
-            return false;
+            ensureCollection(config.getCollection());
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
+        }
+        
+        String documentId = UUID.randomUUID().toString();
+        putDocumentStream(documentId, body, contentLength);
+        return documentId;
+    }
+    
+    /**
+     * Replace the content of an existing document with a streamed body.
+     * 
+     * @param contentLength length of the body in bytes, or -1 to send it chunked
+     */
+    public void updateDocumentStream(String documentId, StreamingHttpOutputMessage.Body body, long contentLength) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot update document: " + documentId);
         }
+        putDocumentStream(documentId, body, contentLength);
     }
     
-    private void createCollectionIfNotExists() {
+    private void putDocumentStream(String documentId, StreamingHttpOutputMessage.Body body, long contentLength) {
         try {
-            String collectionPath = config.getCollection();
-            String url = config.getUrl() + "/exist/rest" + collectionPath;
-            
-            HttpEntity<String> request = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, request, String.class);
-            
-            if (response.getStatusCode() == HttpStatus.NOT_FOUND) {
-                // Collection doesn't exist, create it by creating a temporary document
-                System.out.println("Collection " + collectionPath + " not found, creating it...");
-                
-                // Create collection by putting a temporary document in it
-                // This will automatically create the collection path
-                String tempUrl = url + "/.temp";
-                HttpEntity<String> tempRequest = new HttpEntity<>("<temp/>", headers);
-                ResponseEntity<String> createResponse = restTemplate.exchange(tempUrl, HttpMethod.PUT, tempRequest, String.class);
-                
-                if (createResponse.getStatusCode().is2xxSuccessful()) {
-                    // Delete the temporary document
-                    restTemplate.exchange(tempUrl, HttpMethod.DELETE, request, String.class);
-                    System.out.println("Collection " + collectionPath + " created successfully");
+            restTemplate.execute(documentUrl(documentId), HttpMethod.PUT, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_XML);
+                copyAuthorization(request.getHeaders());
+                if (contentLength >= 0) {
+                    request.getHeaders().setContentLength(contentLength);
+                }
+                if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+                    streamingRequest.setBody(body);
                 } else {
-                    throw new RuntimeException("Failed to create collection: " + createResponse.getStatusCode() + " - " + createResponse.getBody());
+                    body.writeTo(request.getBody());
                 }
-            } else if (response.getStatusCode().is2xxSuccessful()) {
-                System.out.println("Collection " + collectionPath + " already exists");
+            }, null);
+            healthMonitor.recordSuccess();
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Store several documents with a single request: one XQuery that parses and stores
+     * each content string. Used for bulk loads, where a PUT per document would dominate.
+     * Throws if the batch fails; nothing is stored by a failed query.
+     * 
+     * @return the eXist-db ids of the new documents, in the order of {@code contents}
+     */
+    public List<String> storeDocumentBatch(List<String> contents) {
+        Map<String, String> contentsById = new LinkedHashMap<>();
+        for (String content : contents) {
+            contentsById.put(UUID.randomUUID().toString(), content);
+        }
+        storeDocuments(contentsById);
+        return new ArrayList<>(contentsById.keySet());
+    }
+    
+    /**
+     * Store several documents under given ids with a single request (see storeDocumentBatch).
+     * Existing documents with these ids are replaced, so a repeated call is harmless.
+     */
+    public void storeDocuments(Map<String, String> contentsById) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot store document batch");
+        }
+        
+        StringBuilder query = new StringBuilder(contentsById.values().stream().mapToInt(String::length).sum()
+            + contentsById.size() * 120);
+        query.append("let $collection := '").append(escapeXQueryString(config.getCollection())).append("'\n");
+        query.append("return (\n");
+        boolean first = true;
+        for (Map.Entry<String, String> document : contentsById.entrySet()) {
+            if (!first) {
+                query.append(",\n");
+            }
+            first = false;
+            query.append("  xmldb:store($collection, '").append(escapeXQueryString(document.getKey()))
+                .append("', parse-xml('").append(escapeXQueryString(document.getValue())).append("'))");
+        }
+        query.append("\n)");
+        
+        try {
+            ensureCollection(config.getCollection());
+            executeQuery(query.toString());
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Apply node-level edits to a stored document with XQuery Update, in a single request.
+     * Nodes are addressed by eXist-db node id; all of them are resolved before anything is
+     * changed, so a missing node leaves the document untouched. Elements may be replaced
+     * by a fragment, any node may get a new string value.
+     */
+    public void updateNodes(String documentId, List<NodeOperation> operations) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot update document: " + documentId);
+        }
+        
+        StringBuilder query = new StringBuilder();
+        query.append("let $doc := doc('").append(escapeXQueryString(config.getCollection() + "/" + documentId)).append("')\n");
+        for (int i = 0; i < operations.size(); i++) {
+            query.append("let $n").append(i).append(" := try { util:node-by-id($doc, '")
+                .append(escapeXQueryString(operations.get(i).getNodeId())).append("') } catch * { () }\n");
+        }
+        query.append("let $missing := (");
+        for (int i = 0; i < operations.size(); i++) {
+            query.append(i > 0 ? ", " : "").append("if (empty($n").append(i).append(")) then '")
+                .append(escapeXQueryString(operations.get(i).getNodeId())).append("' else ()");
+        }
+        query.append(")\n");
+        query.append("let $invalid := (");
+        for (int i = 0; i < operations.size(); i++) {
+            query.append(i > 0 ? ", " : "");
+            if (operations.get(i).getFragment() != null) {
+                query.append("if (exists($n").append(i).append(") and not($n").append(i).append(" instance of element())) then '")
+                    .append(escapeXQueryString(operations.get(i).getNodeId())).append("' else ()");
             } else {
-                throw new RuntimeException("Unexpected response when checking collection: " + response.getStatusCode() + " - " + response.getBody());
+                query.append("()");
             }
-        } catch (org.springframework.web.client.HttpClientErrorException e) {
-            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
-                // Collection doesn't exist, try to create it
-                System.out.println("Collection " + config.getCollection() + " not found, creating it...");
-                try {
-                    String tempUrl = config.getUrl() + "/exist/rest" + config.getCollection() + "/.temp";
-                    HttpEntity<String> tempRequest = new HttpEntity<>("<temp/>", headers);
-                    ResponseEntity<String> createResponse = restTemplate.exchange(tempUrl, HttpMethod.PUT, tempRequest, String.class);
-                    
-                    if (createResponse.getStatusCode().is2xxSuccessful()) {
-                        // Delete the temporary document
-                        restTemplate.exchange(tempUrl, HttpMethod.DELETE, new HttpEntity<>(headers), String.class);
-                        System.out.println("Collection " + config.getCollection() + " created successfully");
-                    } else {
-                        throw new RuntimeException("Failed to create collection: " + createResponse.getStatusCode() + " - " + createResponse.getBody());
-                    }
-                } catch (Exception createException) {
-                    throw new RuntimeException("Failed to create collection: " + createException.getMessage(), createException);
-                }
+        }
+        query.append(")\n");
+        query.append("return\n");
+        query.append("    if (exists($missing)) then <missing>{string-join($missing, ' ')}</missing>\n");
+        query.append("    else if (exists($invalid)) then <invalid>{string-join($invalid, ' ')}</invalid>\n");
+        query.append("    else (\n");
+        for (int i = 0; i < operations.size(); i++) {
+            NodeOperation operation = operations.get(i);
+            if (operation.getFragment() != null) {
+                query.append("        update replace $n").append(i).append(" with parse-xml('")
+                    .append(escapeXQueryString(operation.getFragment())).append("')/*,\n");
             } else {
-                throw new RuntimeException("Failed to check collection: " + e.getStatusCode() + " - " + e.getResponseBodyAsString(), e);
+                query.append("        update value $n").append(i).append(" with '")
+                    .append(escapeXQueryString(operation.getValue())).append("',\n");
+            }
+        }
+        query.append("        <ok/>\n");
+        query.append("    )");
+        
+        String result;
+        try {
+            result = executeQuery(query.toString());
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
+        }
+        Matcher matcher = UPDATE_REJECTION.matcher(result != null ? result : "");
+        if (matcher.find()) {
+            String nodeIds = matcher.group(2).trim().replace(" ", ", ");
+            if (matcher.group(1).equals("missing")) {
+                throw new RuntimeException("Node not found in document " + documentId + ": " + nodeIds);
             }
+            throw new IllegalArgumentException("Only element nodes can be replaced with a fragment: " + nodeIds);
+        }
+    }
+    
+    /**
+     * Stream a stored document straight from eXist-db without buffering it. The extractor
+     * receives the upstream response (status, headers and body stream); the connection is
+     * released when it returns. A Range header, if given, is forwarded to eXist-db.
+     */
+    public <T> T streamDocument(String documentId, String range, ResponseExtractor<T> extractor) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot stream document: " + documentId);
+        }
+        
+        try {
+            T result = restTemplate.execute(documentUrl(documentId), HttpMethod.GET, request -> {
+                request.getHeaders().setAccept(List.of(MediaType.APPLICATION_XML, MediaType.ALL));
+                copyAuthorization(request.getHeaders());
+                if (range != null) {
+                    request.getHeaders().set(HttpHeaders.RANGE, range);
+                }
+            }, extractor);
+            healthMonitor.recordSuccess();
+            return result;
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
+        }
+    }
+    
+    private String documentUrl(String documentId) {
+        return config.getUrl() + "/exist/rest" + config.getCollection() + "/" + documentId;
+    }
+    
+    private void copyAuthorization(HttpHeaders target) {
+        String authorization = headers.getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null) {
+            target.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+    }
+    
+    /**
+     * Feed the outcome of a failed call into the circuit breaker: transport errors and
+     * 5xx responses count as failures, 4xx responses prove the server is reachable.
+     */
+    private void reportToHealthMonitor(Exception e) {
+        if (e instanceof ResourceAccessException || e instanceof HttpServerErrorException) {
+            healthMonitor.recordFailure(e);
+        } else if (e instanceof HttpClientErrorException) {
+            healthMonitor.recordSuccess();
+        }
+    }
+    
+    /**
+     * Make sure a collection (an absolute path under /db) exists. Collections known to exist
+     * are remembered, so after the first call this is a set lookup without any HTTP traffic.
+     * Missing path segments are created with a single XQuery request.
+     */
+    public void ensureCollection(String collectionPath) {
+        if (knownCollections.contains(collectionPath)) {
+            return;
+        }
+        
+        String query = "let $path := '" + escapeXQueryString(collectionPath) + "'\n"
+            + "return fold-left(tail(tokenize($path, '/')[. != '']), '/db', function($parent, $name) {\n"
+            + "    let $child := $parent || '/' || $name\n"
+            + "    return if (xmldb:collection-available($child)) then $child\n"
+            + "           else (xmldb:create-collection($parent, $name), $child)[last()]\n"
+            + "})";
+        executeQuery(query);
+        knownCollections.add(collectionPath);
+        log.info("Collection {} is available", collectionPath);
+    }
+    
+    /**
+     * Ensure a sub-collection of the configured collection exists (e.g. per project)
+     * and return its absolute path.
+     */
+    public String ensureSubCollection(String name) {
+        String collectionPath = config.getCollection() + "/" + name;
+        ensureCollection(collectionPath);
+        return collectionPath;
+    }
+    
+    /**
+     * Set up the configured collection once at startup, and again whenever eXist-db comes
+     * back after an outage (it may have been restarted with an empty database).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapCollections() {
+        knownCollections.clear();
+        try {
+            if (!healthMonitor.allowRequest()) {
+                log.info("eXist-db is not available, collection bootstrap deferred until it reconnects");
+                return;
+            }
+            ensureCollection(config.getCollection());
         } catch (Exception e) {
-            throw new RuntimeException("Failed to ensure collection exists: " + e.getMessage(), e);
+            reportToHealthMonitor(e);
+            log.warn("Failed to bootstrap eXist-db collection {}: {}", config.getCollection(), e.getMessage());
         }
     }
+    
+    /**
+     * Run an XQuery through the eXist-db REST interface and return the serialized result.
+     */
+    private String executeQuery(String xquery) {
+        String url = config.getUrl() + "/exist/rest/db";
+        HttpEntity<String> request = new HttpEntity<>(queryBody(xquery), headers);
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, request, String.class);
+        healthMonitor.recordSuccess();
+        return response.getBody();
+    }
+    
+    /**
+     * Run a read-only XQuery and stream its serialized (unindented) result to the extractor,
+     * without buffering it. The connection is released when the extractor returns.
+     */
+    public <T> T streamQuery(String xquery, ResponseExtractor<T> extractor) {
+        if (!healthMonitor.allowRequest()) {
+            throw new ExistDbUnavailableException("eXist-db is not available, cannot run query");
+        }
+        
+        String url = config.getUrl() + "/exist/rest/db";
+        String body = queryBody(xquery);
+        try {
+            T result = restTemplate.execute(url, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_XML);
+                request.getHeaders().setAccept(List.of(MediaType.APPLICATION_XML, MediaType.ALL));
+                copyAuthorization(request.getHeaders());
+                request.getBody().write(body.getBytes(StandardCharsets.UTF_8));
+            }, extractor);
+            healthMonitor.recordSuccess();
+            return result;
+        } catch (RestClientException e) {
+            reportToHealthMonitor(e);
+            throw e;
+        }
+    }
+    
+    private static String queryBody(String xquery) {
+        return "<query xmlns=\"http://exist.sourceforge.net/NS/exist\" wrap=\"no\">"
+            + "<text><![CDATA[" + xquery.replace("]]>", "]]]]><![CDATA[>") + "]]></text>"
+            + "<properties><property name=\"indent\" value=\"no\"/></properties>"
+            + "</query>";
+    }
+    
+    /**
+     * Escape a value for use inside a single-quoted XQuery string literal.
+     */
+    static String escapeXQueryString(String value) {
+        return value.replace("&", "&amp;").replace("'", "''");
+    }
 }
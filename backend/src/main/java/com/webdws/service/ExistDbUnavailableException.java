@@ -0,0 +1,20 @@
+package com.webdws.service;
+
+/**
+ * ExistDbUnavailableException - Thrown when eXist-db cannot be reached
+ * 
+ * Raised instead of attempting a request while the ExistDbHealthMonitor circuit
+ * is open, so callers can fail fast and answer with 503 Service Unavailable.
+ */
+public class ExistDbUnavailableException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public ExistDbUnavailableException(String message) {
+        super(message);
+    }
+    
+    public ExistDbUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,264 @@
+package com.webdws.service;
+
+import com.webdws.config.ExportConfig;
+import com.webdws.repository.XmlDocumentRef;
+import com.webdws.repository.XmlDocumentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ExportService - Streaming Bulk Export of the Document Collection
+ * 
+ * This service writes a whole collection (or the part changed since a given time)
+ * to an output stream and handles:
+ * - Walking XmlDocumentRepository with a keyset cursor instead of offsets
+ * - Fetching content from eXist-db with bounded concurrency, in document order, or from the
+ *   outbox while a saved document has not reached eXist-db yet
+ * - Writing a ZIP archive (one file per document) or one XML file wrapping all entries
+ * - Keeping memory flat: at most a small window of documents is held at a time
+ */
+@Service
+public class ExportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+    
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+    
+    public enum Format { ZIP, XML }
+    
+    @Autowired
+    private ExportConfig config;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private ExistDbService existDbService;
+    
+    @Autowired
+    private ExistDbOutbox outbox;
+    
+    private ExecutorService fetchPool;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        fetchPool = Executors.newFixedThreadPool(config.getFetchConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "export-fetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        fetchPool.shutdownNow();
+    }
+    
+    /**
+     * Write all documents (or those updated after {@code changedSince}, if not null)
+     * to {@code out} in the given format.
+     * 
+     * @return number of documents written
+     */
+    public long export(Format format, LocalDateTime changedSince, OutputStream out) throws IOException {
+        ExportWriter writer = format == Format.ZIP ? new ZipExportWriter(out) : new XmlExportWriter(out);
+        Deque<PendingFetch> window = new ArrayDeque<>();
+        int maxInFlight = config.getFetchConcurrency() * 2;
+        long written = 0;
+        long afterId = 0;
+        
+        while (true) {
+            List<XmlDocumentRef> page = nextPage(afterId, changedSince);
+            if (page.isEmpty()) {
+                break;
+            }
+            for (XmlDocumentRef ref : page) {
+                window.addLast(new PendingFetch(ref, fetchPool.submit(() -> fetch(ref))));
+                if (window.size() >= maxInFlight) {
+                    written += writeNext(window, writer);
+                }
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        while (!window.isEmpty()) {
+            written += writeNext(window, writer);
+        }
+        
+        writer.finish();
+        return written;
+    }
+    
+    private List<XmlDocumentRef> nextPage(long afterId, LocalDateTime changedSince) {
+        Pageable limit = PageRequest.of(0, config.getPageSize());
+        return changedSince == null
+            ? repository.findByIdGreaterThanOrderByIdAsc(afterId, limit)
+            : repository.findByIdGreaterThanAndUpdatedAtAfterOrderByIdAsc(afterId, changedSince, limit);
+    }
+    
+    private byte[] fetch(XmlDocumentRef ref) {
+        // Export what was saved, even if it has not been dispatched to eXist-db yet
+        Optional<String> pending = outbox.pendingContent(ref.getExistDbId());
+        if (pending.isPresent()) {
+            return pending.get().getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return existDbService.streamDocument(ref.getExistDbId(), null, response -> response.getBody().readAllBytes());
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
+    }
+    
+    private int writeNext(Deque<PendingFetch> window, ExportWriter writer) throws IOException {
+        PendingFetch next = window.removeFirst();
+        byte[] content;
+        try {
+            content = next.content.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            window.forEach(pending -> pending.content.cancel(true));
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            window.forEach(pending -> pending.content.cancel(true));
+            throw new IOException("Failed to fetch document " + next.ref.getId() + ": " + e.getCause().getMessage(), e.getCause());
+        }
+        if (content == null) {
+            log.warn("Export: document {} ({}) has no content in eXist-db, skipped", next.ref.getId(), next.ref.getExistDbId());
+            return 0;
+        }
+        writer.write(next.ref, content);
+        return 1;
+    }
+    
+    /**
+     * Skip a byte order mark and the XML declaration, so the content can be embedded.
+     */
+    static int contentStart(byte[] content) {
+        int start = 0;
+        if (content.length >= 3 && content[0] == UTF8_BOM[0] && content[1] == UTF8_BOM[1] && content[2] == UTF8_BOM[2]) {
+            start = 3;
+        }
+        while (start < content.length && Character.isWhitespace(content[start])) {
+            start++;
+        }
+        if (startsWith(content, start, "<?xml")) {
+            for (int i = start + 5; i < content.length - 1; i++) {
+                if (content[i] == '?' && content[i + 1] == '>') {
+                    return i + 2;
+                }
+            }
+        }
+        return start;
+    }
+    
+    private static boolean startsWith(byte[] content, int offset, String prefix) {
+        if (content.length - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (content[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static class PendingFetch {
+        final XmlDocumentRef ref;
+        final Future<byte[]> content;
+        
+        PendingFetch(XmlDocumentRef ref, Future<byte[]> content) {
+            this.ref = ref;
+            this.content = content;
+        }
+    }
+    
+    private interface ExportWriter {
+        void write(XmlDocumentRef ref, byte[] content) throws IOException;
+        
+        void finish() throws IOException;
+    }
+    
+    /**
+     * One file per document, stored as {@code <id>/<name>.xml} so that paths are unique
+     * and a re-import (which names entries after the file) keeps the document names.
+     */
+    private static class ZipExportWriter implements ExportWriter {
+        private final ZipOutputStream zip;
+        
+        ZipExportWriter(OutputStream out) {
+            zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public void write(XmlDocumentRef ref, byte[] content) throws IOException {
+            String fileName = ref.getName().replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+            ZipEntry entry = new ZipEntry(ref.getId() + "/" + fileName + ".xml");
+            if (ref.getUpdatedAt() != null) {
+                entry.setTimeLocal(ref.getUpdatedAt());
+            }
+            zip.putNextEntry(entry);
+            zip.write(content);
+            zip.closeEntry();
+        }
+        
+        @Override
+        public void finish() throws IOException {
+            zip.finish();
+            zip.flush();
+        }
+    }
+    
+    /**
+     * A single XML document: an {@code <export>} root containing every entry's root element.
+     */
+    private static class XmlExportWriter implements ExportWriter {
+        private final OutputStream out;
+        
+        XmlExportWriter(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<export exported=\""
+                + LocalDateTime.now().withNano(0) + "\">\n").getBytes(StandardCharsets.UTF_8));
+        }
+        
+        @Override
+        public void write(XmlDocumentRef ref, byte[] content) throws IOException {
+            int start = contentStart(content);
+            int end = content.length;
+            while (end > start && Character.isWhitespace(content[end - 1])) {
+                end--;
+            }
+            out.write(content, start, end - start);
+            out.write('\n');
+        }
+        
+        @Override
+        public void finish() throws IOException {
+            out.write("</export>\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package com.webdws.service;
+
+import com.webdws.config.ImportConfig;
+import com.webdws.dto.ImportStatusDto;
+import com.webdws.model.XmlDocument;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.xml.MalformedXmlException;
+import com.webdws.xml.SchemaValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.xml.sax.Locator;
+import org.xml.sax.ext.Locator2;
+import org.xml.sax.helpers.DefaultHandler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * ImportService - Bulk Import of Dictionary Entries
+ * 
+ * This service loads large sets of entries in one go and handles:
+ * - Spooling the upload (ZIP of entries, or one XML file with an entry per root child) to disk
+ * - Running imports as background jobs with progress and per-entry error reporting
+ * - Parallel well-formedness validation on a bounded thread pool
+ * - Batched writes to eXist-db (one request per batch) and JDBC-batched metadata inserts
+ */
+@Service
+public class ImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+    
+    public enum Format { ZIP, XML }
+    
+    @Autowired
+    private ImportConfig config;
+    
+    @Autowired
+    private SavePipeline savePipeline;
+    
+    @Autowired
+    private ExistDbService existDbService;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private NameSearchIndex nameSearchIndex;
+    
+    @Autowired
+    private DocumentContentStore contentStore;
+    
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService jobExecutor;
+    private ExecutorService validationPool;
+    
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newFixedThreadPool(config.getMaxConcurrentJobs(), namedThreads("import-job-"));
+        validationPool = Executors.newFixedThreadPool(config.getValidationThreads(), namedThreads("import-validate-"));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        validationPool.shutdownNow();
+    }
+    
+    /**
+     * Spool an upload to a temporary file and start importing it in the background.
+     */
+    public ImportStatusDto startImport(InputStream body, Format format) throws IOException {
+        Path spool = Files.createTempFile("webdws-import-", format == Format.ZIP ? ".zip" : ".xml");
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            body.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), config.getMaxReportedErrors());
+        jobs.put(job.id, job);
+        jobExecutor.submit(() -> runImport(job, spool, format));
+        return job.toDto();
+    }
+    
+    /**
+     * Current state of an import job, or null if there is no such job (any more).
+     */
+    public ImportStatusDto getStatus(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        return job != null ? job.toDto() : null;
+    }
+    
+    /**
+     * Forget finished jobs after the configured retention time.
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void removeExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(config.getJobRetention());
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+    
+    private void runImport(ImportJob job, Path spool, Format format) {
+        try (EntryReader reader = format == Format.ZIP ? new ZipEntryReader(spool) : new XmlEntryReader(spool, config.getMaxEntrySize())) {
+            List<ImportEntry> batch = new ArrayList<>(config.getBatchSize());
+            ImportEntry entry;
+            while ((entry = reader.next()) != null) {
+                batch.add(entry);
+                if (batch.size() >= config.getBatchSize()) {
+                    processBatch(job, batch);
+                    batch = new ArrayList<>(config.getBatchSize());
+                }
+            }
+            if (!batch.isEmpty()) {
+                processBatch(job, batch);
+            }
+            job.finish("COMPLETED", null);
+            log.info("Import {} completed: {} imported, {} failed", job.id, job.imported.get(), job.failed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish("FAILED", "Import interrupted");
+        } catch (Exception e) {
+            log.warn("Import {} failed: {}", job.id, e.getMessage());
+            job.finish("FAILED", e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete import spool file {}", spool);
+            }
+        }
+    }
+    
+    private void processBatch(ImportJob job, List<ImportEntry> batch) throws InterruptedException {
+        // Validate in parallel
+        List<Callable<String>> tasks = new ArrayList<>(batch.size());
+        for (ImportEntry entry : batch) {
+            tasks.add(() -> validate(entry));
+        }
+        List<Future<String>> results = validationPool.invokeAll(tasks);
+        
+        List<ImportEntry> valid = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String error;
+            try {
+                error = results.get(i).get();
+            } catch (ExecutionException e) {
+                error = String.valueOf(e.getCause().getMessage());
+            }
+            if (error == null) {
+                valid.add(batch.get(i));
+            } else {
+                job.entryFailed(batch.get(i).name, error);
+            }
+        }
+        job.processed.addAndGet(batch.size() - valid.size());
+        if (valid.isEmpty()) {
+            return;
+        }
+        
+        // Write the batch to eXist-db; fall back to one document per request to isolate failures
+        List<String> existDbIds = storeInExistDb(job, valid);
+        
+        // Insert metadata rows with JDBC batching
+        LocalDateTime now = LocalDateTime.now();
+        List<XmlDocument> documents = new ArrayList<>(valid.size());
+        List<String> contents = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            if (existDbIds.get(i) != null) {
+                XmlDocument document = new XmlDocument();
+                document.setName(valid.get(i).name);
+                valid.get(i).pass.apply(document);
+                document.setContentHash(DocumentContentStore.hash(valid.get(i).text));
+                document.setExistDbId(existDbIds.get(i));
+                document.setCreatedAt(now);
+                document.setUpdatedAt(now);
+                documents.add(document);
+                contents.add(valid.get(i).text);
+            }
+        }
+        try {
+            contentStore.recordAll(documents, contents);
+            repository.batchInsert(documents);
+            job.imported.addAndGet(documents.size());
+            // Batched inserts return no ids; the index picks the new rows up by id
+            nameSearchIndex.catchUp();
+        } catch (RuntimeException e) {
+            for (XmlDocument document : documents) {
+                existDbService.deleteDocument(document.getExistDbId());
+                contentStore.delete(document.getExistDbId());
+                job.entryFailed(document.getName(), "Failed to store metadata: " + e.getMessage());
+            }
+        }
+        job.processed.addAndGet(valid.size());
+    }
+    
+    private List<String> storeInExistDb(ImportJob job, List<ImportEntry> entries) {
+        List<String> contents = new ArrayList<>(entries.size());
+        for (ImportEntry entry : entries) {
+            contents.add(entry.text);
+        }
+        try {
+            return existDbService.storeDocumentBatch(contents);
+        } catch (ExistDbUnavailableException e) {
+            throw e;
+        } catch (RestClientException e) {
+            log.debug("Batch store failed, retrying entries one by one: {}", e.getMessage());
+        }
+        
+        List<String> existDbIds = new ArrayList<>(entries.size());
+        for (ImportEntry entry : entries) {
+            try {
+                existDbIds.add(existDbService.storeDocumentBatch(List.of(entry.text)).get(0));
+            } catch (ExistDbUnavailableException e) {
+                throw e;
+            } catch (RestClientException e) {
+                existDbIds.add(null);
+                job.entryFailed(entry.name, "Failed to store in eXist-db: " + e.getMessage());
+            }
+        }
+        return existDbIds;
+    }
+    
+    /**
+     * Check an entry for well-formedness (and against the configured schema), run the save
+     * subscribers over it and decode it using the encoding the parser detected, all in one
+     * parse. Returns an error message, or null if the entry is fine.
+     */
+    private String validate(ImportEntry entry) throws IOException {
+        if (entry.error != null) {
+            return entry.error;
+        }
+        EncodingDetector detector = new EncodingDetector();
+        try {
+            entry.pass = savePipeline.parse(new ByteArrayInputStream(entry.bytes), true, detector);
+        } catch (MalformedXmlException e) {
+            return "Invalid XML: " + e.getMessage();
+        } catch (SchemaValidationException e) {
+            return e.getMessage();
+        }
+        entry.text = new String(entry.bytes, detector.charset());
+        entry.bytes = null;
+        return null;
+    }
+    
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * SAX handler that remembers the document encoding reported by the parser.
+     */
+    private static class EncodingDetector extends DefaultHandler {
+        private Locator locator;
+        private String encoding;
+        
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+        
+        @Override
+        public void startDocument() {
+            if (locator instanceof Locator2 locator2) {
+                encoding = locator2.getEncoding();
+            }
+        }
+        
+        Charset charset() {
+            try {
+                return encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            } catch (IllegalArgumentException e) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+    }
+    
+    /**
+     * One entry read from an upload: raw bytes before validation, decoded text after.
+     */
+    private static class ImportEntry {
+        final String name;
+        byte[] bytes;
+        String text;
+        SavePipeline.Pass pass;
+        final String error;
+        
+        ImportEntry(String name, byte[] bytes, String error) {
+            this.name = name;
+            this.bytes = bytes;
+            this.error = error;
+        }
+        
+        static ImportEntry oversized(String name, long maxEntrySize) {
+            return new ImportEntry(name, null, "Entry exceeds maximum size of " + maxEntrySize + " bytes");
+        }
+    }
+    
+    private interface EntryReader extends Closeable {
+        /**
+         * Next entry of the upload, or null at the end.
+         */
+        ImportEntry next() throws IOException, XMLStreamException;
+    }
+    
+    /**
+     * Reads every file in a ZIP archive as one entry, named after the file.
+     */
+    private class ZipEntryReader implements EntryReader {
+        private final ZipInputStream zip;
+        
+        ZipEntryReader(Path path) throws IOException {
+            zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+        
+        @Override
+        public ImportEntry next() throws IOException {
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                String path = zipEntry.getName();
+                String fileName = path.substring(path.lastIndexOf('/') + 1);
+                if (zipEntry.isDirectory() || fileName.isEmpty() || fileName.startsWith(".") || path.startsWith("__MACOSX/")) {
+                    continue;
+                }
+                String name = fileName.endsWith(".xml") ? fileName.substring(0, fileName.length() - 4) : fileName;
+                
+                byte[] bytes = zip.readNBytes((int) Math.min(config.getMaxEntrySize() + 1, Integer.MAX_VALUE - 8));
+                if (bytes.length > config.getMaxEntrySize()) {
+                    return ImportEntry.oversized(name, config.getMaxEntrySize());
+                }
+                return new ImportEntry(name, bytes, null);
+            }
+            return null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+    
+    /**
+     * Reads an XML file whose root element wraps the entries: every child element of
+     * the root becomes one document. Entries are named after their xml:id, id or name
+     * attribute, or else after their position. Entries over the size limit are skipped
+     * without being buffered whole.
+     */
+    private static class XmlEntryReader implements EntryReader {
+        private static final QName XML_ID = new QName(XMLConstants.XML_NS_URI, "id");
+        
+        private final long maxEntrySize;
+        private final InputStream in;
+        private final XMLEventReader reader;
+        private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+        private final XMLEventFactory eventFactory = XMLEventFactory.newFactory();
+        // Namespaces declared on the wrapping root element, re-declared on every entry
+        private final Map<String, Namespace> rootNamespaces = new LinkedHashMap<>();
+        private int index;
+        
+        XmlEntryReader(Path path, long maxEntrySize) throws IOException, XMLStreamException {
+            this.maxEntrySize = maxEntrySize;
+            XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+            inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            
+            in = new BufferedInputStream(Files.newInputStream(path));
+            reader = inputFactory.createXMLEventReader(in);
+            // Move past the wrapping root element
+            while (reader.hasNext() && !reader.peek().isStartElement()) {
+                reader.nextEvent();
+            }
+            if (reader.hasNext()) {
+                Iterator<Namespace> namespaces = reader.nextEvent().asStartElement().getNamespaces();
+                while (namespaces.hasNext()) {
+                    Namespace namespace = namespaces.next();
+                    rootNamespaces.put(namespace.getPrefix(), namespace);
+                }
+            }
+        }
+        
+        @Override
+        public ImportEntry next() throws XMLStreamException {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isEndElement()) {
+                    // End of the wrapping root element
+                    return null;
+                }
+                if (!event.isStartElement()) {
+                    continue;
+                }
+                
+                StartElement start = event.asStartElement();
+                String name = entryName(start, ++index);
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                XMLEventWriter writer = outputFactory.createXMLEventWriter(buffer, StandardCharsets.UTF_8.name());
+                writer.add(withRootNamespaces(start));
+                boolean oversized = false;
+                int depth = 1;
+                while (depth > 0) {
+                    XMLEvent child = reader.nextEvent();
+                    if (child.isStartElement()) {
+                        depth++;
+                    } else if (child.isEndElement()) {
+                        depth--;
+                    }
+                    // The writer buffers a little, so this may stop slightly past the limit
+                    if (!oversized) {
+                        writer.add(child);
+                        oversized = buffer.size() > maxEntrySize;
+                    }
+                }
+                writer.close();
+                if (oversized || buffer.size() > maxEntrySize) {
+                    return ImportEntry.oversized(name, maxEntrySize);
+                }
+                return new ImportEntry(name, buffer.toByteArray(), null);
+            }
+            return null;
+        }
+        
+        /**
+         * Copy of an entry's start element that also declares the namespaces inherited
+         * from the wrapping root, so the entry is a complete document on its own.
+         */
+        private StartElement withRootNamespaces(StartElement start) {
+            if (rootNamespaces.isEmpty()) {
+                return start;
+            }
+            Map<String, Namespace> namespaces = new LinkedHashMap<>(rootNamespaces);
+            Iterator<Namespace> own = start.getNamespaces();
+            while (own.hasNext()) {
+                Namespace namespace = own.next();
+                namespaces.put(namespace.getPrefix(), namespace);
+            }
+            return eventFactory.createStartElement(start.getName(), start.getAttributes(), namespaces.values().iterator());
+        }
+        
+        private static String entryName(StartElement start, int index) {
+            for (QName attributeName : new QName[] { XML_ID, new QName("id"), new QName("name") }) {
+                Attribute attribute = start.getAttributeByName(attributeName);
+                if (attribute != null && !attribute.getValue().isBlank()) {
+                    return attribute.getValue();
+                }
+            }
+            return start.getName().getLocalPart() + "-" + index;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Ignore, the underlying stream is closed below
+            }
+            in.close();
+        }
+    }
+    
+    /**
+     * Mutable, thread-safe state of a running import.
+     */
+    private static class ImportJob {
+        final String id;
+        final int maxErrors;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong imported = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final List<ImportStatusDto.EntryError> errors = new ArrayList<>();
+        volatile String status = "RUNNING";
+        volatile String error;
+        volatile LocalDateTime finishedAt;
+        
+        ImportJob(String id, int maxErrors) {
+            this.id = id;
+            this.maxErrors = maxErrors;
+        }
+        
+        void entryFailed(String entry, String message) {
+            failed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ImportStatusDto.EntryError(entry, message));
+                }
+            }
+        }
+        
+        void finish(String status, String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+        
+        ImportStatusDto toDto() {
+            ImportStatusDto dto = new ImportStatusDto();
+            dto.setJobId(id);
+            dto.setStatus(status);
+            dto.setProcessed(processed.get());
+            dto.setImported(imported.get());
+            dto.setFailed(failed.get());
+            dto.setError(error);
+            dto.setStartedAt(startedAt);
+            dto.setFinishedAt(finishedAt);
+            LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+            long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+            dto.setEntriesPerSecond(Math.round(processed.get() * 10000.0 / millis) / 10.0);
+            synchronized (errors) {
+                dto.setErrors(new ArrayList<>(errors));
+            }
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.webdws.service;
+
+import com.webdws.repository.DocumentSortKey;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.repository.XmlDocumentSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * NameSearchIndex - In-memory Prefix and Infix Index of Document Names and Titles
+ * 
+ * This component backs typeahead search over names and entry titles and provides:
+ * - Prefix matches from a sorted map of normalized texts
+ * - Infix matches through a trigram index, verified against the candidate texts
+ * - Case- and accent-insensitive matching (NFD, diacritics removed, lower case)
+ * - Incremental maintenance on save/rename/delete, and catch-up of rows inserted in bulk
+ * 
+ * Each indexed name or title occupies a slot. Slots are only appended, so trigram posting
+ * lists stay sorted without re-sorting; a changed or deleted text leaves a dead slot, and
+ * the index is compacted once a quarter of the slots are dead.
+ */
+@Component
+public class NameSearchIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(NameSearchIndex.class);
+    
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private TaskScheduler taskScheduler;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private Entry[] slotEntries = new Entry[INITIAL_CAPACITY];
+    // Normalized texts; null marks a dead slot
+    private String[] slotKeys = new String[INITIAL_CAPACITY];
+    private int slotCount;
+    private int deadSlots;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    // normalized text + '\0' + slot -> slot, for prefix scans in text order
+    private final NavigableMap<String, Integer> prefixIndex = new TreeMap<>();
+    
+    // Highest document id read from the database by catchUp()
+    private long loadedUpTo;
+    
+    public record Hit(long id, String name, String title) {}
+    
+    private static final class Entry {
+        final long id;
+        String name;
+        String title;
+        int nameSlot = -1;
+        int titleSlot = -1;
+        
+        Entry(long id) {
+            this.id = id;
+        }
+    }
+    
+    /**
+     * Load all names in the background once the application is up; searches return
+     * partial results until the load has finished.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        taskScheduler.schedule(this::catchUp, Instant.now());
+    }
+    
+    /**
+     * Index documents inserted without going through {@link #put} (e.g. bulk imports),
+     * by reading rows with an id above the highest one read so far.
+     */
+    public synchronized void catchUp() {
+        long start = System.nanoTime();
+        int loaded = 0;
+        List<XmlDocumentSummary> page;
+        do {
+            page = repository.findSummariesAfter(DocumentSortKey.ID, false, null, loadedUpTo, LOAD_PAGE_SIZE);
+            for (XmlDocumentSummary row : page) {
+                put(row.getId(), row.getName(), row.getTitle());
+            }
+            if (!page.isEmpty()) {
+                loadedUpTo = page.get(page.size() - 1).getId();
+                loaded += page.size();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        if (loaded > 0) {
+            log.info("Name index: {} document(s) indexed in {} ms", loaded, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    
+    /**
+     * Add a document, or update its name and title.
+     * 
+     * @param title entry title, null or empty if it has none
+     */
+    public void put(long id, String name, String title) {
+        String nameKey = normalize(name);
+        String titleKey = normalize(title);
+        if (titleKey.equals(nameKey)) {
+            // The title would only find what the name already finds
+            titleKey = "";
+        }
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.computeIfAbsent(id, Entry::new);
+            entry.name = name;
+            entry.title = title != null && !title.isEmpty() ? title : null;
+            entry.nameSlot = replaceSlot(entry, entry.nameSlot, nameKey);
+            entry.titleSlot = replaceSlot(entry, entry.titleSlot, titleKey);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                if (entry.nameSlot >= 0) {
+                    kill(entry.nameSlot);
+                }
+                if (entry.titleSlot >= 0) {
+                    kill(entry.titleSlot);
+                }
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Best matches for a typeahead query: documents whose name or title starts with the
+     * query first (in text order), then those containing it, earliest and shortest match
+     * first. Infix matching needs at least three characters.
+     */
+    public List<Hit> search(String query, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Hit> hits = new LinkedHashMap<>();
+            for (int slot : prefixIndex.subMap(key, true, key + Character.MAX_VALUE, true).values()) {
+                addHit(slotEntries[slot], hits);
+                if (hits.size() == limit) {
+                    return new ArrayList<>(hits.values());
+                }
+            }
+            if (key.length() >= 3) {
+                addInfixHits(key, limit - hits.size(), hits);
+            }
+            return new ArrayList<>(hits.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static void addHit(Entry entry, Map<Long, Hit> hits) {
+        hits.putIfAbsent(entry.id, new Hit(entry.id, entry.name, entry.title));
+    }
+    
+    private void addInfixHits(String key, int wanted, Map<Long, Hit> hits) {
+        // Candidates come from the rarest trigram of the query; each is verified
+        IntList candidates = null;
+        for (long trigram : trigrams(key)) {
+            IntList list = postings.get(trigram);
+            if (list == null) {
+                return;
+            }
+            if (candidates == null || list.size < candidates.size) {
+                candidates = list;
+            }
+        }
+        if (candidates == null) {
+            return;
+        }
+        
+        Comparator<int[]> rank = Comparator.<int[]>comparingInt(match -> match[1])
+            .thenComparingInt(match -> slotKeys[match[0]].length())
+            .thenComparing(match -> slotKeys[match[0]]);
+        // Worst match on top, so the queue keeps the best {@code wanted} matches
+        PriorityQueue<int[]> best = new PriorityQueue<>(wanted + 1, rank.reversed());
+        for (int i = 0; i < candidates.size; i++) {
+            int slot = candidates.values[i];
+            String candidate = slotKeys[slot];
+            if (candidate == null || hits.containsKey(slotEntries[slot].id)) {
+                continue;
+            }
+            int position = candidate.indexOf(key);
+            // Position 0 is a prefix match, already returned
+            if (position > 0) {
+                offer(best, new int[] {slot, position}, wanted, rank);
+            }
+        }
+        int[][] ordered = best.toArray(new int[0][]);
+        Arrays.sort(ordered, rank);
+        for (int[] match : ordered) {
+            addHit(slotEntries[match[0]], hits);
+        }
+    }
+    
+    /**
+     * Add a match to the queue of the best {@code wanted} ones, keeping only the better
+     * match of a document whose name and title both match.
+     */
+    private void offer(PriorityQueue<int[]> best, int[] match, int wanted, Comparator<int[]> rank) {
+        if (best.size() == wanted && rank.compare(match, best.peek()) >= 0) {
+            return;
+        }
+        Entry entry = slotEntries[match[0]];
+        for (int[] queued : best) {
+            if (slotEntries[queued[0]] == entry) {
+                if (rank.compare(match, queued) >= 0) {
+                    return;
+                }
+                best.remove(queued);
+                break;
+            }
+        }
+        best.add(match);
+        if (best.size() > wanted) {
+            best.poll();
+        }
+    }
+    
+    private int replaceSlot(Entry entry, int slot, String key) {
+        if (slot >= 0) {
+            if (key.equals(slotKeys[slot])) {
+                return slot;
+            }
+            kill(slot);
+        }
+        return key.isEmpty() ? -1 : addSlot(entry, key);
+    }
+    
+    private int addSlot(Entry entry, String key) {
+        if (slotCount == slotEntries.length) {
+            int capacity = slotEntries.length * 2;
+            slotEntries = Arrays.copyOf(slotEntries, capacity);
+            slotKeys = Arrays.copyOf(slotKeys, capacity);
+        }
+        int slot = slotCount++;
+        slotEntries[slot] = entry;
+        slotKeys[slot] = key;
+        prefixIndex.put(key + '\0' + slot, slot);
+        for (long trigram : trigrams(key)) {
+            postings.computeIfAbsent(trigram, t -> new IntList()).add(slot);
+        }
+        return slot;
+    }
+    
+    private void kill(int slot) {
+        prefixIndex.remove(slotKeys[slot] + '\0' + slot);
+        slotKeys[slot] = null;
+        slotEntries[slot] = null;
+        deadSlots++;
+    }
+    
+    /**
+     * Rebuild the slot arrays and postings without dead slots.
+     */
+    private void compactIfNeeded() {
+        if (slotCount < INITIAL_CAPACITY || deadSlots * 4 < slotCount) {
+            return;
+        }
+        Entry[] oldEntries = slotEntries;
+        String[] oldKeys = slotKeys;
+        int count = slotCount;
+        
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, count - deadSlots)) * 2);
+        slotEntries = new Entry[capacity];
+        slotKeys = new String[capacity];
+        slotCount = 0;
+        deadSlots = 0;
+        postings.clear();
+        prefixIndex.clear();
+        for (int slot = 0; slot < count; slot++) {
+            if (oldKeys[slot] != null) {
+                Entry entry = oldEntries[slot];
+                int newSlot = addSlot(entry, oldKeys[slot]);
+                if (entry.nameSlot == slot) {
+                    entry.nameSlot = newSlot;
+                } else {
+                    entry.titleSlot = newSlot;
+                }
+            }
+        }
+    }
+    
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Distinct trigrams of a normalized string, each packed into a long.
+     */
+    private static Set<Long> trigrams(String key) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            result.add(((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2));
+        }
+        return result;
+    }
+    
+    /**
+     * Growable int array used for posting lists.
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+        
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
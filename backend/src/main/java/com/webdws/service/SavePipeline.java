@@ -0,0 +1,155 @@
+package com.webdws.service;
+
+import com.webdws.model.XmlDocument;
+import com.webdws.xml.TeeContentHandler;
+import com.webdws.xml.XmlSchemaValidator;
+import com.webdws.xml.XmlStreamParser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.xml.sax.ContentHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SavePipeline - One Parse per Saved Document
+ * 
+ * A save streams the submitted XML through a single SAX parse whose events are shared by
+ * everything that needs to look at the document. This service handles:
+ * - Schema validation (when configured) as one subscriber of the event stream
+ * - The SaveSubscriber beans (title and any per-project extractors) as the others
+ * - Applying the subscribers' results to the document's metadata once the parse succeeded
+ * Adding a subscriber adds its handler's work to the save, never another parse.
+ */
+@Service
+public class SavePipeline {
+    
+    @Autowired
+    private XmlStreamParser xmlStreamParser;
+    
+    @Autowired
+    private XmlSchemaValidator schemaValidator;
+    
+    @Autowired
+    private List<SaveSubscriber> subscribers;
+    
+    /**
+     * Start a pass over one document. Feed {@link Pass#handler()} with its parse events,
+     * then call checkValid() and, once the document row exists, apply().
+     * 
+     * @param validateSchema false to skip the configured schema (e.g. for incomplete drafts)
+     * @param observer extra handler receiving the same events, or null
+     */
+    public Pass newPass(boolean validateSchema, ContentHandler observer) {
+        XmlSchemaValidator.Validation validation = validateSchema
+            ? schemaValidator.newSaveValidation(null)
+            : schemaValidator.passThrough(null);
+        List<SaveSubscriber.Subscription> subscriptions = new ArrayList<>(subscribers.size());
+        List<ContentHandler> handlers = new ArrayList<>(subscribers.size() + 2);
+        if (observer != null) {
+            handlers.add(observer);
+        }
+        if (validation.handler() != null) {
+            handlers.add(validation.handler());
+        }
+        boolean readsContent = validation.handler() != null;
+        for (SaveSubscriber subscriber : subscribers) {
+            SaveSubscriber.Subscription subscription = subscriber.subscribe();
+            if (subscription != null) {
+                subscriptions.add(subscription);
+                if (subscription.handler() != null) {
+                    handlers.add(subscription.handler());
+                    readsContent = true;
+                }
+            }
+        }
+        return new Pass(validation, subscriptions, handlers, readsContent);
+    }
+    
+    /**
+     * Parse and check a character stream in one pass.
+     * 
+     * @return the finished pass, ready to apply()
+     * @throws com.webdws.xml.MalformedXmlException if the document is not well-formed
+     * @throws com.webdws.xml.SchemaValidationException if it does not match the schema
+     */
+    public Pass parse(Reader reader, boolean validateSchema) throws IOException {
+        try (Pass pass = newPass(validateSchema, null)) {
+            xmlStreamParser.parse(reader, pass.handler());
+            pass.checkValid();
+            return pass;
+        }
+    }
+    
+    /**
+     * Parse and check a byte stream in one pass; see parse(Reader, boolean).
+     * 
+     * @param observer extra handler receiving the same events, or null
+     */
+    public Pass parse(InputStream in, boolean validateSchema, ContentHandler observer) throws IOException {
+        try (Pass pass = newPass(validateSchema, observer)) {
+            xmlStreamParser.parse(in, pass.handler());
+            pass.checkValid();
+            return pass;
+        }
+    }
+    
+    /**
+     * One document's pass. Closing it returns the schema validator to its pool; the
+     * results can still be applied afterwards.
+     */
+    public static class Pass implements AutoCloseable {
+        
+        private final XmlSchemaValidator.Validation validation;
+        private final List<SaveSubscriber.Subscription> subscriptions;
+        private final ContentHandler handler;
+        private final boolean readsContent;
+        
+        Pass(XmlSchemaValidator.Validation validation, List<SaveSubscriber.Subscription> subscriptions,
+             List<ContentHandler> handlers, boolean readsContent) {
+            this.validation = validation;
+            this.subscriptions = subscriptions;
+            this.handler = TeeContentHandler.of(handlers);
+            this.readsContent = readsContent;
+        }
+        
+        /**
+         * Whether validation or any subscriber looks at the parse events; if not, the
+         * document need not be parsed to apply().
+         */
+        public boolean readsContent() {
+            return readsContent;
+        }
+        
+        /**
+         * The handler to send parse events to.
+         */
+        public ContentHandler handler() {
+            return handler;
+        }
+        
+        /**
+         * @throws com.webdws.xml.SchemaValidationException if the document does not match the schema
+         */
+        public void checkValid() {
+            validation.checkValid();
+        }
+        
+        /**
+         * Store every subscriber's results on the document.
+         */
+        public void apply(XmlDocument document) {
+            for (SaveSubscriber.Subscription subscription : subscriptions) {
+                subscription.apply(document);
+            }
+        }
+        
+        @Override
+        public void close() {
+            validation.close();
+        }
+    }
+}
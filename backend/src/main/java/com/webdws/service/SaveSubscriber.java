@@ -0,0 +1,40 @@
+package com.webdws.service;
+
+import com.webdws.model.XmlDocument;
+import org.xml.sax.ContentHandler;
+
+/**
+ * SaveSubscriber - Extension Point for Work Done During a Save's Parse
+ * 
+ * Every save parses the submitted document exactly once (see SavePipeline). Spring beans
+ * implementing this interface receive the events of that parse, so extracting more from
+ * a document (title, status metadata, cross-references) adds a handler, not a parse:
+ * - subscribe() is called once per saved document, on the thread doing the parse
+ * - apply() writes what was found to the document's metadata row, after the document has
+ *   been parsed and validated and before the row is stored
+ * Use @Order to control the order in which subscribers see events and apply results.
+ */
+public interface SaveSubscriber {
+    
+    /**
+     * Start following the parse of one document, or null to skip it.
+     */
+    Subscription subscribe();
+    
+    /**
+     * Per-document state of a subscriber.
+     */
+    interface Subscription {
+        
+        /**
+         * The handler receiving the parse events, or null if the results do not depend on
+         * the content (e.g. no title XPath is configured).
+         */
+        ContentHandler handler();
+        
+        /**
+         * Store the results on the document. Only called when the parse succeeded.
+         */
+        void apply(XmlDocument document);
+    }
+}
@@ -1,255 +1,312 @@
 package com.webdws.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webdws.dto.*;
+import com.webdws.xml.XmlSchemaValidator;
+import com.webdws.xml.XsdModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * SchemaService - Service for XML Schema Processing
  * 
  * This service handles:
  * - Loading XML schema files from resources
- * - Parsing XSD files into structured data
- * - Converting schema information to JSON-friendly DTOs
- * - Basic schema element and attribute extraction
+ * - Compiling XSD files, with their includes and imports, into a component graph (XsdModel)
+ * - Converting schema information to JSON-friendly DTOs, one entry per element declaration
+ * - Looking up a single declaration with its children, for lazy expansion by the client
+ * - Caching parsed schemas by path and content version, with the JSON response
+ *   pre-encoded (plain and gzip), until the schema source changes
  */
 @Service
 public class SchemaService {
     
-    private static final String SCHEMA_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
-    private static final String DEFAULT_SCHEMA_PATH = "schema/library.xsd";
+    private static final Logger log = LoggerFactory.getLogger(SchemaService.class);
+    
+    private static final String SCHEMA_ROOT = "schema/";
+    public static final String DEFAULT_SCHEMA_PATH = "schema/library.xsd";
+    
+    // How often a cached schema's source is checked for changes
+    private static final long CHANGE_CHECK_INTERVAL_MILLIS = 2000;
+    
+    // Both may be absent when the service is used outside Spring (tests)
+    @Autowired(required = false)
+    private ObjectMapper objectMapper;
+    
+    @Autowired(required = false)
+    private XmlSchemaValidator schemaValidator;
+    
+    private final Map<String, CachedSchema> cache = new ConcurrentHashMap<>();
     
     /**
      * Load and parse the default XML schema
      */
     public SchemaInfoDto loadDefaultSchema() throws Exception {
-        System.out.println("DEBUG: SchemaService.loadDefaultSchema() called");
-        System.out.println("DEBUG: Loading schema from path: " + DEFAULT_SCHEMA_PATH);
         return loadSchema(DEFAULT_SCHEMA_PATH);
     }
     
     /**
-     * Load and parse an XML schema from the classpath
+     * Load and parse an XML schema from the classpath (below schema/). Parsed schemas are
+     * cached; a schema is parsed again only when its source has changed.
+     * 
+     * @throws IllegalArgumentException if the path is outside schema/ or does not exist
      */
     public SchemaInfoDto loadSchema(String schemaPath) throws Exception {
-        System.out.println("DEBUG: SchemaService.loadSchema() called with path: " + schemaPath);
-        try {
-            ClassPathResource resource = new ClassPathResource(schemaPath);
-            System.out.println("DEBUG: ClassPathResource created for: " + schemaPath);
-            System.out.println("DEBUG: Resource exists: " + resource.exists());
-            System.out.println("DEBUG: Resource description: " + resource.getDescription());
-            
-            try (InputStream inputStream = resource.getInputStream()) {
-                System.out.println("DEBUG: Successfully opened input stream");
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                factory.setNamespaceAware(true);
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                Document document = builder.parse(inputStream);
-                
-                System.out.println("DEBUG: Successfully parsed XML document");
-                return parseSchemaDocument(document);
-            }
-        } catch (IOException | ParserConfigurationException | SAXException e) {
-            System.err.println("DEBUG: Error loading schema from " + schemaPath + ": " + e.getMessage());
-            e.printStackTrace();
-            throw new Exception("Failed to load schema: " + e.getMessage(), e);
-        }
+        return cached(schemaPath).info;
     }
     
     /**
-     * Parse a schema document into structured data
+     * The schema as a ready-to-send ApiResponse JSON body, plain and gzipped, with the
+     * version it was built from. Encoded once per schema version.
+     * 
+     * @throws IllegalArgumentException if the path is outside schema/ or does not exist
      */
-    private SchemaInfoDto parseSchemaDocument(Document document) {
-        Element rootElement = document.getDocumentElement();
-        SchemaInfoDto schemaInfo = new SchemaInfoDto();
-        
-        // Extract schema metadata
-        schemaInfo.setTargetNamespace(rootElement.getAttribute("targetNamespace"));
-        schemaInfo.setElementFormDefault(rootElement.getAttribute("elementFormDefault"));
-        schemaInfo.setAttributeFormDefault(rootElement.getAttribute("attributeFormDefault"));
-        
-        // Find all element declarations
-        List<SchemaElementDto> elements = new ArrayList<>();
-        NodeList elementNodes = rootElement.getElementsByTagNameNS(SCHEMA_NAMESPACE, "element");
-        
-        for (int i = 0; i < elementNodes.getLength(); i++) {
-            Element elementNode = (Element) elementNodes.item(i);
-            SchemaElementDto element = parseElement(elementNode);
-            if (element != null) {
-                elements.add(element);
+    public EncodedSchema getEncodedSchema(String schemaPath) throws Exception {
+        CachedSchema schema = cached(schemaPath);
+        EncodedSchema encoded = schema.encoded;
+        if (encoded == null) {
+            synchronized (schema) {
+                encoded = schema.encoded;
+                if (encoded == null) {
+                    byte[] json = objectMapper.writeValueAsBytes(ApiResponse.success(schema.info));
+                    encoded = new EncodedSchema(schema.info.getVersion(), json, gzip(json));
+                    schema.encoded = encoded;
+                }
             }
         }
-        
-        schemaInfo.setElements(elements);
-        return schemaInfo;
+        return encoded;
     }
     
     /**
-     * Parse a single element declaration
+     * One element declaration of a schema, by the id it has in {@link SchemaInfoDto#getElements()},
+     * with its direct children.
+     * 
+     * @throws IllegalArgumentException if the path is invalid or there is no such declaration
      */
-    private SchemaElementDto parseElement(Element elementNode) {
-        String name = elementNode.getAttribute("name");
-        if (name == null || name.isEmpty()) {
-            return null;
-        }
-        
-        SchemaElementDto element = new SchemaElementDto(name, "element");
-        
-        // Parse occurrence constraints
-        String minOccurs = elementNode.getAttribute("minOccurs");
-        if (!minOccurs.isEmpty()) {
-            element.setMinOccurs(Integer.parseInt(minOccurs));
-        }
-        
-        String maxOccurs = elementNode.getAttribute("maxOccurs");
-        if (!maxOccurs.isEmpty()) {
-            element.setMaxOccurs(maxOccurs);
+    public SchemaElementDto getElement(String schemaPath, int id) throws Exception {
+        List<SchemaElementDto> elements = cached(schemaPath).info.getElements();
+        if (id < 0 || id >= elements.size()) {
+            throw new IllegalArgumentException("Schema has no element declaration " + id);
         }
-        
-        // Parse type information
-        String type = elementNode.getAttribute("type");
-        if (!type.isEmpty()) {
-            element.setType(type);
+        return elements.get(id);
+    }
+    
+    private CachedSchema cached(String schemaPath) throws Exception {
+        if (schemaPath == null || !schemaPath.startsWith(SCHEMA_ROOT) || !schemaPath.endsWith(".xsd")
+                || schemaPath.contains("..")) {
+            throw new IllegalArgumentException("Schema must be an .xsd file below " + SCHEMA_ROOT + ": " + schemaPath);
         }
-        
-        // Parse default and fixed values
-        String defaultValue = elementNode.getAttribute("default");
-        if (defaultValue != null && !defaultValue.isEmpty()) {
-            element.setDefaultValue(defaultValue);
+        CachedSchema schema = cache.get(schemaPath);
+        long now = System.currentTimeMillis();
+        if (schema != null && now - schema.checkedAt < CHANGE_CHECK_INTERVAL_MILLIS) {
+            return schema;
         }
-        
-        String fixedValue = elementNode.getAttribute("fixed");
-        if (fixedValue != null && !fixedValue.isEmpty()) {
-            element.setFixedValue(fixedValue);
+        synchronized (cache) {
+            schema = cache.get(schemaPath);
+            if (schema != null && now - schema.checkedAt < CHANGE_CHECK_INTERVAL_MILLIS) {
+                return schema;
+            }
+            ClassPathResource resource = new ClassPathResource(schemaPath);
+            if (!resource.exists()) {
+                cache.remove(schemaPath);
+                throw new IllegalArgumentException("Schema not found: " + schemaPath);
+            }
+            if (schema != null && schema.lastModified == lastModified(schema.sourcePaths)) {
+                schema.checkedAt = now;
+                return schema;
+            }
+            CachedSchema loaded = load(schemaPath, schema);
+            loaded.checkedAt = now;
+            cache.put(schemaPath, loaded);
+            return loaded;
         }
-        
-        // Parse complex type if present
-        Element complexType = getFirstChildElement(elementNode, "complexType");
-        if (complexType != null) {
-            parseComplexType(complexType, element);
+    }
+    
+    /**
+     * Compile a schema and the documents it includes or imports; if their content is
+     * unchanged since {@code previous}, keep the previous result (only a modification time
+     * moved).
+     */
+    private CachedSchema load(String schemaPath, CachedSchema previous) throws Exception {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            XsdModel model = XsdModel.compile(schemaPath, path -> {
+                byte[] source = XsdModel.CLASSPATH.load(path);
+                if (source != null) {
+                    digest.update(source);
+                }
+                return source;
+            });
+            String version = HexFormat.of().formatHex(digest.digest());
+            List<String> sourcePaths = model.getSourcePaths();
+            long lastModified = lastModified(sourcePaths);
+            if (previous != null && version.equals(previous.info.getVersion())) {
+                return new CachedSchema(previous.info, sourcePaths, lastModified, previous.encoded);
+            }
+            
+            SchemaInfoDto info = toSchemaInfo(model);
+            info.setSchemaLocation(schemaPath);
+            info.setVersion(version);
+            if (previous != null) {
+                log.info("Schema {} changed, reloaded (version {})", schemaPath, version);
+                if (schemaValidator != null) {
+                    schemaValidator.evict(schemaPath);
+                }
+            }
+            return new CachedSchema(info, sourcePaths, lastModified, null);
+        } catch (IOException | SAXException e) {
+            throw new Exception("Failed to load schema: " + e.getMessage(), e);
         }
-        
-        return element;
     }
     
     /**
-     * Parse a complex type definition
+     * The latest modification time of a schema's source documents; a document that has
+     * gone missing counts as a change.
      */
-    private void parseComplexType(Element complexTypeNode, SchemaElementDto element) {
-        // Parse sequence elements
-        Element sequence = getFirstChildElement(complexTypeNode, "sequence");
-        if (sequence != null) {
-            List<SchemaElementDto> children = parseSequence(sequence);
-            element.setChildren(children);
+    private static long lastModified(List<String> sourcePaths) {
+        long lastModified = 0;
+        for (String path : sourcePaths) {
+            ClassPathResource resource = new ClassPathResource(path);
+            if (!resource.exists()) {
+                return -1;
+            }
+            try {
+                lastModified = Math.max(lastModified, resource.lastModified());
+            } catch (IOException e) {
+                // Not a file or jar entry; treat the source as unchanged
+            }
         }
-        
-        // Parse attributes
-        List<SchemaAttributeDto> attributes = new ArrayList<>();
-        NodeList attributeNodes = complexTypeNode.getElementsByTagNameNS(SCHEMA_NAMESPACE, "attribute");
-        
-        for (int i = 0; i < attributeNodes.getLength(); i++) {
-            Element attrNode = (Element) attributeNodes.item(i);
-            SchemaAttributeDto attribute = parseAttribute(attrNode);
-            if (attribute != null) {
-                attributes.add(attribute);
+        return lastModified;
+    }
+    
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4 + 64);
+        // Encoded once per schema version, so spend the time on the best compression
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
             }
+        }) {
+            out.write(data);
         }
+        return compressed.toByteArray();
+    }
+    
+    /**
+     * A schema's JSON response body, encoded once: {@code json} plain, {@code gzip}
+     * gzip-compressed. {@code version} identifies the schema content.
+     */
+    public record EncodedSchema(String version, byte[] json, byte[] gzip) {}
+    
+    private static class CachedSchema {
+        final SchemaInfoDto info;
+        final List<String> sourcePaths;
+        final long lastModified;
+        volatile long checkedAt;
+        volatile EncodedSchema encoded;
         
-        if (!attributes.isEmpty()) {
-            element.setAttributes(attributes);
+        CachedSchema(SchemaInfoDto info, List<String> sourcePaths, long lastModified, EncodedSchema encoded) {
+            this.info = info;
+            this.sourcePaths = sourcePaths;
+            this.lastModified = lastModified;
+            this.encoded = encoded;
         }
     }
     
     /**
-     * Parse a sequence of elements
+     * Convert a compiled schema into DTOs: one entry per element declaration, in id order,
+     * each with its direct children only. A child carries its declaration id, so the
+     * client looks up (or fetches) its content from there; the response therefore grows
+     * with the number of declarations, not with the depth of recursive content models.
      */
-    private List<SchemaElementDto> parseSequence(Element sequenceNode) {
-        List<SchemaElementDto> children = new ArrayList<>();
-        NodeList childNodes = sequenceNode.getChildNodes();
+    private SchemaInfoDto toSchemaInfo(XsdModel model) {
+        SchemaInfoDto schemaInfo = new SchemaInfoDto();
         
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node childNode = childNodes.item(i);
-            if (childNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element childElement = (Element) childNode;
-                if (childElement.getNamespaceURI() != null && 
-                    childElement.getNamespaceURI().equals(SCHEMA_NAMESPACE) &&
-                    childElement.getLocalName().equals("element")) {
-                    
-                    SchemaElementDto child = parseElement(childElement);
-                    if (child != null) {
-                        children.add(child);
+        // Extract schema metadata
+        schemaInfo.setTargetNamespace(model.getTargetNamespace());
+        schemaInfo.setElementFormDefault(model.getElementFormDefault());
+        schemaInfo.setAttributeFormDefault(model.getAttributeFormDefault());
+        
+        List<SchemaElementDto> elements = new ArrayList<>();
+        for (XsdModel.ElementDecl declaration : model.getDeclarations()) {
+            SchemaElementDto element = toElement(model, declaration, declaration.getMinOccurs(),
+                declaration.getMaxOccurs());
+            element.setAttributes(toAttributes(model.attributes(declaration)));
+            List<XsdModel.ChildUse> uses = model.children(declaration);
+            if (!uses.isEmpty()) {
+                List<SchemaElementDto> children = new ArrayList<>(uses.size());
+                for (XsdModel.ChildUse use : uses) {
+                    SchemaElementDto child = toElement(model, use.declaration(), use.minOccurs(), use.maxOccurs());
+                    if (use.compositor() != null) {
+                        child.setProperties(Map.of("compositor", use.compositor()));
                     }
+                    children.add(child);
                 }
+                element.setChildren(children);
             }
+            elements.add(element);
         }
         
-        return children;
+        schemaInfo.setElements(elements);
+        return schemaInfo;
     }
     
     /**
-     * Parse a single attribute declaration
+     * A declaration as used with the given occurrences, without children or attributes
      */
-    private SchemaAttributeDto parseAttribute(Element attributeNode) {
-        String name = attributeNode.getAttribute("name");
-        if (name == null || name.isEmpty()) {
-            return null;
-        }
-        
-        SchemaAttributeDto attribute = new SchemaAttributeDto(name, "attribute");
-        
-        // Parse type
-        String type = attributeNode.getAttribute("type");
-        if (!type.isEmpty()) {
-            attribute.setType(type);
-        }
-        
-        // Parse usage
-        String use = attributeNode.getAttribute("use");
-        if (!use.isEmpty()) {
-            attribute.setUse(use);
+    private SchemaElementDto toElement(XsdModel model, XsdModel.ElementDecl declaration, int minOccurs,
+                                       String maxOccurs) {
+        String typeName = declaration.getTypeName();
+        SchemaElementDto element = new SchemaElementDto(declaration.getName(), typeName != null ? typeName : "element");
+        element.setId(declaration.getId());
+        if (!declaration.getNamespace().isEmpty()) {
+            element.setNamespace(declaration.getNamespace());
         }
+        element.setMinOccurs(minOccurs);
+        element.setMaxOccurs(maxOccurs);
         
-        // Parse default value
-        String defaultValue = attributeNode.getAttribute("default");
-        if (!defaultValue.isEmpty()) {
-            attribute.setDefaultValue(defaultValue);
+        // Built-in type behind a named or inline simple type
+        String simpleBase = declaration.getSimpleBase();
+        if (simpleBase != null && !simpleBase.equals(typeName)) {
+            element.setBaseType(simpleBase);
         }
-        
-        // Parse fixed value
-        String fixedValue = attributeNode.getAttribute("fixed");
-        if (!fixedValue.isEmpty()) {
-            attribute.setFixedValue(fixedValue);
+        element.setDefaultValue(declaration.getDefaultValue());
+        element.setFixedValue(declaration.getFixedValue());
+        if (!model.children(declaration).isEmpty()) {
+            element.setHasChildren(true);
         }
-        
-        return attribute;
+        return element;
     }
     
-    /**
-     * Helper method to get the first child element with a specific name
-     */
-    private Element getFirstChildElement(Element parent, String localName) {
-        NodeList children = parent.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
-            if (child.getNodeType() == Node.ELEMENT_NODE) {
-                Element childElement = (Element) child;
-                if (childElement.getNamespaceURI() != null && 
-                    childElement.getNamespaceURI().equals(SCHEMA_NAMESPACE) &&
-                    childElement.getLocalName().equals(localName)) {
-                    return childElement;
-                }
-            }
+    private List<SchemaAttributeDto> toAttributes(List<XsdModel.AttributeDecl> declarations) {
+        if (declarations.isEmpty()) {
+            return null;
+        }
+        List<SchemaAttributeDto> attributes = new ArrayList<>(declarations.size());
+        for (XsdModel.AttributeDecl declaration : declarations) {
+            SchemaAttributeDto attribute = new SchemaAttributeDto(declaration.getName(),
+                declaration.getSimpleBase() != null ? declaration.getSimpleBase()
+                    : declaration.getType() != null ? declaration.getType() : "attribute");
+            attribute.setUse(declaration.getUse());
+            attribute.setDefaultValue(declaration.getDefaultValue());
+            attribute.setFixedValue(declaration.getFixedValue());
+            attributes.add(attribute);
         }
-        return null;
+        return attributes;
     }
 }
@@ -0,0 +1,316 @@
+package com.webdws.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webdws.config.ExistDbConfig;
+import com.webdws.config.ViewConfig;
+import com.webdws.dto.ViewNodeDto;
+import com.webdws.dto.ViewQueryRequest;
+import com.webdws.dto.ViewRowDto;
+import com.webdws.repository.XmlDocumentRef;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.xml.ViewPath;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * ViewService - Server-side Table-View Queries
+ * 
+ * This service runs table views (a row XPath plus relative column XPaths) against the
+ * whole collection in eXist-db and handles:
+ * - Restricting row and column XPaths to path steps and predicates (ViewPath)
+ * - Compiling the row and column XPaths into a single XQuery
+ * - Paging in eXist-db with subsequence(), so only one page leaves the database
+ * - Returning eXist-db node ids and root-to-node paths for rows and cells
+ * - Streaming the page to the client as JSON while it is read from eXist-db
+ */
+@Service
+public class ViewService {
+    
+    // Rows are written in chunks so document ids can be looked up with one query per chunk
+    private static final int LOOKUP_CHUNK_SIZE = 100;
+    
+    private static final Pattern EXIST_ERROR_MESSAGE = Pattern.compile("<message>(.*?)</message>", Pattern.DOTALL);
+    
+    // Root-to-node path with positional predicates, e.g. /entry[1]/sense[2]/@id
+    private static final String PATH_FUNCTION = """
+        declare function local:path($node as node()) as xs:string {
+            string-join(
+                for $step in $node/ancestor-or-self::node()[not(self::document-node())]
+                return typeswitch ($step)
+                    case element() return '/' || name($step) || '['
+                        || (count($step/preceding-sibling::*[node-name(.) eq node-name($step)]) + 1) || ']'
+                    case attribute() return '/@' || name($step)
+                    case text() return '/text()[' || (count($step/preceding-sibling::text()) + 1) || ']'
+                    case comment() return '/comment()[' || (count($step/preceding-sibling::comment()) + 1) || ']'
+                    default return '/node()'
+            , '')
+        };
+        """;
+    
+    private static final String ITEM_FUNCTION = """
+        declare function local:item($item as item()) as element() {
+            if ($item instance of node()) then
+                <n node="{util:node-id($item)}" path="{local:path($item)}">{
+                    <v>{string($item)}</v>,
+                    if ($item instance of element()) then <x>{serialize($item)}</x> else ()
+                }</n>
+            else
+                <a>{string($item)}</a>
+        };
+        """;
+    
+    @Autowired
+    private ViewConfig config;
+    
+    @Autowired
+    private ExistDbConfig existDbConfig;
+    
+    @Autowired
+    private ExistDbService existDbService;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final XMLInputFactory inputFactory;
+    
+    public ViewService() {
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+    
+    /**
+     * Run one page of a view and write it to {@code out} as an ApiResponse envelope:
+     * {"success":true,"data":{"offset":..,"limit":..,"total":..,"rows":[...]}}.
+     * Nothing is written before eXist-db has accepted the query, so invalid XPaths
+     * surface as an IllegalArgumentException rather than as a truncated response.
+     */
+    public void query(ViewQueryRequest request, OutputStream out) {
+        List<String> columns = request.getColumns() != null ? request.getColumns() : List.of();
+        if (columns.size() > config.getMaxColumns()) {
+            throw new IllegalArgumentException("A view can have at most " + config.getMaxColumns() + " columns");
+        }
+        int limit = resolveLimit(request.getLimit());
+        String xquery = compileQuery(existDbConfig.getCollection(), request.getRowXPath(), columns,
+            request.getOffset(), limit);
+        
+        try {
+            existDbService.streamQuery(xquery, response -> {
+                writePage(response.getBody(), request.getOffset(), limit, new ClientOutputStream(out));
+                return null;
+            });
+        } catch (HttpClientErrorException e) {
+            throw new IllegalArgumentException("Invalid view query: " + existErrorMessage(e), e);
+        }
+    }
+    
+    private int resolveLimit(Integer requested) {
+        if (requested == null) {
+            return config.getDefaultPageSize();
+        }
+        return Math.min(requested, config.getMaxPageSize());
+    }
+    
+    /**
+     * Build the XQuery for one page. Row nodes are selected from every document in the
+     * collection; a single path is appended to collection() directly so eXist-db can use
+     * its indexes, a union is evaluated per document inside parentheses. The row and column
+     * XPaths are parsed first (see ViewPath), and only their parsed form reaches the query.
+     * 
+     * @throws IllegalArgumentException if an XPath is outside the subset ViewPath accepts
+     */
+    static String compileQuery(String collection, String rowXPath, List<String> columns, long offset, int limit) {
+        ViewPath rows = ViewPath.row(rowXPath);
+        List<ViewPath> columnPaths = columns.stream().map(ViewPath::column).toList();
+        
+        StringBuilder query = new StringBuilder(1024);
+        query.append("xquery version \"3.1\";\n");
+        query.append(PATH_FUNCTION);
+        query.append(ITEM_FUNCTION);
+        query.append("let $collection := '").append(ExistDbService.escapeXQueryString(collection)).append("'\n");
+        query.append("let $rows := ").append(rowSelection(rows)).append("\n");
+        query.append("return <view total=\"{count($rows)}\">{\n");
+        query.append("    for $row in subsequence($rows, ").append(offset + 1).append(", ").append(limit).append(")\n");
+        query.append("    return <row doc=\"{util:document-name($row)}\" node=\"{util:node-id($row)}\" path=\"{local:path($row)}\">{\n");
+        if (columnPaths.isEmpty()) {
+            query.append("        ()\n");
+        }
+        for (int i = 0; i < columnPaths.size(); i++) {
+            query.append("        <col>{ for $item in $row/(").append(columnPaths.get(i).toXPath())
+                .append(") return local:item($item) }</col>")
+                .append(i < columnPaths.size() - 1 ? ",\n" : "\n");
+        }
+        query.append("    }</row>\n");
+        query.append("}</view>\n");
+        return query.toString();
+    }
+    
+    static String rowSelection(ViewPath rows) {
+        if (rows.isSinglePath()) {
+            return "collection($collection)" + (rows.isAbsolute() ? "" : "/") + rows.toXPath();
+        }
+        return "collection($collection)/(" + rows.toXPath() + ")";
+    }
+    
+    private void writePage(InputStream in, long offset, int limit, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Map<String, Long> documentIds = new HashMap<>();
+        try {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            reader.nextTag();
+            String total = reader.getAttributeValue(null, "total");
+            
+            json.writeStartObject();
+            json.writeBooleanField("success", true);
+            json.writeObjectFieldStart("data");
+            json.writeNumberField("offset", offset);
+            json.writeNumberField("limit", limit);
+            json.writeNumberField("total", total != null ? Long.parseLong(total) : 0);
+            json.writeArrayFieldStart("rows");
+            
+            List<ViewRowDto> chunk = new ArrayList<>(LOOKUP_CHUNK_SIZE);
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                chunk.add(readRow(reader));
+                if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+                    writeChunk(chunk, documentIds, json);
+                }
+            }
+            writeChunk(chunk, documentIds, json);
+            
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndObject();
+            json.flush();
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unexpected view query result from eXist-db: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Read one {@code <row>} element: attributes doc, node and path, then one
+     * {@code <col>} per column holding {@code <n>} (node) or {@code <a>} (atomic) items.
+     */
+    private ViewRowDto readRow(XMLStreamReader reader) throws XMLStreamException {
+        ViewRowDto row = new ViewRowDto(
+            reader.getAttributeValue(null, "doc"),
+            reader.getAttributeValue(null, "node"),
+            reader.getAttributeValue(null, "path"));
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            List<ViewNodeDto> cell = new ArrayList<>();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                cell.add(readItem(reader));
+            }
+            row.getCells().add(cell);
+        }
+        return row;
+    }
+    
+    private ViewNodeDto readItem(XMLStreamReader reader) throws XMLStreamException {
+        if ("a".equals(reader.getLocalName())) {
+            return new ViewNodeDto(null, null, reader.getElementText(), null);
+        }
+        ViewNodeDto item = new ViewNodeDto(reader.getAttributeValue(null, "node"),
+            reader.getAttributeValue(null, "path"), null, null);
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("x".equals(reader.getLocalName())) {
+                item.setXml(reader.getElementText());
+            } else {
+                item.setValue(reader.getElementText());
+            }
+        }
+        return item;
+    }
+    
+    private void writeChunk(List<ViewRowDto> chunk, Map<String, Long> documentIds, JsonGenerator json) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<String> unknown = chunk.stream()
+            .map(ViewRowDto::getExistDbId)
+            .filter(existDbId -> !documentIds.containsKey(existDbId))
+            .collect(Collectors.toSet());
+        if (!unknown.isEmpty()) {
+            for (XmlDocumentRef ref : repository.findByExistDbIdIn(unknown)) {
+                documentIds.put(ref.getExistDbId(), ref.getId());
+            }
+        }
+        for (ViewRowDto row : chunk) {
+            row.setDocumentId(documentIds.get(row.getExistDbId()));
+            json.writeObject(row);
+        }
+        json.flush();
+        chunk.clear();
+    }
+    
+    /**
+     * Reports write failures (the client went away) as UncheckedIOException, so they are
+     * not mistaken for eXist-db connection errors by the RestTemplate and the circuit breaker.
+     */
+    private static class ClientOutputStream extends FilterOutputStream {
+        
+        ClientOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public void write(int b) {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    private static String existErrorMessage(HttpClientErrorException e) {
+        String body = e.getResponseBodyAsString();
+        Matcher matcher = EXIST_ERROR_MESSAGE.matcher(body);
+        if (matcher.find()) {
+            return matcher.group(1).trim();
+        }
+        return body.isBlank() ? e.getStatusText() : body;
+    }
+}
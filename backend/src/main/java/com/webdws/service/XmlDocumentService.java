@@ -1,17 +1,42 @@
 package com.webdws.service;
 
+import com.webdws.config.DocumentListConfig;
 import com.webdws.dto.*;
 import com.webdws.model.XmlDocument;
+import com.webdws.repository.DocumentSortKey;
 import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.repository.XmlDocumentSummary;
+import com.webdws.xml.MalformedXmlException;
+import com.webdws.xml.SchemaViolation;
+import com.webdws.xml.TeeInputStream;
+import com.webdws.xml.XmlSchemaValidator;
+import com.webdws.xml.XmlStreamParser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.HttpClientErrorException;
+import org.xml.sax.helpers.DefaultHandler;
 
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -19,7 +44,8 @@ import java.util.stream.Collectors;
  * 
  * This service provides the core business logic for XML document operations and handles:
  * - CRUD operations for XML documents with database persistence
- * - Integration with eXist-db for advanced XML processing
+ * - Integration with eXist-db for advanced XML processing, with writes replicated through an outbox
+ * - Streaming of document content to and from HTTP clients without buffering
  * - Document validation and content management
  * - Pagination and search functionality
  * - Transaction management and error handling
@@ -29,168 +55,701 @@ import java.util.stream.Collectors;
 @Transactional
 public class XmlDocumentService {
     
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+    
     @Autowired
     private XmlDocumentRepository repository;
     
     @Autowired
     private ExistDbService existDbService;
     
-    public XmlDocumentListDto getAllDocuments(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<XmlDocument> documents = repository.findAll(pageable);
+    @Autowired
+    private XmlStreamParser xmlStreamParser;
+    
+    @Autowired
+    private XmlSchemaValidator schemaValidator;
+    
+    @Autowired
+    private ExistDbOutbox outbox;
+    
+    @Autowired
+    private DocumentContentCache contentCache;
+    
+    @Autowired
+    private DocumentContentStore contentStore;
+    
+    @Autowired
+    private DocumentListConfig listConfig;
+    
+    @Autowired
+    private NameSearchIndex nameSearchIndex;
+    
+    @Autowired
+    private DocumentTitleService titleService;
+    
+    @Autowired
+    private SavePipeline savePipeline;
+    
+    private volatile CachedCount cachedCount;
+    
+    /**
+     * One page of the document list, ordered by (sort key, id) and continued with an opaque
+     * cursor instead of an offset, so deep pages cost the same as the first one.
+     * 
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param countMode none (default), cached (exact count reused for a short time)
+     *                  or estimate (database statistics, falling back to cached)
+     */
+    @Transactional(readOnly = true)
+    public XmlDocumentListDto getAllDocuments(String sort, String direction, String cursor, int size, String countMode) {
+        DocumentSortKey sortKey = DocumentSortKey.fromParam(sort);
+        boolean descending = switch (direction.toLowerCase()) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new IllegalArgumentException("Sort direction must be asc or desc");
+        };
+        if (size < 1 || size > listConfig.getMaxPageSize()) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + listConfig.getMaxPageSize());
+        }
+        
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            DocumentListCursor position = DocumentListCursor.decode(cursor, sortKey, descending);
+            afterValue = position.getAfterValue();
+            afterId = position.getAfterId();
+        }
         
-        List<XmlDocumentDto> documentDtos = documents.getContent().stream()
-            .map(this::convertToDto)
+        // One extra row tells whether there is a next page, without counting
+        List<XmlDocumentSummary> rows = repository.findSummariesAfter(sortKey, descending, afterValue, afterId, size + 1);
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            nextCursor = DocumentListCursor.encode(sortKey, descending, rows.get(size - 1));
+        }
+        
+        List<XmlDocumentSummaryDto> documentDtos = rows.stream()
+            .map(this::convertToSummaryDto)
             .collect(Collectors.toList());
         
-        return new XmlDocumentListDto(documentDtos, documents.getTotalElements());
+        return new XmlDocumentListDto(documentDtos, nextCursor, countDocuments(countMode));
+    }
+    
+    private Long countDocuments(String countMode) {
+        switch (countMode.toLowerCase()) {
+            case "none":
+                return null;
+            case "estimate":
+                long estimate = repository.estimateCount();
+                return estimate >= 0 ? estimate : cachedCount();
+            case "cached":
+                return cachedCount();
+            default:
+                throw new IllegalArgumentException("Count must be none, cached or estimate");
+        }
+    }
+    
+    /**
+     * Exact document count, reused for webdws.documents.count-cache-ttl so that paging
+     * through the list does not run count(*) on every request.
+     */
+    private long cachedCount() {
+        CachedCount cached = cachedCount;
+        long now = System.nanoTime();
+        if (cached == null || now - cached.countedAt() > listConfig.getCountCacheTtl().toNanos()) {
+            cached = new CachedCount(repository.count(), now);
+            cachedCount = cached;
+        }
+        return cached.value();
+    }
+    
+    /**
+     * Typeahead search on document names: prefix matches first, then names containing
+     * {@code query}. Served from the in-memory NameSearchIndex, not from the database.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<DocumentSuggestionDto> searchDocuments(String query, int limit) {
+        if (limit < 1 || limit > listConfig.getMaxSuggestions()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + listConfig.getMaxSuggestions());
+        }
+        return nameSearchIndex.search(query, limit).stream()
+            .map(hit -> new DocumentSuggestionDto(Long.toString(hit.id()), hit.name(), hit.title()))
+            .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public XmlDocumentDto getDocumentById(Long id) {
         XmlDocument document = repository.findById(id)
             .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
         
-        // Load content from eXist-db
+        // Load content from the outbox if it has not reached eXist-db yet, else from
+        // eXist-db (through the content cache). The entity is left untouched, so reading
+        // a document never writes it back.
+        String content;
         try {
-            String content = existDbService.getDocument(document.getExistDbId());
-            if (content != null) {
-                document.setContent(content);
-            }
+            content = outbox.pendingContent(document.getExistDbId())
+                .orElseGet(() -> contentCache.get(document.getExistDbId(), existDbService::getDocument));
         } catch (Exception e) {
-            throw new RuntimeException("Failed to load document content from eXist-db", e);
+            // Fall back to a current copy kept in PostgreSQL, if the storage mode keeps one
+            content = contentStore.currentCopy(document)
+                .orElseThrow(() -> new RuntimeException("Failed to load document content from eXist-db", e));
+        }
+        if (content == null) {
+            content = contentStore.currentCopy(document).orElse(null);
         }
         
-        return convertToDto(document);
+        return convertToDto(document, content);
     }
     
-    public XmlDocumentDto saveDocument(SaveXmlRequest request) {
-        // Validate XML content
-        ValidationResult validation = validateXml(request.getContent());
-        if (!validation.isValid()) {
-            throw new RuntimeException("Invalid XML: " + validation.getError());
-        }
+    /**
+     * Current version of a document, read from PostgreSQL only. Used to answer
+     * conditional requests without touching eXist-db.
+     */
+    @Transactional(readOnly = true)
+    public long getDocumentVersion(Long id) {
+        return repository.findVersionById(id)
+            .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
+    }
+    
+    /**
+     * Stream a document's XML straight from eXist-db to the HTTP response, without
+     * holding the content in memory. A single byte range is honoured: eXist-db's own
+     * 206 answer is passed through, otherwise the range is cut from the full stream
+     * when its length is known. Multi-range or unsatisfiable-length requests get the
+     * full document (200), as RFC 9110 allows. Content still waiting in the outbox is
+     * written from there, in full.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamDocumentContent(Long id, String range, HttpServletResponse response) {
+        XmlDocument document = repository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
         
-        // Store in eXist-db
-        String existDbId;
-        try {
-            existDbId = existDbService.storeDocument(request.getName(), request.getContent());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to store document in eXist-db: " + e.getMessage(), e);
+        Optional<String> pending = outbox.pendingContent(document.getExistDbId());
+        if (pending.isPresent()) {
+            byte[] bytes = pending.get().getBytes(StandardCharsets.UTF_8);
+            response.setContentType(MediaType.APPLICATION_XML_VALUE);
+            response.setContentLengthLong(bytes.length);
+            try {
+                response.getOutputStream().write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
         }
         
+        existDbService.streamDocument(document.getExistDbId(), range, upstream -> {
+            HttpHeaders upstreamHeaders = upstream.getHeaders();
+            MediaType contentType = upstreamHeaders.getContentType();
+            response.setContentType(contentType != null ? contentType.toString() : MediaType.APPLICATION_XML_VALUE);
+            if (upstreamHeaders.getLastModified() > 0) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, upstreamHeaders.getLastModified());
+            }
+            long length = upstreamHeaders.getContentLength();
+            
+            if (upstream.getStatusCode().value() == HttpStatus.PARTIAL_CONTENT.value()) {
+                // eXist-db handled the range itself
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, upstreamHeaders.getFirst(HttpHeaders.CONTENT_RANGE));
+                if (length >= 0) {
+                    response.setContentLengthLong(length);
+                }
+                copyToResponse(upstream.getBody(), response, Long.MAX_VALUE);
+                return null;
+            }
+            
+            HttpRange byteRange = length >= 0 ? parseSingleRange(range) : null;
+            if (byteRange == null) {
+                if (length >= 0) {
+                    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                    response.setContentLengthLong(length);
+                }
+                copyToResponse(upstream.getBody(), response, Long.MAX_VALUE);
+                return null;
+            }
+            
+            long start;
+            long end;
+            try {
+                start = byteRange.getRangeStart(length);
+                end = byteRange.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return null;
+            }
+            
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            InputStream body = upstream.getBody();
+            body.skipNBytes(start);
+            copyToResponse(body, response, end - start + 1);
+            return null;
+        });
+    }
+    
+    /**
+     * Create a document. The metadata row and an outbox entry for eXist-db are written in
+     * one PostgreSQL transaction; the content reaches eXist-db shortly after the commit.
+     */
+    public XmlDocumentDto saveDocument(SaveXmlRequest request) {
+        // Check well-formedness and the schema, and compute the title (and whatever else
+        // subscribers extract), in one parse
+        SavePipeline.Pass pass = parseForSave(request.getContent(), true);
+        
+        // The resource id is chosen here, so retried writes to eXist-db are idempotent
+        String existDbId = UUID.randomUUID().toString();
+        
         // Store metadata in PostgreSQL
         XmlDocument document = new XmlDocument();
         document.setName(request.getName());
-        document.setContent(request.getContent());
+        pass.apply(document);
         document.setExistDbId(existDbId);
         document.setCreatedAt(LocalDateTime.now());
         document.setUpdatedAt(LocalDateTime.now());
+        contentStore.record(document, request.getContent());
         
         XmlDocument savedDocument = repository.save(document);
-        return convertToDto(savedDocument);
+        outbox.enqueueStore(existDbId, request.getContent());
+        afterCommit(() -> nameSearchIndex.put(savedDocument.getId(), savedDocument.getName(), savedDocument.getTitle()));
+        return convertToDto(savedDocument, request.getContent());
     }
     
-    public XmlDocumentDto updateDocument(Long id, SaveXmlRequest request) {
+    /**
+     * Create a document from a raw XML byte stream. The stream is checked for
+     * well-formedness while it is forwarded to eXist-db, so peak memory does not depend
+     * on document size. Only the metadata row is written to PostgreSQL, once eXist-db
+     * has accepted the content.
+     * 
+     * @param contentLength length of the stream in bytes, or -1 if unknown
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public XmlDocumentDto saveDocumentStream(String name, InputStream content, long contentLength) {
+        SavePipeline.Pass pass = savePipeline.newPass(true, null);
+        String existDbId;
+        try (pass) {
+            existDbId = existDbService.storeDocumentStream(checkedBody(content, pass), contentLength);
+        }
+        
+        XmlDocument document = new XmlDocument();
+        document.setName(name);
+        pass.apply(document);
+        document.setExistDbId(existDbId);
+        document.setCreatedAt(LocalDateTime.now());
+        document.setUpdatedAt(LocalDateTime.now());
+        
+        XmlDocument savedDocument;
+        try {
+            savedDocument = repository.save(document);
+        } catch (RuntimeException e) {
+            // Don't leave an orphan in eXist-db if the metadata could not be stored
+            existDbService.deleteDocument(existDbId);
+            throw e;
+        }
+        nameSearchIndex.put(savedDocument.getId(), savedDocument.getName(), savedDocument.getTitle());
+        return convertToDto(savedDocument, null);
+    }
+    
+    /**
+     * Replace a document's content with a raw XML byte stream; see saveDocumentStream.
+     * 
+     * @param name new document name, or null to keep the current one
+     * @param contentLength length of the stream in bytes, or -1 if unknown
+     * @param expectedVersion version the client based its change on (If-Match), or null
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public XmlDocumentDto updateDocumentStream(Long id, String name, InputStream content, long contentLength,
+                                               Long expectedVersion) {
         XmlDocument document = repository.findById(id)
             .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
+        checkVersion(document, expectedVersion);
+        // An older pending write must not overwrite the streamed content later
+        outbox.flush(document.getExistDbId());
         
-        // Validate XML content
-        ValidationResult validation = validateXml(request.getContent());
-        if (!validation.isValid()) {
-            throw new RuntimeException("Invalid XML: " + validation.getError());
+        SavePipeline.Pass pass = savePipeline.newPass(true, null);
+        try (pass) {
+            existDbService.updateDocumentStream(document.getExistDbId(), checkedBody(content, pass), contentLength);
+        } finally {
+            contentCache.invalidate(document.getExistDbId());
         }
         
-        // Update in eXist-db
+        if (name != null && !name.isBlank()) {
+            document.setName(name);
+        }
+        pass.apply(document);
+        // PostgreSQL no longer holds a current copy of the content
+        contentStore.forget(document);
+        document.setUpdatedAt(LocalDateTime.now());
+        XmlDocument updatedDocument = repository.save(document);
+        nameSearchIndex.put(updatedDocument.getId(), updatedDocument.getName(), updatedDocument.getTitle());
+        return convertToDto(updatedDocument, null);
+    }
+    
+    /**
+     * Request body for eXist-db that copies the incoming stream while a SAX parser reads
+     * it. A well-formedness error aborts the upload with a MalformedXmlException, a schema
+     * error (if a schema is configured) with a SchemaValidationException once the document
+     * has been read; the same parse feeds the save's subscribers.
+     */
+    private StreamingHttpOutputMessage.Body checkedBody(InputStream content, SavePipeline.Pass pass) {
+        return out -> {
+            TeeInputStream tee = new TeeInputStream(content, out);
+            xmlStreamParser.parse(tee, pass.handler());
+            pass.checkValid();
+            tee.drain();
+        };
+    }
+    
+    /**
+     * Check that submitted content is well-formed and valid against the configured schema
+     * (unless {@code validateSchema} is false), feeding the save's subscribers from the same
+     * SAX pass. Well-formedness errors are reported as "Invalid XML: ..." like validateXml
+     * does, schema errors as a SchemaValidationException.
+     */
+    private SavePipeline.Pass parseForSave(String content, boolean validateSchema) {
+        if (content == null || content.trim().isEmpty()) {
+            throw new RuntimeException("Invalid XML: XML content is empty");
+        }
         try {
-            existDbService.updateDocument(document.getExistDbId(), request.getContent());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to update document in eXist-db", e);
+            return savePipeline.parse(new StringReader(content), validateSchema);
+        } catch (MalformedXmlException e) {
+            throw new RuntimeException("Invalid XML: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
+    
+    /**
+     * @param expectedVersion version the client based its change on (If-Match), or null
+     */
+    public XmlDocumentDto updateDocument(Long id, SaveXmlRequest request, Long expectedVersion) {
+        return updateDocument(id, request, expectedVersion, true);
+    }
+    
+    /**
+     * @param expectedVersion version the client based its change on (If-Match), or null
+     * @param validateSchema false to only check well-formedness (autosaved drafts, which may
+     *                       be incomplete)
+     */
+    public XmlDocumentDto updateDocument(Long id, SaveXmlRequest request, Long expectedVersion, boolean validateSchema) {
+        XmlDocument document = repository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
+        checkVersion(document, expectedVersion);
+        
+        // Check well-formedness and the schema, and compute the title (and whatever else
+        // subscribers extract), in one parse
+        SavePipeline.Pass pass = parseForSave(request.getContent(), validateSchema);
         
-        // Update metadata in PostgreSQL
+        // Update metadata in PostgreSQL; eXist-db is updated through the outbox
         document.setName(request.getName());
-        document.setContent(request.getContent());
+        pass.apply(document);
         document.setUpdatedAt(LocalDateTime.now());
+        contentStore.record(document, request.getContent());
+        outbox.enqueueStore(document.getExistDbId(), request.getContent());
+        
+        // Flush so the returned version (and ETag) includes this update
+        XmlDocument updatedDocument = repository.saveAndFlush(document);
+        afterCommit(() -> nameSearchIndex.put(updatedDocument.getId(), updatedDocument.getName(), updatedDocument.getTitle()));
+        return convertToDto(updatedDocument, request.getContent());
+    }
+    
+    /**
+     * Apply node-level edits (e.g. a table-view cell) to a document. The edits are sent to
+     * eXist-db as one XQuery Update, so the bytes written depend on the edited nodes rather
+     * than on the whole entry; PostgreSQL only gets its metadata row updated.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public XmlDocumentDto patchNodes(Long id, NodePatchRequest request, Long expectedVersion) {
+        XmlDocument document = repository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
+        checkVersion(document, expectedVersion);
         
+        List<NodeOperation> operations = request.getOperations();
+        for (NodeOperation operation : operations) {
+            if ((operation.getFragment() == null) == (operation.getValue() == null)) {
+                throw new IllegalArgumentException("Node " + operation.getNodeId() + ": give either a fragment or a value");
+            }
+            if (operation.getFragment() != null) {
+                try {
+                    xmlStreamParser.parse(new StringReader(operation.getFragment()), new DefaultHandler());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        checkNoOverlap(operations);
+        // The node ids refer to the content the client has seen, which may still be pending
+        outbox.flush(document.getExistDbId());
+        
+        try {
+            existDbService.updateNodes(document.getExistDbId(), operations);
+        } finally {
+            contentCache.invalidate(document.getExistDbId());
+        }
+        
+        // The edits may have changed the title (or whatever else subscribers extract)
+        String previousTitle = document.getTitle();
+        reparseStoredContent(document);
+        boolean titleChanged = !previousTitle.equals(document.getTitle());
+        // PostgreSQL no longer holds a current copy of the content
+        contentStore.forget(document);
+        document.setUpdatedAt(LocalDateTime.now());
         XmlDocument updatedDocument = repository.save(document);
-        return convertToDto(updatedDocument);
+        if (titleChanged) {
+            nameSearchIndex.put(updatedDocument.getId(), updatedDocument.getName(), updatedDocument.getTitle());
+        }
+        return convertToDto(updatedDocument, null);
+    }
+    
+    /**
+     * Run the save subscribers over a document's content as stored in eXist-db, after it
+     * was changed there without passing through a save (node patch). eXist-db is only read
+     * when a subscriber has something to read.
+     */
+    private void reparseStoredContent(XmlDocument document) {
+        try (SavePipeline.Pass pass = savePipeline.newPass(false, null)) {
+            if (pass.readsContent()) {
+                existDbService.streamDocument(document.getExistDbId(), null, response -> {
+                    xmlStreamParser.parse(response.getBody(), pass.handler());
+                    return null;
+                });
+            }
+            pass.apply(document);
+        } catch (HttpClientErrorException.NotFound | MalformedXmlException e) {
+            titleService.setTitle(document, null);
+        }
+    }
+    
+    private record CachedCount(long value, long countedAt) {}
+    
+    /**
+     * Run {@code action} once the current transaction has committed (right away if there
+     * is none), so in-memory state never shows a change that was rolled back.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    private static void checkVersion(XmlDocument document, Long expectedVersion) {
+        if (expectedVersion != null && document.getVersion() != expectedVersion) {
+            throw new DocumentVersionConflictException("Document " + document.getId() + " has been modified (current version "
+                + document.getVersion() + ", expected " + expectedVersion + ")");
+        }
+    }
+    
+    /**
+     * Reject operations on the same node or on a node and one of its descendants; their
+     * outcome would depend on the order in which eXist-db applies them.
+     */
+    private static void checkNoOverlap(List<NodeOperation> operations) {
+        for (int i = 0; i < operations.size(); i++) {
+            for (int j = i + 1; j < operations.size(); j++) {
+                String a = operations.get(i).getNodeId();
+                String b = operations.get(j).getNodeId();
+                if (a.equals(b) || a.startsWith(b + ".") || b.startsWith(a + ".")) {
+                    throw new IllegalArgumentException("Overlapping node operations: " + a + " and " + b);
+                }
+            }
+        }
     }
     
     public void deleteDocument(Long id) {
         XmlDocument document = repository.findById(id)
             .orElseThrow(() -> new RuntimeException("Document not found with id: " + id));
         
-        // Delete from eXist-db (if existDbId exists)
+        // Delete from eXist-db through the outbox (if existDbId exists)
         if (document.getExistDbId() != null && !document.getExistDbId().trim().isEmpty()) {
-            try {
-                existDbService.deleteDocument(document.getExistDbId());
-            } catch (Exception e) {
-                // Log the error but continue with PostgreSQL deletion
-                System.err.println("Warning: Failed to delete document from eXist-db: " + e.getMessage());
-                // Don't throw the exception - continue with PostgreSQL cleanup
-            }
+            outbox.enqueueDelete(document.getExistDbId());
+            contentStore.delete(document.getExistDbId());
         }
         
         // Delete from PostgreSQL
         repository.delete(document);
+        afterCommit(() -> nameSearchIndex.remove(id));
     }
     
-    public ValidationResult validateXml(String content) {
+    /**
+     * Check that content is well-formed XML and, when a schema is given or configured,
+     * valid against it. The content is streamed through a reused SAX parser (and pooled
+     * schema validator) without building a tree; every schema error is reported with its
+     * position.
+     * 
+     * @param schema classpath path of the schema to validate against, or null for the configured one
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ValidationResult validateXml(String content, String schema) {
+        if (content == null || content.isBlank()) {
+            return ValidationResult.invalid("XML content is empty");
+        }
+        if (content.charAt(firstNonWhitespace(content)) != '<') {
+            return ValidationResult.invalid("XML must start with a tag");
+        }
         try {
-            // Basic XML validation - check for well-formedness
-            if (content == null || content.trim().isEmpty()) {
-                return ValidationResult.invalid("XML content is empty");
+            if (schema == null && !schemaValidator.isEnabled()) {
+                xmlStreamParser.parse(new StringReader(content));
+                return ValidationResult.valid();
             }
-            
-            // Check for basic XML structure
-            String trimmed = content.trim();
-            if (!trimmed.startsWith("<")) {
-                return ValidationResult.invalid("XML must start with a tag");
+            XmlSchemaValidator.CompiledSchema compiled = schema != null
+                ? schemaValidator.schema(schema)
+                : schemaValidator.defaultSchema();
+            return toResult(schemaValidator.validate(new StringReader(content), compiled));
+        } catch (MalformedXmlException e) {
+            return ValidationResult.invalid("Invalid XML: " + e.getMessage(), e.getLineNumber(), e.getColumnNumber());
+        } catch (IOException e) {
+            return ValidationResult.invalid("Invalid XML: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Check one subtree of a document, e.g. an edited table-view cell, against the schema
+     * declaration at its root-to-node path. Only the fragment is parsed, so the cost does
+     * not depend on the size of the document it belongs to.
+     * 
+     * @param path root-to-node path like /library/book[2]/title; prefixes and positions are ignored
+     * @param schema classpath path of the schema to validate against, or null for the configured one
+     * @throws IllegalArgumentException if the path is not allowed by the schema
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ValidationResult validateFragment(String content, String path, String schema) {
+        if (content == null || content.isBlank()) {
+            return ValidationResult.invalid("XML content is empty");
+        }
+        List<String> steps = parsePath(path);
+        try {
+            if (schema == null && !schemaValidator.isEnabled()) {
+                xmlStreamParser.parse(new StringReader(content));
+                return ValidationResult.valid();
             }
-            
-            // Try to parse with a simple XML parser
-            javax.xml.parsers.DocumentBuilderFactory factory = javax.xml.parsers.DocumentBuilderFactory.newInstance();
-            factory.setValidating(false);
-            factory.setNamespaceAware(true);
-            javax.xml.parsers.DocumentBuilder builder = factory.newDocumentBuilder();
-            
-            // Create a simple error handler
-            builder.setErrorHandler(new org.xml.sax.ErrorHandler() {
-                @Override
-                public void warning(org.xml.sax.SAXParseException e) throws org.xml.sax.SAXException {
-                    // Ignore warnings
-                }
-                
-                @Override
-                public void error(org.xml.sax.SAXParseException e) throws org.xml.sax.SAXException {
-                    throw e;
-                }
-                
-                @Override
-                public void fatalError(org.xml.sax.SAXParseException e) throws org.xml.sax.SAXException {
-                    throw e;
-                }
-            });
-            
-            // Parse the XML
-            java.io.StringReader reader = new java.io.StringReader(content);
-            org.xml.sax.InputSource inputSource = new org.xml.sax.InputSource(reader);
-            builder.parse(inputSource);
-            
-            return ValidationResult.valid();
-            
-        } catch (Exception e) {
+            XmlSchemaValidator.CompiledSchema compiled = schema != null
+                ? schemaValidator.schema(schema)
+                : schemaValidator.defaultSchema();
+            return toResult(schemaValidator.validateFragment(new StringReader(content), compiled, steps));
+        } catch (MalformedXmlException e) {
+            return ValidationResult.invalid("Invalid XML: " + e.getMessage(), e.getLineNumber(), e.getColumnNumber());
+        } catch (IOException e) {
             return ValidationResult.invalid("Invalid XML: " + e.getMessage());
         }
     }
     
-    private XmlDocumentDto convertToDto(XmlDocument document) {
-        return new XmlDocumentDto(
+    private static List<String> parsePath(String path) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Path is required");
+        }
+        List<String> steps = new ArrayList<>();
+        for (String step : path.split("/")) {
+            if (step.isBlank()) {
+                continue;
+            }
+            int predicate = step.indexOf('[');
+            String name = (predicate < 0 ? step : step.substring(0, predicate)).trim();
+            name = name.substring(name.indexOf(':') + 1);
+            if (name.isEmpty() || name.startsWith("@") || name.equals("*") || name.startsWith(".")) {
+                throw new IllegalArgumentException("Path steps must be element names: " + path);
+            }
+            steps.add(name);
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Path is required");
+        }
+        return steps;
+    }
+    
+    private static ValidationResult toResult(List<SchemaViolation> violations) {
+        if (violations.isEmpty()) {
+            return ValidationResult.valid();
+        }
+        return ValidationResult.invalid(violations.stream()
+            .map(v -> new ValidationErrorDto(v.message(), v.lineNumber(), v.columnNumber()))
+            .collect(Collectors.toList()));
+    }
+    
+    private static int firstNonWhitespace(String content) {
+        int i = 0;
+        while (i < content.length() && Character.isWhitespace(content.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private XmlDocumentDto convertToDto(XmlDocument document, String content) {
+        XmlDocumentDto dto = new XmlDocumentDto(
             document.getId().toString(),
             document.getName(),
-            document.getContent(),
+            content,
             document.getCreatedAt(),
             document.getUpdatedAt()
         );
+        dto.setVersion(document.getVersion());
+        dto.setTitle(emptyToNull(document.getTitle()));
+        return dto;
+    }
+    
+    private XmlDocumentSummaryDto convertToSummaryDto(XmlDocumentSummary summary) {
+        return new XmlDocumentSummaryDto(
+            summary.getId().toString(),
+            summary.getName(),
+            emptyToNull(summary.getTitle()),
+            summary.getCreatedAt(),
+            summary.getUpdatedAt()
+        );
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    private HttpRange parseSingleRange(String range) {
+        if (range == null || range.isBlank()) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Copy up to {@code limit} bytes from eXist-db to the client. Failures writing to the
+     * client (e.g. the browser aborting a download) are rethrown unchecked so that they are
+     * not mistaken for eXist-db I/O errors by the RestTemplate and the health monitor.
+     */
+    private void copyToResponse(InputStream in, HttpServletResponse response, long limit) throws IOException {
+        OutputStream out;
+        try {
+            out = response.getOutputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        long remaining = limit;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            try {
+                out.write(buffer, 0, read);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            remaining -= read;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
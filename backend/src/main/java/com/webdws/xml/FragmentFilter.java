@@ -0,0 +1,105 @@
+package com.webdws.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import java.util.List;
+
+/**
+ * FragmentFilter - Presents a Fragment to a Validator as It Sits in Its Document
+ * 
+ * A fragment cut out of a document loses the default namespace it inherited there, and its
+ * declaration may have been promoted under another name to be validated on its own. This
+ * filter handles:
+ * - Putting elements without a namespace in the schema's target namespace, when the root has none,
+ *   except below an explicit {@code xmlns=""} (how a document reaches unqualified locals)
+ * - Renaming the root element to the promoted declaration
+ * - Reporting a root element that does not match the last step of the path
+ */
+class FragmentFilter extends XMLFilterImpl {
+    
+    private final String expectedName;
+    private final String declaredName;
+    private final String namespace;
+    private final boolean qualified;
+    private final List<SchemaViolation> violations;
+    private Locator locator;
+    private int depth;
+    private boolean inheritNamespace;
+    private boolean undeclaring;
+    // Depth of the element that undeclared the default namespace, 0 if none is open
+    private int undeclaredDepth;
+    
+    /**
+     * @param expectedName local name the fragment root must have (last step of the path)
+     * @param declaredName name of the declaration the fragment is validated against
+     * @param namespace target namespace of the schema ("" if none)
+     * @param qualified whether the declaration's instances are in the target namespace
+     */
+    FragmentFilter(ContentHandler downstream, String expectedName, String declaredName, String namespace,
+                   boolean qualified, List<SchemaViolation> violations) {
+        setContentHandler(downstream);
+        this.expectedName = expectedName;
+        this.declaredName = declaredName;
+        this.namespace = namespace;
+        this.qualified = qualified;
+        this.violations = violations;
+    }
+    
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+        super.setDocumentLocator(locator);
+    }
+    
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        if (prefix.isEmpty() && uri.isEmpty()) {
+            undeclaring = true;
+        }
+        super.startPrefixMapping(prefix, uri);
+    }
+    
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        boolean undeclares = undeclaring;
+        undeclaring = false;
+        if (depth++ == 0) {
+            if (!expectedName.equals(localName)) {
+                violations.add(new SchemaViolation("Fragment root element " + localName + " does not match path step "
+                    + expectedName, locator != null ? locator.getLineNumber() : -1,
+                    locator != null ? locator.getColumnNumber() : -1));
+            }
+            // Unqualified locals keep no namespace below the root
+            inheritNamespace = qualified && uri.isEmpty() && !namespace.isEmpty();
+            String rootUri = uri.isEmpty() && !namespace.isEmpty() ? namespace : uri;
+            super.startElement(rootUri, declaredName, declaredName, atts);
+            return;
+        }
+        if (undeclares && undeclaredDepth == 0) {
+            undeclaredDepth = depth;
+        }
+        super.startElement(mapUri(uri), localName, qName, atts);
+    }
+    
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (--depth == 0) {
+            String rootUri = uri.isEmpty() && !namespace.isEmpty() ? namespace : uri;
+            super.endElement(rootUri, declaredName, declaredName);
+            return;
+        }
+        String mappedUri = mapUri(uri);
+        if (depth + 1 == undeclaredDepth) {
+            undeclaredDepth = 0;
+        }
+        super.endElement(mappedUri, localName, qName);
+    }
+    
+    private String mapUri(String uri) {
+        return inheritNamespace && undeclaredDepth == 0 && uri.isEmpty() ? namespace : uri;
+    }
+}
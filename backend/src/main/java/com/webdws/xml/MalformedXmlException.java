@@ -0,0 +1,35 @@
+package com.webdws.xml;
+
+/**
+ * MalformedXmlException - Thrown when XML content is not well-formed
+ * 
+ * Carries the position of the first error reported by the parser, so that
+ * callers can point the user to the offending line and column.
+ */
+public class MalformedXmlException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final int lineNumber;
+    private final int columnNumber;
+    
+    public MalformedXmlException(String message, int lineNumber, int columnNumber, Throwable cause) {
+        super(message, cause);
+        this.lineNumber = lineNumber;
+        this.columnNumber = columnNumber;
+    }
+    
+    /**
+     * Line of the first error, or -1 if unknown
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Column of the first error, or -1 if unknown
+     */
+    public int getColumnNumber() {
+        return columnNumber;
+    }
+}
@@ -0,0 +1,38 @@
+package com.webdws.xml;
+
+import java.util.List;
+
+/**
+ * SchemaValidationException - Thrown when well-formed XML does not match its schema
+ * 
+ * Carries every violation found (up to the configured maximum), so that callers can
+ * report all of them with their positions rather than only the first.
+ */
+public class SchemaValidationException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final List<SchemaViolation> violations;
+    
+    public SchemaValidationException(String schema, List<SchemaViolation> violations) {
+        super(describe(schema, violations));
+        this.violations = List.copyOf(violations);
+    }
+    
+    public List<SchemaViolation> getViolations() {
+        return violations;
+    }
+    
+    private static String describe(String schema, List<SchemaViolation> violations) {
+        SchemaViolation first = violations.get(0);
+        StringBuilder message = new StringBuilder("Document does not match schema ").append(schema).append(": ");
+        if (first.lineNumber() >= 0) {
+            message.append("line ").append(first.lineNumber()).append(", column ").append(first.columnNumber()).append(": ");
+        }
+        message.append(first.message());
+        if (violations.size() > 1) {
+            message.append(" (and ").append(violations.size() - 1).append(" more)");
+        }
+        return message.toString();
+    }
+}
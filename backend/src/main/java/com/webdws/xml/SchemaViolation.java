@@ -0,0 +1,12 @@
+package com.webdws.xml;
+
+import java.io.Serializable;
+
+/**
+ * SchemaViolation - One Error Reported by Schema Validation
+ * 
+ * Holds the validator's message and the position it refers to; line and column
+ * are -1 when unknown.
+ */
+public record SchemaViolation(String message, int lineNumber, int columnNumber) implements Serializable {
+}
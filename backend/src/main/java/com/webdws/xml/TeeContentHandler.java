@@ -0,0 +1,108 @@
+package com.webdws.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+import java.util.List;
+
+/**
+ * TeeContentHandler - ContentHandler that passes every event on to several handlers
+ * 
+ * Lets any number of consumers (validation, title, extractors) share a single parse of
+ * a document. Handlers receive each event in list order; an exception from one of them
+ * ends the parse.
+ */
+public class TeeContentHandler implements ContentHandler {
+    
+    private final ContentHandler[] handlers;
+    
+    public TeeContentHandler(List<? extends ContentHandler> handlers) {
+        this.handlers = handlers.toArray(new ContentHandler[0]);
+    }
+    
+    /**
+     * A handler feeding all given handlers; the handler itself if there is only one.
+     */
+    public static ContentHandler of(List<? extends ContentHandler> handlers) {
+        return handlers.size() == 1 ? handlers.get(0) : new TeeContentHandler(handlers);
+    }
+    
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        for (ContentHandler handler : handlers) {
+            handler.setDocumentLocator(locator);
+        }
+    }
+    
+    @Override
+    public void startDocument() throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.startDocument();
+        }
+    }
+    
+    @Override
+    public void endDocument() throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.endDocument();
+        }
+    }
+    
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.startPrefixMapping(prefix, uri);
+        }
+    }
+    
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.endPrefixMapping(prefix);
+        }
+    }
+    
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.startElement(uri, localName, qName, atts);
+        }
+    }
+    
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.endElement(uri, localName, qName);
+        }
+    }
+    
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.characters(ch, start, length);
+        }
+    }
+    
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.ignorableWhitespace(ch, start, length);
+        }
+    }
+    
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.processingInstruction(target, data);
+        }
+    }
+    
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+        for (ContentHandler handler : handlers) {
+            handler.skippedEntity(name);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.webdws.xml;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * TeeInputStream - InputStream that copies everything it reads to an OutputStream
+ * 
+ * Used to inspect a stream (e.g. parse it) while forwarding the exact same bytes
+ * elsewhere, without holding the content in memory. Closing the tee does not close
+ * the underlying stream or the branch (parsers close their input when done, but the
+ * remainder may still have to be drained); their owners close them.
+ */
+public class TeeInputStream extends FilterInputStream {
+    
+    private final OutputStream branch;
+    
+    public TeeInputStream(InputStream in, OutputStream branch) {
+        super(in);
+        this.branch = branch;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            branch.write(b);
+        }
+        return b;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            branch.write(buffer, offset, read);
+        }
+        return read;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes must still reach the branch
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+    
+    @Override
+    public void close() {
+        // Owned by the caller, see class comment
+    }
+    
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+    
+    /**
+     * Read (and so forward) whatever is left of the underlying stream.
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[8192];
+        while (read(buffer, 0, buffer.length) >= 0) {
+            // keep copying
+        }
+    }
+}
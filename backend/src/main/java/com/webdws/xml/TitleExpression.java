@@ -0,0 +1,378 @@
+package com.webdws.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TitleExpression - Title XPath Evaluated While a Document Is Parsed
+ * 
+ * This class compiles the XPath subset used for entry titles, e.g.
+ * {@code concat(/entry/lemma, ' (', /entry/part-of-speech, ')')}, and provides:
+ * - Paths of element steps separated by / or //, with * for any element and an optional final @attribute step
+ * - String literals, concat(), normalize-space() and string()
+ * - Evaluation as a SAX handler, so a title costs no extra pass over the document
+ * 
+ * A path yields the string value of its first matching node, as in XPath 1.0. Steps
+ * match local names; namespace prefixes in the expression are ignored.
+ */
+public final class TitleExpression {
+    
+    /** Titles are cut to this many characters (the size of the title column). */
+    public static final int MAX_LENGTH = 1000;
+    
+    // Text collected per path; generous so normalize-space() still has enough to work with
+    private static final int MAX_CAPTURE = 4 * MAX_LENGTH;
+    
+    private static final TitleExpression NONE = new TitleExpression("", null, List.of());
+    
+    private final String source;
+    private final Expr root;
+    private final List<Path> paths;
+    
+    private TitleExpression(String source, Expr root, List<Path> paths) {
+        this.source = source;
+        this.root = root;
+        this.paths = paths;
+    }
+    
+    /**
+     * Compile a title XPath; a null or blank expression gives documents no title.
+     * 
+     * @throws IllegalArgumentException if the expression is outside the supported subset
+     */
+    public static TitleExpression compile(String xpath) {
+        if (xpath == null || xpath.isBlank()) {
+            return NONE;
+        }
+        Parser parser = new Parser(xpath.trim());
+        Expr root = parser.parseExpr();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("unexpected input");
+        }
+        return new TitleExpression(xpath.trim(), root, parser.paths);
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    public boolean isEmpty() {
+        return root == null;
+    }
+    
+    /**
+     * A SAX handler computing the title of one document; read it with
+     * {@link Evaluation#getTitle()} after the parse.
+     */
+    public Evaluation newEvaluation() {
+        return new Evaluation();
+    }
+    
+    public class Evaluation extends DefaultHandler {
+        
+        private final List<String> openElements = new ArrayList<>();
+        private final String[] values = new String[paths.size()];
+        private final StringBuilder[] captures = new StringBuilder[paths.size()];
+        private final int[] captureDepths = new int[paths.size()];
+        private int capturing;
+        
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            openElements.add(localName.isEmpty() ? localName(qName) : localName);
+            for (int i = 0; i < values.length; i++) {
+                Path path = paths.get(i);
+                if (values[i] != null || captures[i] != null || !path.matches(openElements)) {
+                    continue;
+                }
+                if (path.attribute == null) {
+                    captures[i] = new StringBuilder();
+                    captureDepths[i] = openElements.size();
+                    capturing++;
+                } else {
+                    values[i] = attributeValue(attributes, path.attribute);
+                }
+            }
+        }
+        
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing == 0) {
+                return;
+            }
+            for (StringBuilder capture : captures) {
+                if (capture != null && capture.length() < MAX_CAPTURE) {
+                    capture.append(ch, start, Math.min(length, MAX_CAPTURE - capture.length()));
+                }
+            }
+        }
+        
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (capturing > 0) {
+                for (int i = 0; i < captures.length; i++) {
+                    if (captures[i] != null && captureDepths[i] == openElements.size()) {
+                        values[i] = captures[i].toString();
+                        captures[i] = null;
+                        capturing--;
+                    }
+                }
+            }
+            openElements.remove(openElements.size() - 1);
+        }
+        
+        /**
+         * The title, whitespace-trimmed and cut to {@link #MAX_LENGTH}; null when the
+         * expression is empty or evaluates to an empty string.
+         */
+        public String getTitle() {
+            if (root == null) {
+                return null;
+            }
+            String title = root.evaluate(values).strip();
+            if (title.isEmpty()) {
+                return null;
+            }
+            return title.length() > MAX_LENGTH ? title.substring(0, MAX_LENGTH) : title;
+        }
+    }
+    
+    private static String attributeValue(Attributes attributes, String name) {
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String attributeName = attributes.getLocalName(i);
+            if (attributeName == null || attributeName.isEmpty()) {
+                attributeName = localName(attributes.getQName(i));
+            }
+            if (attributeName.equals(name)) {
+                return attributes.getValue(i);
+            }
+        }
+        return null;
+    }
+    
+    private static String localName(String qName) {
+        return qName.substring(qName.indexOf(':') + 1);
+    }
+    
+    private interface Expr {
+        String evaluate(String[] values);
+    }
+    
+    private record Literal(String text) implements Expr {
+        @Override
+        public String evaluate(String[] values) {
+            return text;
+        }
+    }
+    
+    private record Concat(List<Expr> args) implements Expr {
+        @Override
+        public String evaluate(String[] values) {
+            StringBuilder result = new StringBuilder();
+            for (Expr arg : args) {
+                result.append(arg.evaluate(values));
+            }
+            return result.toString();
+        }
+    }
+    
+    private record NormalizeSpace(Expr arg) implements Expr {
+        @Override
+        public String evaluate(String[] values) {
+            return arg.evaluate(values).strip().replaceAll("\\s+", " ");
+        }
+    }
+    
+    /**
+     * @param steps element names (null for *) from the root; descendant[i] is true for //
+     * @param attribute name of the final attribute step, or null
+     */
+    private record Path(int index, List<String> steps, List<Boolean> descendant, String attribute) implements Expr {
+        
+        @Override
+        public String evaluate(String[] values) {
+            return values[index] != null ? values[index] : "";
+        }
+        
+        boolean matches(List<String> openElements) {
+            return openElements.size() >= steps.size() && matches(0, openElements, 0);
+        }
+        
+        private boolean matches(int step, List<String> openElements, int depth) {
+            if (step == steps.size()) {
+                return depth == openElements.size();
+            }
+            if (!descendant.get(step)) {
+                return depth < openElements.size()
+                    && nameMatches(steps.get(step), openElements.get(depth))
+                    && matches(step + 1, openElements, depth + 1);
+            }
+            for (int i = depth; i < openElements.size(); i++) {
+                if (nameMatches(steps.get(step), openElements.get(i)) && matches(step + 1, openElements, i + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private static boolean nameMatches(String step, String element) {
+            return step == null || step.equals(element);
+        }
+    }
+    
+    /**
+     * Recursive-descent parser for the supported subset.
+     */
+    private static class Parser {
+        private final String input;
+        private final List<Path> paths = new ArrayList<>();
+        private int pos;
+        
+        Parser(String input) {
+            this.input = input;
+        }
+        
+        Expr parseExpr() {
+            skipWhitespace();
+            if (atEnd()) {
+                throw error("expression expected");
+            }
+            char c = input.charAt(pos);
+            if (c == '\'' || c == '"') {
+                int end = input.indexOf(c, pos + 1);
+                if (end < 0) {
+                    throw error("unterminated string literal");
+                }
+                String text = input.substring(pos + 1, end);
+                pos = end + 1;
+                return new Literal(text);
+            }
+            if (c == '/') {
+                return parsePath();
+            }
+            int start = pos;
+            String name = parseName();
+            skipWhitespace();
+            if (!atEnd() && input.charAt(pos) == '(') {
+                pos++;
+                return parseFunction(name);
+            }
+            // Relative path: the context node is the document node
+            pos = start;
+            return parsePath();
+        }
+        
+        private Expr parseFunction(String name) {
+            List<Expr> args = new ArrayList<>();
+            skipWhitespace();
+            if (!atEnd() && input.charAt(pos) != ')') {
+                args.add(parseExpr());
+                skipWhitespace();
+                while (!atEnd() && input.charAt(pos) == ',') {
+                    pos++;
+                    args.add(parseExpr());
+                    skipWhitespace();
+                }
+            }
+            if (atEnd() || input.charAt(pos) != ')') {
+                throw error("')' expected");
+            }
+            pos++;
+            switch (name) {
+                case "concat":
+                    if (args.size() < 2) {
+                        throw error("concat() needs at least two arguments");
+                    }
+                    return new Concat(args);
+                case "normalize-space":
+                    if (args.size() != 1) {
+                        throw error("normalize-space() needs one argument");
+                    }
+                    return new NormalizeSpace(args.get(0));
+                case "string":
+                    if (args.size() != 1) {
+                        throw error("string() needs one argument");
+                    }
+                    return args.get(0);
+                default:
+                    throw error("function " + name + "() is not supported");
+            }
+        }
+        
+        private Path parsePath() {
+            List<String> steps = new ArrayList<>();
+            List<Boolean> descendant = new ArrayList<>();
+            String attribute = null;
+            boolean first = true;
+            while (true) {
+                boolean isDescendant = false;
+                if (input.startsWith("//", pos)) {
+                    isDescendant = true;
+                    pos += 2;
+                } else if (input.startsWith("/", pos)) {
+                    pos++;
+                } else if (!first) {
+                    break;
+                }
+                first = false;
+                if (input.startsWith("@", pos)) {
+                    pos++;
+                    if (isDescendant) {
+                        throw error("//@attribute is not supported");
+                    }
+                    attribute = localName(parseName());
+                    break;
+                }
+                if (input.startsWith("*", pos)) {
+                    pos++;
+                    steps.add(null);
+                } else {
+                    steps.add(localName(parseName()));
+                }
+                descendant.add(isDescendant);
+                if (!atEnd() && input.charAt(pos) == '[') {
+                    throw error("predicates are not supported");
+                }
+            }
+            if (steps.isEmpty()) {
+                throw error("a path needs at least one element step");
+            }
+            Path path = new Path(paths.size(), List.copyOf(steps), List.copyOf(descendant), attribute);
+            paths.add(path);
+            return path;
+        }
+        
+        private String parseName() {
+            int start = pos;
+            while (!atEnd()) {
+                char c = input.charAt(pos);
+                if (Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            if (pos == start || !Character.isLetter(input.charAt(start)) && input.charAt(start) != '_') {
+                throw error("name expected");
+            }
+            return input.substring(start, pos);
+        }
+        
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        boolean atEnd() {
+            return pos >= input.length();
+        }
+        
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Unsupported title XPath '" + input + "' at position " + pos + ": " + message);
+        }
+    }
+}
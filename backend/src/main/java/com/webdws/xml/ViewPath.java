@@ -0,0 +1,465 @@
+package com.webdws.xml;
+
+import java.util.Set;
+
+/**
+ * ViewPath - Table-View XPath Restricted to Path Steps and Predicates
+ * 
+ * View XPaths come from clients and end up in an XQuery that eXist-db runs with the
+ * application's credentials, so they are parsed here and only this subset is accepted:
+ * - Steps separated by / or //, with axes (child::, attribute::, ...), @, ., .., *, prefix:* and *:name
+ * - Kind tests without arguments: node(), text(), comment(), element(), attribute(), processing-instruction()
+ * - Unions of such paths with |
+ * - Predicates holding relative paths, string and number literals, comparisons, and, or,
+ *   parentheses and a fixed set of side-effect-free functions (contains(), position(), ...)
+ * 
+ * Variables, other function calls (doc(), xmldb:*, file:*, util:eval(), ...), FLWOR and update
+ * expressions, constructors, comments and braces are all rejected. The accepted expression is
+ * written out again from what was parsed ({@link #toXPath()}), so eXist-db never sees text the
+ * parser did not understand.
+ */
+public final class ViewPath {
+    
+    // Nesting of predicates and parentheses; deeper expressions are rejected
+    private static final int MAX_DEPTH = 32;
+    
+    private static final Set<String> AXES = Set.of(
+        "child", "descendant", "attribute", "self", "descendant-or-self", "following-sibling",
+        "following", "parent", "ancestor", "preceding-sibling", "preceding", "ancestor-or-self");
+    
+    private static final Set<String> KIND_TESTS = Set.of(
+        "node", "text", "comment", "element", "attribute", "processing-instruction");
+    
+    private static final Set<String> FUNCTIONS = Set.of(
+        "not", "true", "false", "boolean", "position", "last", "count", "exists", "empty",
+        "string", "string-length", "normalize-space", "contains", "starts-with", "ends-with",
+        "lower-case", "upper-case", "name", "local-name", "number");
+    
+    private static final Set<String> WORD_OPERATORS = Set.of("eq", "ne", "lt", "le", "gt", "ge");
+    
+    private final String xpath;
+    private final boolean singlePath;
+    
+    private ViewPath(String xpath, boolean singlePath) {
+        this.xpath = xpath;
+        this.singlePath = singlePath;
+    }
+    
+    /**
+     * Parse a row XPath: absolute (/entry, //sense) or relative to each document.
+     * 
+     * @throws IllegalArgumentException if the expression is outside the supported subset
+     */
+    public static ViewPath row(String xpath) {
+        return compile(xpath, true, "row XPath");
+    }
+    
+    /**
+     * Parse a column XPath, relative to the row node.
+     * 
+     * @throws IllegalArgumentException if the expression is outside the supported subset
+     */
+    public static ViewPath column(String xpath) {
+        return compile(xpath, false, "column XPath");
+    }
+    
+    private static ViewPath compile(String xpath, boolean absoluteAllowed, String kind) {
+        if (xpath == null || xpath.isBlank()) {
+            throw new IllegalArgumentException("The " + kind + " must not be empty");
+        }
+        Parser parser = new Parser(xpath.trim(), kind);
+        boolean singlePath = parser.parseUnion(absoluteAllowed);
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("unexpected input");
+        }
+        return new ViewPath(parser.out.toString(), singlePath);
+    }
+    
+    /**
+     * The expression as parsed, normalized (whitespace, quotes); safe to embed in an XQuery.
+     */
+    public String toXPath() {
+        return xpath;
+    }
+    
+    /**
+     * Whether the expression is one path rather than a union of paths.
+     */
+    public boolean isSinglePath() {
+        return singlePath;
+    }
+    
+    public boolean isAbsolute() {
+        return xpath.startsWith("/");
+    }
+    
+    @Override
+    public String toString() {
+        return xpath;
+    }
+    
+    /**
+     * Recursive-descent parser for the supported subset, writing the accepted expression
+     * to {@code out} as it goes.
+     */
+    private static class Parser {
+        private final String input;
+        private final String kind;
+        private final StringBuilder out = new StringBuilder();
+        private int pos;
+        private int depth;
+        
+        Parser(String input, String kind) {
+            this.input = input;
+            this.kind = kind;
+        }
+        
+        /**
+         * path ('|' path)*; returns whether there was a single path.
+         */
+        boolean parseUnion(boolean absoluteAllowed) {
+            parsePath(absoluteAllowed);
+            boolean single = true;
+            while (skipWhitespace() && peek('|')) {
+                pos++;
+                out.append(" | ");
+                parsePath(absoluteAllowed);
+                single = false;
+            }
+            return single;
+        }
+        
+        private void parsePath(boolean absoluteAllowed) {
+            skipWhitespace();
+            if (peek('/')) {
+                if (!absoluteAllowed) {
+                    throw error("only relative paths are allowed here");
+                }
+                parseSeparator();
+            }
+            parseStep();
+            while (skipWhitespace() && peek('/')) {
+                parseSeparator();
+                parseStep();
+            }
+        }
+        
+        private void parseSeparator() {
+            if (input.startsWith("//", pos)) {
+                pos += 2;
+                out.append("//");
+            } else {
+                pos++;
+                out.append('/');
+            }
+        }
+        
+        private void parseStep() {
+            skipWhitespace();
+            if (input.startsWith("..", pos)) {
+                pos += 2;
+                out.append("..");
+            } else if (peek('.')) {
+                pos++;
+                out.append('.');
+            } else {
+                if (peek('@')) {
+                    pos++;
+                    out.append('@');
+                } else if (startsName()) {
+                    int start = pos;
+                    String name = parseName();
+                    skipWhitespace();
+                    if (input.startsWith("::", pos)) {
+                        if (!AXES.contains(name)) {
+                            throw error("axis " + name + ":: is not supported");
+                        }
+                        pos += 2;
+                        out.append(name).append("::");
+                    } else {
+                        pos = start;
+                    }
+                }
+                parseNodeTest();
+            }
+            while (skipWhitespace() && peek('[')) {
+                pos++;
+                out.append('[');
+                enter();
+                parseExpr();
+                expect(']');
+                out.append(']');
+                depth--;
+            }
+        }
+        
+        private void parseNodeTest() {
+            skipWhitespace();
+            if (peek('*')) {
+                pos++;
+                if (peek(':') && !input.startsWith("::", pos)) {
+                    pos++;
+                    out.append("*:").append(parseName());
+                } else {
+                    out.append('*');
+                }
+                return;
+            }
+            if (!startsName()) {
+                throw error("step expected");
+            }
+            String name = parseName();
+            if (peek(':') && !input.startsWith("::", pos)) {
+                pos++;
+                if (peek('*')) {
+                    pos++;
+                    out.append(name).append(":*");
+                } else {
+                    String local = parseName();
+                    if (skipWhitespace() && peek('(')) {
+                        throw error("function " + name + ":" + local + "() is not allowed");
+                    }
+                    out.append(name).append(':').append(local);
+                }
+                return;
+            }
+            if (skipWhitespace() && peek('(')) {
+                if (!KIND_TESTS.contains(name)) {
+                    throw error("function " + name + "() is not allowed here");
+                }
+                pos++;
+                expect(')');
+                out.append(name).append("()");
+                return;
+            }
+            out.append(name);
+        }
+        
+        /**
+         * Predicate content: or-expression over comparisons.
+         */
+        private void parseExpr() {
+            parseAnd();
+            while (acceptWord("or")) {
+                out.append(" or ");
+                parseAnd();
+            }
+        }
+        
+        private void parseAnd() {
+            parseComparison();
+            while (acceptWord("and")) {
+                out.append(" and ");
+                parseComparison();
+            }
+        }
+        
+        private void parseComparison() {
+            parseOperand();
+            skipWhitespace();
+            String operator = null;
+            for (String symbol : new String[] {"!=", "<=", ">=", "=", "<", ">"}) {
+                if (input.startsWith(symbol, pos)) {
+                    operator = symbol;
+                    break;
+                }
+            }
+            if (operator != null) {
+                pos += operator.length();
+            } else {
+                for (String word : WORD_OPERATORS) {
+                    if (acceptWord(word)) {
+                        operator = word;
+                        break;
+                    }
+                }
+            }
+            if (operator != null) {
+                out.append(' ').append(operator).append(' ');
+                parseOperand();
+            }
+        }
+        
+        private void parseOperand() {
+            skipWhitespace();
+            if (atEnd()) {
+                throw error("expression expected");
+            }
+            char c = input.charAt(pos);
+            if (c == '\'' || c == '"') {
+                parseString(c);
+            } else if (Character.isDigit(c) || c == '.' && pos + 1 < input.length() && Character.isDigit(input.charAt(pos + 1))) {
+                parseNumber();
+            } else if (c == '(') {
+                pos++;
+                out.append('(');
+                enter();
+                parseExpr();
+                expect(')');
+                out.append(')');
+                depth--;
+            } else if (startsName() && isFunctionCall()) {
+                parseFunction();
+            } else {
+                parseUnion(false);
+            }
+        }
+        
+        /**
+         * Whether a name at the current position is followed by '(' and is not a kind test,
+         * a prefixed name or an axis.
+         */
+        private boolean isFunctionCall() {
+            int start = pos;
+            String name = parseName();
+            boolean call = skipWhitespace() && peek('(') && !KIND_TESTS.contains(name);
+            pos = start;
+            return call;
+        }
+        
+        private void parseFunction() {
+            String name = parseName();
+            if (!FUNCTIONS.contains(name)) {
+                throw error("function " + name + "() is not allowed");
+            }
+            skipWhitespace();
+            pos++;
+            out.append(name).append('(');
+            enter();
+            skipWhitespace();
+            if (!peek(')')) {
+                parseExpr();
+                while (skipWhitespace() && peek(',')) {
+                    pos++;
+                    out.append(", ");
+                    parseExpr();
+                }
+            }
+            expect(')');
+            out.append(')');
+            depth--;
+        }
+        
+        /**
+         * A string literal ('' or "" escape the quote), written out double-quoted with
+         * quotes doubled and ampersands escaped, as XQuery reads them.
+         */
+        private void parseString(char quote) {
+            StringBuilder value = new StringBuilder();
+            pos++;
+            while (true) {
+                if (atEnd()) {
+                    throw error("unterminated string literal");
+                }
+                char c = input.charAt(pos++);
+                if (c == quote) {
+                    if (peek(quote)) {
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                value.append(c);
+            }
+            out.append('"').append(value.toString().replace("&", "&amp;").replace("\"", "\"\"")).append('"');
+        }
+        
+        private void parseNumber() {
+            int start = pos;
+            while (!atEnd() && Character.isDigit(input.charAt(pos))) {
+                pos++;
+            }
+            if (peek('.')) {
+                pos++;
+                while (!atEnd() && Character.isDigit(input.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (startsName()) {
+                throw error("unexpected input after number");
+            }
+            out.append(input, start, pos);
+        }
+        
+        private String parseName() {
+            int start = pos;
+            if (!startsName()) {
+                throw error("name expected");
+            }
+            pos++;
+            while (!atEnd()) {
+                char c = input.charAt(pos);
+                if (Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            return input.substring(start, pos);
+        }
+        
+        /**
+         * Consume a keyword operator (and, or, eq, ...) if it comes next as a whole word.
+         */
+        private boolean acceptWord(String word) {
+            skipWhitespace();
+            int end = pos + word.length();
+            if (!input.startsWith(word, pos)) {
+                return false;
+            }
+            if (end < input.length()) {
+                char next = input.charAt(end);
+                if (Character.isLetterOrDigit(next) || next == '_' || next == '-' || next == '.' || next == ':') {
+                    return false;
+                }
+            }
+            pos = end;
+            return true;
+        }
+        
+        private void expect(char c) {
+            skipWhitespace();
+            if (!peek(c)) {
+                throw error("'" + c + "' expected");
+            }
+            pos++;
+        }
+        
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw error("expression is nested too deeply");
+            }
+        }
+        
+        private boolean startsName() {
+            if (atEnd()) {
+                return false;
+            }
+            char c = input.charAt(pos);
+            return Character.isLetter(c) || c == '_';
+        }
+        
+        private boolean peek(char c) {
+            return !atEnd() && input.charAt(pos) == c;
+        }
+        
+        /**
+         * Skip whitespace; always true, so it can lead a condition.
+         */
+        boolean skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            return true;
+        }
+        
+        boolean atEnd() {
+            return pos >= input.length();
+        }
+        
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Unsupported " + kind + " '" + input + "' at position " + pos + ": " + message);
+        }
+    }
+}
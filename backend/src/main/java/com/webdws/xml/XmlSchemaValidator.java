@@ -0,0 +1,470 @@
+package com.webdws.xml;
+
+import com.webdws.config.ValidationConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
+
+import jakarta.annotation.PostConstruct;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * XmlSchemaValidator - Streaming Validation against Compiled XML Schemas
+ * 
+ * This component provides:
+ * - Compiled, thread-safe Schema objects, built once per schema path and cached
+ * - A pool of ValidatorHandlers per schema, so a validation allocates little
+ * - Validation as a SAX filter, fed by the same parse that checks well-formedness
+ * - Collection of all violations (up to a maximum) with line and column
+ * - Validation of a fragment against the declaration at its root-to-node path
+ * - Secure settings: schemas may only include local files, documents cannot load schemas or DTDs
+ */
+@Component
+public class XmlSchemaValidator {
+    
+    private static final String SCHEMA_ROOT = "schema/";
+    
+    @Autowired
+    private ValidationConfig config;
+    
+    @Autowired
+    private XmlStreamParser xmlStreamParser;
+    
+    private final Map<String, CompiledSchema> schemas = new ConcurrentHashMap<>();
+    
+    /**
+     * Compile the configured schema up front, so a broken schema fails startup rather
+     * than the first save.
+     */
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            defaultSchema();
+        }
+    }
+    
+    /**
+     * Whether a schema is configured for saves (webdws.validation.schema).
+     */
+    public boolean isEnabled() {
+        return !config.getSchema().isBlank();
+    }
+    
+    /**
+     * The schema configured for saves, compiled on first use.
+     */
+    public CompiledSchema defaultSchema() {
+        return schema(config.getSchema());
+    }
+    
+    /**
+     * A schema from the classpath (below {@code schema/}), compiled on first use.
+     * 
+     * @throws IllegalArgumentException if the path is outside {@code schema/} or does not exist
+     */
+    public CompiledSchema schema(String path) {
+        if (path == null || !path.startsWith(SCHEMA_ROOT) || !path.endsWith(".xsd") || path.contains("..")) {
+            throw new IllegalArgumentException("Schema must be an .xsd file below " + SCHEMA_ROOT + ": " + path);
+        }
+        return schemas.computeIfAbsent(path, this::compile);
+    }
+    
+    /**
+     * Drop the compiled form of a schema whose source has changed; it is compiled again
+     * on next use. Validations already running keep the old schema.
+     */
+    public void evict(String path) {
+        schemas.remove(path);
+    }
+    
+    /**
+     * A validation for a save: a filter in front of {@code downstream} when a schema is
+     * configured, else {@code downstream} itself with nothing to report.
+     */
+    public Validation newSaveValidation(ContentHandler downstream) {
+        return isEnabled() ? defaultSchema().newValidation(downstream) : passThrough(downstream);
+    }
+    
+    /**
+     * A validation that checks nothing and hands the events to {@code downstream}.
+     */
+    public Validation passThrough(ContentHandler downstream) {
+        return new Validation(null, null, downstream);
+    }
+    
+    /**
+     * Validate a character stream against a schema and return all violations (empty if
+     * the document is valid).
+     * 
+     * @throws MalformedXmlException if the document is not well-formed
+     */
+    public List<SchemaViolation> validate(Reader reader, CompiledSchema schema) throws IOException {
+        try (Validation validation = schema.newValidation(null)) {
+            xmlStreamParser.parse(reader, validation.handler());
+            return validation.violations();
+        }
+    }
+    
+    /**
+     * Validate a byte stream against a schema; see validate(Reader, CompiledSchema). The
+     * encoding is detected by the parser.
+     */
+    public List<SchemaViolation> validate(InputStream in, CompiledSchema schema) throws IOException {
+        try (Validation validation = schema.newValidation(null)) {
+            xmlStreamParser.parse(in, validation.handler());
+            return validation.violations();
+        }
+    }
+    
+    /**
+     * Validate a fragment of a document against the declaration of its root-to-node path
+     * (local names, outermost first), without the rest of the document. A fragment without
+     * a namespace is taken to inherit the schema's target namespace, as it would in the
+     * document.
+     * 
+     * @throws IllegalArgumentException if the schema does not allow the path
+     * @throws MalformedXmlException if the fragment is not well-formed
+     */
+    public List<SchemaViolation> validateFragment(Reader reader, CompiledSchema schema, List<String> path) throws IOException {
+        CompiledSchema.Fragment fragment = schema.fragment(path);
+        try (Validation validation = fragment.schema().newValidation(null)) {
+            xmlStreamParser.parse(reader, new FragmentFilter(validation.handler(), path.get(path.size() - 1),
+                fragment.declaredName(), fragment.namespace(), fragment.qualified(), validation.violations()));
+            return validation.violations();
+        }
+    }
+    
+    private CompiledSchema compile(String path) {
+        ClassPathResource resource = new ClassPathResource(path);
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("Schema not found: " + path);
+        }
+        try {
+            byte[] bytes;
+            try (InputStream in = resource.getInputStream()) {
+                bytes = in.readAllBytes();
+            }
+            String systemId = resource.getURL().toExternalForm();
+            Schema schema = newSchemaFactory().newSchema(new StreamSource(new ByteArrayInputStream(bytes), systemId));
+            return new CompiledSchema(path, sha256(bytes), schema, bytes, systemId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read schema " + path, e);
+        } catch (SAXException e) {
+            throw new IllegalStateException("Failed to compile schema " + path + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private static SchemaFactory newSchemaFactory() throws SAXException {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        // Includes and imports are resolved next to the schema, on disk or in the jar
+        factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,jar");
+        return factory;
+    }
+    
+    private static Element schemaReference(Document document, String kind, String namespace, String location) {
+        Element reference = document.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:" + kind);
+        if (namespace != null && !namespace.isEmpty()) {
+            reference.setAttribute("namespace", namespace);
+        }
+        reference.setAttribute("schemaLocation", location);
+        return reference;
+    }
+    
+    private static String systemId(String path) {
+        try {
+            return new ClassPathResource(path).getURL().toExternalForm();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to locate schema " + path, e);
+        }
+    }
+    
+    private static Document newDocument() {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            return factory.newDocumentBuilder().newDocument();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create schema document", e);
+        }
+    }
+    
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * A compiled schema with its pool of validators. The version identifies the schema
+     * content, so a changed schema is a different version.
+     */
+    public class CompiledSchema {
+    
+        private static final String PROMOTED_NAME = "webdws-fragment";
+    
+        private final String path;
+        private final String version;
+        private final Schema schema;
+        private final BlockingQueue<ValidatorHandler> idleHandlers;
+        private final byte[] source;
+        private final String systemId;
+        // Schemas for fragments, by declaration; built on first use (guarded by this)
+        private final Map<XsdModel.ElementDecl, Fragment> fragments = new HashMap<>();
+        private XsdModel model;
+    
+        CompiledSchema(String path, String version, Schema schema, byte[] source, String systemId) {
+            this.path = path;
+            this.version = version;
+            this.schema = schema;
+            this.source = source;
+            this.systemId = systemId;
+            this.idleHandlers = new ArrayBlockingQueue<>(Math.max(1, config.getValidatorPoolSize()));
+        }
+    
+        public String getPath() {
+            return path;
+        }
+    
+        public String getVersion() {
+            return version;
+        }
+    
+        public Schema getSchema() {
+            return schema;
+        }
+    
+        /**
+         * Start a validation whose events are passed on to {@code downstream} (may be null).
+         * Close it to return the validator to the pool.
+         */
+        public Validation newValidation(ContentHandler downstream) {
+            ValidatorHandler handler = idleHandlers.poll();
+            if (handler == null) {
+                handler = schema.newValidatorHandler();
+                try {
+                    handler.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                    handler.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+                } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+                    throw new IllegalStateException("Failed to configure schema validator", e);
+                }
+            }
+            return new Validation(this, handler, downstream);
+        }
+    
+        void release(ValidatorHandler handler) {
+            handler.setContentHandler(null);
+            handler.setErrorHandler(null);
+            idleHandlers.offer(handler);
+        }
+    
+        /**
+         * The schema to validate a fragment at {@code path} against. A global declaration is
+         * validated against this schema itself; a local one is copied into a derived schema as
+         * a global declaration (renamed if its name is taken), compiled once per declaration.
+         * Paths are resolved through the schema's component graph, so declarations in
+         * included and imported documents are found as well.
+         */
+        synchronized Fragment fragment(List<String> path) {
+            if (model == null) {
+                model = compileModel();
+            }
+            XsdModel.ElementDecl declaration = model.resolve(path);
+            Fragment fragment = fragments.get(declaration);
+            if (fragment == null) {
+                fragment = declaration.isGlobal()
+                    ? new Fragment(this, declaration.getName(), declaration.getNamespace(), true)
+                    : promote(declaration, path);
+                fragments.put(declaration, fragment);
+            }
+            return fragment;
+        }
+    
+        private XsdModel compileModel() {
+            try {
+                // The main document as compiled, the documents it refers to from the classpath
+                return XsdModel.compile(path, location -> location.equals(path) ? source : XsdModel.CLASSPATH.load(location));
+            } catch (SAXException e) {
+                throw new IllegalStateException("Failed to parse schema " + path + ": " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to parse schema " + path, e);
+            }
+        }
+    
+        /**
+         * Compile a schema in the declaration's target namespace that brings in this schema
+         * (and the declaration's own document, if that is in another namespace) and adds a
+         * copy of the declaration as a global one.
+         */
+        private Fragment promote(XsdModel.ElementDecl declaration, List<String> path) {
+            String namespace = declaration.schemaNamespace();
+            String name = declaration.getName();
+            if (model.getGlobalElement(namespace, name) != null) {
+                name = PROMOTED_NAME;
+            }
+            Document derived = newDocument();
+            Element root = derived.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:schema");
+            root.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:xs", XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            if (!namespace.isEmpty()) {
+                root.setAttribute("targetNamespace", namespace);
+            }
+            // Local declarations inside the copy keep the form defaults of their document
+            for (String formDefault : List.of("elementFormDefault", "attributeFormDefault")) {
+                String value = declaration.schemaAttribute(formDefault);
+                if (!value.isEmpty()) {
+                    root.setAttribute(formDefault, value);
+                }
+            }
+            derived.appendChild(root);
+            if (namespace.equals(model.getTargetNamespace())) {
+                root.appendChild(schemaReference(derived, "include", null, systemId));
+            } else {
+                root.appendChild(schemaReference(derived, "import", model.getTargetNamespace(), systemId));
+                root.appendChild(schemaReference(derived, "include", null, systemId(declaration.sourcePath())));
+            }
+    
+            Element global = (Element) derived.importNode(declaration.node(), true);
+            global.removeAttribute("minOccurs");
+            global.removeAttribute("maxOccurs");
+            global.removeAttribute("form");
+            global.setAttribute("name", name);
+            root.appendChild(global);
+            // QName-valued attributes (type, ref, base) keep the prefixes of their document
+            for (Node scope = declaration.node().getParentNode(); scope instanceof Element element;
+                 scope = scope.getParentNode()) {
+                NamedNodeMap attributes = element.getAttributes();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    Node attribute = attributes.item(i);
+                    if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())
+                            && !global.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attribute.getLocalName())) {
+                        global.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attribute.getNodeName(), attribute.getNodeValue());
+                    }
+                }
+            }
+            // Unprefixed names in a chameleon include refer to the includer's namespace
+            if (declaration.isChameleon() && !global.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns")) {
+                global.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns", namespace);
+            }
+    
+            String fragmentPath = this.path + " at /" + String.join("/", path);
+            try {
+                // No systemId of its own: with the main schema's, the include would count as a self-include
+                Schema fragmentSchema = newSchemaFactory().newSchema(new DOMSource(derived));
+                return new Fragment(new CompiledSchema(fragmentPath, version, fragmentSchema, source, systemId),
+                    name, namespace, !declaration.getNamespace().isEmpty());
+            } catch (SAXException e) {
+                throw new IllegalStateException("Failed to compile schema for " + fragmentPath + ": " + e.getMessage(), e);
+            }
+        }
+    
+        /**
+         * A schema for fragments rooted at one declaration.
+         */
+        record Fragment(CompiledSchema schema, String declaredName, String namespace, boolean qualified) {}
+    }
+    
+    /**
+     * One validation run. Feed {@link #handler()} with the parse events of one document,
+     * then read {@link #violations()}.
+     */
+    public class Validation implements AutoCloseable {
+    
+        private final CompiledSchema schema;
+        private final ValidatorHandler validatorHandler;
+        private final ContentHandler handler;
+        private final List<SchemaViolation> violations = new ArrayList<>();
+        private boolean closed;
+    
+        Validation(CompiledSchema schema, ValidatorHandler validatorHandler, ContentHandler downstream) {
+            this.schema = schema;
+            this.validatorHandler = validatorHandler;
+            if (validatorHandler == null) {
+                this.handler = downstream;
+                return;
+            }
+            validatorHandler.setContentHandler(downstream);
+            validatorHandler.setErrorHandler(new ErrorHandler() {
+                @Override
+                public void warning(SAXParseException e) {
+                    // Ignore warnings
+                }
+    
+                @Override
+                public void error(SAXParseException e) {
+                    if (violations.size() < config.getMaxErrors()) {
+                        violations.add(new SchemaViolation(e.getMessage(), e.getLineNumber(), e.getColumnNumber()));
+                    }
+                }
+    
+                @Override
+                public void fatalError(SAXParseException e) throws SAXException {
+                    throw e;
+                }
+            });
+            this.handler = validatorHandler;
+        }
+    
+        /**
+         * The handler to send parse events to.
+         */
+        public ContentHandler handler() {
+            return handler;
+        }
+    
+        public List<SchemaViolation> violations() {
+            return violations;
+        }
+    
+        /**
+         * @throws SchemaValidationException if any violation was found
+         */
+        public void checkValid() {
+            if (!violations.isEmpty()) {
+                throw new SchemaValidationException(schema.getPath(), violations);
+            }
+        }
+    
+        @Override
+        public void close() {
+            if (validatorHandler != null && !closed) {
+                closed = true;
+                schema.release(validatorHandler);
+            }
+        }
+    }
+}
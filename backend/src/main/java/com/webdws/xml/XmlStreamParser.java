@@ -0,0 +1,123 @@
+package com.webdws.xml;
+
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * XmlStreamParser - Streaming (SAX) XML Parsing
+ * 
+ * This component provides:
+ * - Well-formedness checking without building a document tree
+ * - Delivery of parse events to a ContentHandler while the input is read
+ * - Secure parser settings (no external entities or DTD loading)
+ * - Reuse of one configured parser per thread, so a parse allocates little besides its buffers
+ * - Translation of parse errors into MalformedXmlException with line/column
+ */
+@Component
+public class XmlStreamParser {
+    
+    private static final ContentHandler NO_OP_HANDLER = new DefaultHandler();
+    
+    private static final ErrorHandler FAIL_ON_ERROR = new ErrorHandler() {
+        @Override
+        public void warning(SAXParseException e) {
+            // Ignore warnings
+        }
+        
+        @Override
+        public void error(SAXParseException e) throws SAXException {
+            throw e;
+        }
+        
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException {
+            throw e;
+        }
+    };
+    
+    private final SAXParserFactory factory;
+    
+    // The parser of each thread, reused across parses; null while a parse on that thread
+    // is running, so a nested parse gets a parser of its own
+    private final ThreadLocal<XMLReader> cachedReader = new ThreadLocal<>();
+    
+    public XmlStreamParser() {
+        try {
+            factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setValidating(false);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Failed to configure SAX parser", e);
+        }
+    }
+    
+    /**
+     * Check that a byte stream is well-formed XML. The encoding is detected by the parser.
+     */
+    public void parse(InputStream in) throws IOException {
+        parse(new InputSource(in), NO_OP_HANDLER);
+    }
+    
+    /**
+     * Check that a character stream is well-formed XML.
+     */
+    public void parse(Reader reader) throws IOException {
+        parse(new InputSource(reader), NO_OP_HANDLER);
+    }
+    
+    /**
+     * Parse a byte stream, delivering events to the given handler.
+     */
+    public void parse(InputStream in, ContentHandler handler) throws IOException {
+        parse(new InputSource(in), handler);
+    }
+    
+    /**
+     * Parse a character stream, delivering events to the given handler.
+     */
+    public void parse(Reader reader, ContentHandler handler) throws IOException {
+        parse(new InputSource(reader), handler);
+    }
+    
+    private void parse(InputSource source, ContentHandler handler) throws IOException {
+        XMLReader reader = cachedReader.get();
+        cachedReader.remove();
+        try {
+            if (reader == null) {
+                reader = factory.newSAXParser().getXMLReader();
+                reader.setErrorHandler(FAIL_ON_ERROR);
+            }
+            reader.setContentHandler(handler);
+            reader.parse(source);
+        } catch (SAXParseException e) {
+            throw new MalformedXmlException(e.getMessage(), e.getLineNumber(), e.getColumnNumber(), e);
+        } catch (SAXException e) {
+            throw new MalformedXmlException(e.getMessage(), -1, -1, e);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create SAX parser", e);
+        } finally {
+            if (reader != null) {
+                // Don't keep the caller's handler reachable; the parser resets itself on the next parse
+                reader.setContentHandler(NO_OP_HANDLER);
+                cachedReader.set(reader);
+            }
+        }
+    }
+}
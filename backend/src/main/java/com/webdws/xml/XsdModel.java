@@ -0,0 +1,960 @@
+package com.webdws.xml;
+
+import org.springframework.core.io.ClassPathResource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * XsdModel - Compiled Component Graph of an XML Schema
+ * 
+ * Reads a schema document and the documents it includes or imports, and provides:
+ * - Global elements, named complex and simple types, model groups and attribute groups by qualified name
+ * - Every element declaration, global or local, numbered in document order for lookup by id
+ * - Content models built from sequence, choice, all, group references, element references
+ *   and complexContent extension or restriction
+ * - Effective attributes, including references, attribute groups and inherited ones
+ * - The declaration of the last element of a root-to-node path, for fragment validation
+ * 
+ * Components are shared: a named type used by many elements is built once and references
+ * resolve to the same objects, so a recursive schema is a finite graph. The children and
+ * attributes of each type are flattened once when the model is compiled (cycle-safe), after
+ * which the model is immutable and safe to share between threads.
+ */
+public final class XsdModel {
+    
+    private static final String XS = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+    private static final String UNBOUNDED = "unbounded";
+    
+    /**
+     * Reads a schema document by path, for includes and imports.
+     */
+    @FunctionalInterface
+    public interface SourceLoader {
+        /**
+         * The content of the schema at {@code path}, or null if it is not available.
+         */
+        byte[] load(String path) throws IOException;
+    }
+    
+    /**
+     * Reads schema documents from the classpath.
+     */
+    public static final SourceLoader CLASSPATH = path -> {
+        ClassPathResource resource = new ClassPathResource(path);
+        if (!resource.exists()) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        }
+    };
+    
+    private final String targetNamespace;
+    private final String elementFormDefault;
+    private final String attributeFormDefault;
+    private final List<String> sourcePaths = new ArrayList<>();
+    private final List<ElementDecl> declarations = new ArrayList<>();
+    
+    // Top-level components of all loaded documents, before they are built
+    private final Map<QName, Component> elementNodes = new LinkedHashMap<>();
+    private final Map<QName, Component> complexTypeNodes = new LinkedHashMap<>();
+    private final Map<QName, Component> simpleTypeNodes = new HashMap<>();
+    private final Map<QName, Component> groupNodes = new HashMap<>();
+    private final Map<QName, Component> attributeGroupNodes = new HashMap<>();
+    private final Map<QName, Component> attributeNodes = new HashMap<>();
+    
+    // Built components; registered before their content is built, so references back resolve
+    private final Map<QName, ElementDecl> elements = new HashMap<>();
+    private final Map<QName, ComplexType> complexTypes = new HashMap<>();
+    private final Map<QName, ModelGroup> groups = new HashMap<>();
+    private final Map<QName, List<AttributeDecl>> attributeGroups = new HashMap<>();
+    private final Map<QName, String> simpleBases = new HashMap<>();
+    private final Map<ComplexType, Flattened> flattened = new IdentityHashMap<>();
+    
+    private XsdModel(SchemaDoc main) {
+        this.targetNamespace = main.targetNamespace;
+        this.elementFormDefault = main.root.getAttribute("elementFormDefault");
+        this.attributeFormDefault = main.root.getAttribute("attributeFormDefault");
+    }
+    
+    /**
+     * Compile the schema at {@code path} and everything it includes or imports through
+     * {@code loader}. Includes and imports that cannot be loaded are skipped; references
+     * into them stay unresolved.
+     * 
+     * @throws SAXException if a schema document is not well-formed
+     */
+    public static XsdModel compile(String path, SourceLoader loader) throws IOException, SAXException {
+        byte[] source = loader.load(path);
+        if (source == null) {
+            throw new IOException("Schema not found: " + path);
+        }
+        SchemaDoc main = parse(path, source, null);
+        XsdModel model = new XsdModel(main);
+        model.sourcePaths.add(path);
+        model.index(main, loader);
+        model.build();
+        return model;
+    }
+    
+    public String getTargetNamespace() {
+        return targetNamespace;
+    }
+    
+    public String getElementFormDefault() {
+        return elementFormDefault;
+    }
+    
+    public String getAttributeFormDefault() {
+        return attributeFormDefault;
+    }
+    
+    /**
+     * Paths of all schema documents the model was read from, the main one first.
+     */
+    public List<String> getSourcePaths() {
+        return Collections.unmodifiableList(sourcePaths);
+    }
+    
+    /**
+     * All element declarations, global and local; a declaration's id is its index.
+     */
+    public List<ElementDecl> getDeclarations() {
+        return Collections.unmodifiableList(declarations);
+    }
+    
+    /**
+     * The element children a declaration allows, in content model order.
+     */
+    public List<ChildUse> children(ElementDecl declaration) {
+        return declaration.complexType == null ? List.of() : flattened.get(declaration.complexType).children;
+    }
+    
+    /**
+     * The attributes a declaration allows, inherited ones first.
+     */
+    public List<AttributeDecl> attributes(ElementDecl declaration) {
+        return declaration.complexType == null ? List.of() : flattened.get(declaration.complexType).attributes;
+    }
+    
+    /**
+     * The declaration of the last element of {@code path} (local names, outermost first):
+     * the first global element of that name, then at each step the first child use of
+     * that name in its content model.
+     * 
+     * @throws IllegalArgumentException if the schema does not allow the path
+     */
+    public ElementDecl resolve(List<String> path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Path is empty");
+        }
+        ElementDecl declaration = null;
+        for (ElementDecl candidate : declarations) {
+            if (candidate.global && candidate.name.equals(path.get(0))) {
+                declaration = candidate;
+                break;
+            }
+        }
+        if (declaration == null) {
+            throw new IllegalArgumentException("Schema has no global element " + path.get(0));
+        }
+        for (int i = 1; i < path.size(); i++) {
+            ElementDecl child = null;
+            for (ChildUse use : children(declaration)) {
+                if (use.declaration().name.equals(path.get(i))) {
+                    child = use.declaration();
+                    break;
+                }
+            }
+            if (child == null) {
+                throw new IllegalArgumentException("Schema does not allow " + path.get(i) + " in /"
+                    + String.join("/", path.subList(0, i)));
+            }
+            declaration = child;
+        }
+        return declaration;
+    }
+    
+    /**
+     * The global element declaration with this qualified name, or null.
+     */
+    public ElementDecl getGlobalElement(String namespace, String name) {
+        return elements.get(new QName(namespace, name));
+    }
+    
+    // ---- Loading ----
+    
+    private static SchemaDoc parse(String path, byte[] source, String chameleonNamespace) throws IOException, SAXException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+            Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(source));
+            Element root = document.getDocumentElement();
+            if (!isXs(root, "schema")) {
+                throw new SAXException("Not an XML Schema document: " + path);
+            }
+            return new SchemaDoc(path, root, chameleonNamespace);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Failed to create schema parser", e);
+        }
+    }
+    
+    /**
+     * Record the top-level components of a document, then load the documents it includes,
+     * imports or redefines, each once. A document's own components come before those of
+     * the documents it loads, so the main schema's global elements are numbered first.
+     */
+    private void index(SchemaDoc doc, SourceLoader loader) throws IOException, SAXException {
+        List<Element> references = new ArrayList<>();
+        for (Element child : xsChildren(doc.root)) {
+            switch (child.getLocalName()) {
+                case "include", "import", "redefine", "override" -> references.add(child);
+                case "element" -> putFirst(elementNodes, doc, child);
+                case "complexType" -> putFirst(complexTypeNodes, doc, child);
+                case "simpleType" -> putFirst(simpleTypeNodes, doc, child);
+                case "group" -> putFirst(groupNodes, doc, child);
+                case "attributeGroup" -> putFirst(attributeGroupNodes, doc, child);
+                case "attribute" -> putFirst(attributeNodes, doc, child);
+                default -> {
+                    // Annotations, notations
+                }
+            }
+        }
+        for (Element reference : references) {
+            String path = resolveLocation(doc.path, reference.getAttribute("schemaLocation"));
+            if (path == null || sourcePaths.contains(path)) {
+                continue;
+            }
+            byte[] source = loader.load(path);
+            if (source == null) {
+                continue;
+            }
+            sourcePaths.add(path);
+            // An included document without a target namespace takes the includer's
+            String chameleon = reference.getLocalName().equals("import") ? null : doc.targetNamespace;
+            index(parse(path, source, chameleon), loader);
+        }
+    }
+    
+    private static void putFirst(Map<QName, Component> index, SchemaDoc doc, Element node) {
+        index.putIfAbsent(new QName(doc.targetNamespace, node.getAttribute("name")), new Component(doc, node));
+    }
+    
+    /**
+     * A schemaLocation relative to the including document; null if it leaves the directory
+     * tree the main schema was loaded from or is absolute (e.g. a URL).
+     */
+    private String resolveLocation(String basePath, String location) {
+        if (location.isEmpty()) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(basePath).resolve(location).normalize();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String root = sourcePaths.get(0);
+        root = root.substring(0, root.indexOf('/') + 1);
+        if (uri.isAbsolute() || uri.getPath() == null || !uri.getPath().startsWith(root) || uri.getPath().contains("..")) {
+            return null;
+        }
+        return uri.getPath();
+    }
+    
+    // ---- Building ----
+    
+    private void build() {
+        for (QName name : elementNodes.keySet()) {
+            globalElement(name);
+        }
+        for (QName name : complexTypeNodes.keySet()) {
+            complexType(name);
+        }
+        for (QName name : groupNodes.keySet()) {
+            group(name);
+        }
+        Set<ComplexType> types = new HashSet<>();
+        for (ElementDecl declaration : declarations) {
+            if (declaration.complexType != null) {
+                types.add(declaration.complexType);
+            }
+        }
+        types.addAll(complexTypes.values());
+        for (ComplexType type : types) {
+            flattened.put(type, flatten(type));
+        }
+    }
+    
+    private ElementDecl globalElement(QName name) {
+        ElementDecl declaration = elements.get(name);
+        if (declaration != null) {
+            return declaration;
+        }
+        Component component = elementNodes.get(name);
+        if (component == null) {
+            return null;
+        }
+        declaration = newDeclaration(component.doc, component.node, name.getNamespaceURI(), true);
+        elements.put(name, declaration);
+        buildType(declaration, component.doc, component.node);
+        return declaration;
+    }
+    
+    private ElementDecl localElement(SchemaDoc doc, Element node) {
+        String form = node.getAttribute("form");
+        boolean qualified = form.isEmpty() ? "qualified".equals(doc.root.getAttribute("elementFormDefault")) : "qualified".equals(form);
+        ElementDecl declaration = newDeclaration(doc, node, qualified ? doc.targetNamespace : "", false);
+        declaration.minOccurs = minOccurs(node);
+        declaration.maxOccurs = maxOccurs(node);
+        buildType(declaration, doc, node);
+        return declaration;
+    }
+    
+    private ElementDecl newDeclaration(SchemaDoc doc, Element node, String namespace, boolean global) {
+        ElementDecl declaration = new ElementDecl(declarations.size(), node.getAttribute("name"), namespace, global, doc, node);
+        declarations.add(declaration);
+        declaration.defaultValue = emptyToNull(node.getAttribute("default"));
+        declaration.fixedValue = emptyToNull(node.getAttribute("fixed"));
+        declaration.isAbstract = "true".equals(node.getAttribute("abstract"));
+        return declaration;
+    }
+    
+    private void buildType(ElementDecl declaration, SchemaDoc doc, Element node) {
+        Element inlineComplex = xsChild(node, "complexType");
+        Element inlineSimple = xsChild(node, "simpleType");
+        if (inlineComplex != null) {
+            declaration.complexType = buildComplexType(new ComplexType(null), doc, inlineComplex);
+        } else if (inlineSimple != null) {
+            declaration.simpleBase = simpleBase(doc, inlineSimple, new HashSet<>());
+        } else if (!node.getAttribute("type").isEmpty()) {
+            declaration.typeName = node.getAttribute("type");
+            QName type = doc.resolve(node, declaration.typeName);
+            if (XS.equals(type.getNamespaceURI())) {
+                declaration.simpleBase = "xs:" + type.getLocalPart();
+            } else if (complexTypeNodes.containsKey(type)) {
+                declaration.complexType = complexType(type);
+            } else {
+                declaration.simpleBase = simpleBase(type, new HashSet<>());
+            }
+        }
+    }
+    
+    private ComplexType complexType(QName name) {
+        ComplexType type = complexTypes.get(name);
+        if (type != null) {
+            return type;
+        }
+        Component component = complexTypeNodes.get(name);
+        if (component == null) {
+            return null;
+        }
+        type = new ComplexType(name);
+        complexTypes.put(name, type);
+        return buildComplexType(type, component.doc, component.node);
+    }
+    
+    private ComplexType buildComplexType(ComplexType type, SchemaDoc doc, Element node) {
+        type.mixed = "true".equals(node.getAttribute("mixed"));
+        for (Element child : xsChildren(node)) {
+            switch (child.getLocalName()) {
+                case "sequence", "choice", "all", "group" -> type.content = particle(doc, child);
+                case "attribute", "attributeGroup" -> addAttributes(type.attributes, doc, child);
+                case "complexContent", "simpleContent" -> {
+                    boolean simple = child.getLocalName().equals("simpleContent");
+                    if ("true".equals(child.getAttribute("mixed"))) {
+                        type.mixed = true;
+                    }
+                    Element derivation = xsChild(child, "extension");
+                    type.extension = derivation != null;
+                    if (derivation == null) {
+                        derivation = xsChild(child, "restriction");
+                    }
+                    if (derivation == null) {
+                        continue;
+                    }
+                    QName base = doc.resolve(derivation, derivation.getAttribute("base"));
+                    if (complexTypeNodes.containsKey(base)) {
+                        type.base = complexType(base);
+                    } else if (simple) {
+                        type.simpleBase = XS.equals(base.getNamespaceURI())
+                            ? "xs:" + base.getLocalPart()
+                            : simpleBase(base, new HashSet<>());
+                    }
+                    for (Element part : xsChildren(derivation)) {
+                        switch (part.getLocalName()) {
+                            case "sequence", "choice", "all", "group" -> type.content = particle(doc, part);
+                            case "attribute", "attributeGroup" -> addAttributes(type.attributes, doc, part);
+                            default -> {
+                                // Facets, wildcards, annotations
+                            }
+                        }
+                    }
+                }
+                default -> {
+                    // anyAttribute, annotations, assertions
+                }
+            }
+        }
+        return type;
+    }
+    
+    private Particle particle(SchemaDoc doc, Element node) {
+        int min = minOccurs(node);
+        String max = maxOccurs(node);
+        switch (node.getLocalName()) {
+            case "element" -> {
+                if (!node.getAttribute("ref").isEmpty()) {
+                    ElementDecl global = globalElement(doc.resolve(node, node.getAttribute("ref")));
+                    return global == null ? null : new ElementParticle(global, min, max);
+                }
+                return new ElementParticle(localElement(doc, node), min, max);
+            }
+            case "sequence", "choice", "all" -> {
+                List<Particle> particles = new ArrayList<>();
+                for (Element child : xsChildren(node)) {
+                    Particle particle = particle(doc, child);
+                    if (particle != null) {
+                        particles.add(particle);
+                    }
+                }
+                return new GroupParticle(new ModelGroup(node.getLocalName(), particles), min, max);
+            }
+            case "group" -> {
+                ModelGroup group = group(doc.resolve(node, node.getAttribute("ref")));
+                return group == null ? null : new GroupParticle(group, min, max);
+            }
+            default -> {
+                // Wildcards and annotations add no named children
+                return null;
+            }
+        }
+    }
+    
+    private ModelGroup group(QName name) {
+        ModelGroup group = groups.get(name);
+        if (group != null) {
+            return group;
+        }
+        Component component = groupNodes.get(name);
+        if (component == null) {
+            return null;
+        }
+        // Registered empty first: a group that refers back to itself sees this instance
+        group = new ModelGroup("sequence", new ArrayList<>());
+        groups.put(name, group);
+        for (Element child : xsChildren(component.node)) {
+            if (child.getLocalName().matches("sequence|choice|all")) {
+                GroupParticle particle = (GroupParticle) particle(component.doc, child);
+                group.compositor = particle.group.compositor;
+                group.particles.addAll(particle.group.particles);
+            }
+        }
+        return group;
+    }
+    
+    private void addAttributes(List<AttributeDecl> target, SchemaDoc doc, Element node) {
+        if (node.getLocalName().equals("attributeGroup")) {
+            target.addAll(attributeGroup(doc.resolve(node, node.getAttribute("ref"))));
+            return;
+        }
+        String use = node.getAttribute("use");
+        String ref = node.getAttribute("ref");
+        AttributeDecl attribute;
+        if (!ref.isEmpty()) {
+            QName name = doc.resolve(node, ref);
+            Component global = attributeNodes.get(name);
+            attribute = global != null ? attributeDecl(global.doc, global.node, global.node.getAttribute("name"))
+                : new AttributeDecl(ref, null);
+        } else {
+            attribute = attributeDecl(doc, node, node.getAttribute("name"));
+        }
+        attribute.use = use.isEmpty() ? "optional" : use;
+        if (!node.getAttribute("default").isEmpty()) {
+            attribute.defaultValue = node.getAttribute("default");
+        }
+        if (!node.getAttribute("fixed").isEmpty()) {
+            attribute.fixedValue = node.getAttribute("fixed");
+        }
+        target.add(attribute);
+    }
+    
+    private AttributeDecl attributeDecl(SchemaDoc doc, Element node, String name) {
+        AttributeDecl attribute = new AttributeDecl(name, emptyToNull(node.getAttribute("type")));
+        Element inlineSimple = xsChild(node, "simpleType");
+        if (inlineSimple != null) {
+            attribute.simpleBase = simpleBase(doc, inlineSimple, new HashSet<>());
+        } else if (attribute.type != null) {
+            QName type = doc.resolve(node, attribute.type);
+            attribute.simpleBase = XS.equals(type.getNamespaceURI()) ? null : simpleBase(type, new HashSet<>());
+        }
+        attribute.defaultValue = emptyToNull(node.getAttribute("default"));
+        attribute.fixedValue = emptyToNull(node.getAttribute("fixed"));
+        return attribute;
+    }
+    
+    private List<AttributeDecl> attributeGroup(QName name) {
+        List<AttributeDecl> attributes = attributeGroups.get(name);
+        if (attributes != null) {
+            return attributes;
+        }
+        Component component = attributeGroupNodes.get(name);
+        if (component == null) {
+            return List.of();
+        }
+        attributes = new ArrayList<>();
+        attributeGroups.put(name, attributes);
+        for (Element child : xsChildren(component.node)) {
+            if (child.getLocalName().equals("attribute") || child.getLocalName().equals("attributeGroup")) {
+                addAttributes(attributes, component.doc, child);
+            }
+        }
+        return attributes;
+    }
+    
+    /**
+     * The built-in type a named simple type is ultimately derived from (lists and unions
+     * count as xs:string); null if it cannot be resolved.
+     */
+    private String simpleBase(QName name, Set<QName> visiting) {
+        if (XS.equals(name.getNamespaceURI())) {
+            return "xs:" + name.getLocalPart();
+        }
+        if (simpleBases.containsKey(name)) {
+            return simpleBases.get(name);
+        }
+        Component component = simpleTypeNodes.get(name);
+        if (component == null || !visiting.add(name)) {
+            return null;
+        }
+        String base = simpleBase(component.doc, component.node, visiting);
+        simpleBases.put(name, base);
+        return base;
+    }
+    
+    private String simpleBase(SchemaDoc doc, Element simpleType, Set<QName> visiting) {
+        Element restriction = xsChild(simpleType, "restriction");
+        if (restriction == null) {
+            return "xs:string";
+        }
+        if (!restriction.getAttribute("base").isEmpty()) {
+            return simpleBase(doc.resolve(restriction, restriction.getAttribute("base")), visiting);
+        }
+        Element inline = xsChild(restriction, "simpleType");
+        return inline != null ? simpleBase(doc, inline, visiting) : null;
+    }
+    
+    // ---- Flattening ----
+    
+    private Flattened flatten(ComplexType type) {
+        List<ChildUse> children = new ArrayList<>();
+        collectChildren(type, children, Collections.newSetFromMap(new IdentityHashMap<>()));
+        Map<String, AttributeDecl> attributes = new LinkedHashMap<>();
+        collectAttributes(type, attributes, Collections.newSetFromMap(new IdentityHashMap<>()));
+        attributes.values().removeIf(attribute -> "prohibited".equals(attribute.use));
+        return new Flattened(List.copyOf(children), List.copyOf(attributes.values()));
+    }
+    
+    private void collectChildren(ComplexType type, List<ChildUse> out, Set<Object> active) {
+        if (!active.add(type)) {
+            return;
+        }
+        if (type.base != null && type.extension) {
+            collectChildren(type.base, out, active);
+        }
+        if (type.content != null) {
+            collectParticle(type.content, 1, 1, null, out, active);
+        }
+        active.remove(type);
+    }
+    
+    /**
+     * Add the element uses below a particle, with occurrences multiplied out over the
+     * enclosing groups; alternatives of a choice become optional.
+     * 
+     * @param maxFactor product of the enclosing groups' maxOccurs, or -1 if one is unbounded
+     */
+    private void collectParticle(Particle particle, int minFactor, long maxFactor, String compositor,
+                                 List<ChildUse> out, Set<Object> active) {
+        int min = particle.minOccurs * minFactor;
+        long max = multiplyMax(maxFactor, particle.maxOccurs);
+        if (max == 0) {
+            return;
+        }
+        if (particle instanceof ElementParticle element) {
+            out.add(new ChildUse(element.declaration, min, max < 0 ? UNBOUNDED : String.valueOf(max), compositor));
+            return;
+        }
+        ModelGroup group = ((GroupParticle) particle).group;
+        if (!active.add(group)) {
+            return;
+        }
+        boolean choice = group.compositor.equals("choice") && group.particles.size() > 1;
+        for (Particle child : group.particles) {
+            collectParticle(child, choice ? 0 : min, max, group.compositor.equals("sequence") ? compositor : group.compositor,
+                out, active);
+        }
+        active.remove(group);
+    }
+    
+    private void collectAttributes(ComplexType type, Map<String, AttributeDecl> out, Set<ComplexType> active) {
+        if (!active.add(type)) {
+            return;
+        }
+        if (type.base != null) {
+            collectAttributes(type.base, out, active);
+        }
+        for (AttributeDecl attribute : type.attributes) {
+            out.put(attribute.name, attribute);
+        }
+        active.remove(type);
+    }
+    
+    // ---- Helpers ----
+    
+    private static int minOccurs(Element node) {
+        String min = node.getAttribute("minOccurs");
+        try {
+            return min.isEmpty() ? 1 : Integer.parseInt(min);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+    
+    private static String maxOccurs(Element node) {
+        String max = node.getAttribute("maxOccurs");
+        return max.isEmpty() ? "1" : max;
+    }
+    
+    /**
+     * {@code factor} times a maxOccurs value; -1 stands for unbounded, as does a product
+     * too large to be meaningful.
+     */
+    private static long multiplyMax(long factor, String maxOccurs) {
+        long max;
+        try {
+            max = UNBOUNDED.equals(maxOccurs) ? -1 : Long.parseLong(maxOccurs);
+        } catch (NumberFormatException e) {
+            max = 1;
+        }
+        if (max == 0 || factor == 0) {
+            return 0;
+        }
+        if (max < 0 || factor < 0) {
+            return -1;
+        }
+        return max > Integer.MAX_VALUE / factor ? -1 : factor * max;
+    }
+    
+    private static boolean isXs(Node node, String localName) {
+        return node.getNodeType() == Node.ELEMENT_NODE && XS.equals(node.getNamespaceURI())
+            && localName.equals(node.getLocalName());
+    }
+    
+    private static Element xsChild(Element parent, String localName) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isXs(child, localName)) {
+                return (Element) child;
+            }
+        }
+        return null;
+    }
+    
+    private static List<Element> xsChildren(Element parent) {
+        List<Element> children = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && XS.equals(child.getNamespaceURI())) {
+                children.add((Element) child);
+            }
+        }
+        return children;
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    // ---- Model ----
+    
+    /**
+     * An element declaration. {@code complexType} is null for elements with simple content
+     * only, whose built-in base type is {@code simpleBase}.
+     */
+    public static final class ElementDecl {
+        private final int id;
+        private final String name;
+        private final String namespace;
+        private final boolean global;
+        private String typeName;
+        private ComplexType complexType;
+        private String simpleBase;
+        private String defaultValue;
+        private String fixedValue;
+        private boolean isAbstract;
+        private int minOccurs = 1;
+        private String maxOccurs = "1";
+        private final SchemaDoc doc;
+        private final Element node;
+        
+        ElementDecl(int id, String name, String namespace, boolean global, SchemaDoc doc, Element node) {
+            this.id = id;
+            this.name = name;
+            this.namespace = namespace;
+            this.global = global;
+            this.doc = doc;
+            this.node = node;
+        }
+        
+        public int getId() {
+            return id;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public String getNamespace() {
+            return namespace;
+        }
+        
+        public boolean isGlobal() {
+            return global;
+        }
+        
+        /**
+         * The type attribute as written (e.g. xs:string), or null for an inline or absent type.
+         */
+        public String getTypeName() {
+            return typeName;
+        }
+        
+        /**
+         * The built-in type the content is derived from, for simple content; else null.
+         */
+        public String getSimpleBase() {
+            return complexType != null ? complexType.simpleBase : simpleBase;
+        }
+        
+        public boolean isMixed() {
+            return complexType != null && complexType.mixed;
+        }
+        
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+        
+        public String getFixedValue() {
+            return fixedValue;
+        }
+        
+        public boolean isAbstract() {
+            return isAbstract;
+        }
+        
+        /**
+         * Occurrences as declared on a local declaration (1 for globals).
+         */
+        public int getMinOccurs() {
+            return minOccurs;
+        }
+        
+        public String getMaxOccurs() {
+            return maxOccurs;
+        }
+        
+        /**
+         * The xs:element node of the declaration. DOM reads are not thread-safe; callers
+         * sharing a model must serialize them.
+         */
+        Element node() {
+            return node;
+        }
+        
+        /**
+         * Path of the schema document the declaration is in.
+         */
+        String sourcePath() {
+            return doc.path;
+        }
+        
+        /**
+         * Target namespace of the schema document the declaration is in (the includer's for
+         * a chameleon include), whether or not the declaration itself is qualified.
+         */
+        String schemaNamespace() {
+            return doc.targetNamespace;
+        }
+        
+        boolean isChameleon() {
+            return doc.chameleon;
+        }
+        
+        /**
+         * An attribute of the xs:schema element of the declaration's document ("" if absent).
+         */
+        String schemaAttribute(String name) {
+            return doc.root.getAttribute(name);
+        }
+    }
+    
+    /**
+     * A use of an element declaration in a content model, with its effective occurrences
+     * and the compositor (choice, all) it belongs to, or null in a sequence.
+     */
+    public record ChildUse(ElementDecl declaration, int minOccurs, String maxOccurs, String compositor) {}
+    
+    /**
+     * An attribute declaration as used by a type.
+     */
+    public static final class AttributeDecl {
+        private final String name;
+        private final String type;
+        private String simpleBase;
+        private String use = "optional";
+        private String defaultValue;
+        private String fixedValue;
+        
+        AttributeDecl(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        /**
+         * The built-in type a named or inline simple type is derived from; null for built-ins.
+         */
+        public String getSimpleBase() {
+            return simpleBase;
+        }
+        
+        public String getUse() {
+            return use;
+        }
+        
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+        
+        public String getFixedValue() {
+            return fixedValue;
+        }
+    }
+    
+    private static final class ComplexType {
+        final QName name;
+        ComplexType base;
+        boolean extension;
+        boolean mixed;
+        String simpleBase;
+        Particle content;
+        final List<AttributeDecl> attributes = new ArrayList<>();
+        
+        ComplexType(QName name) {
+            this.name = name;
+        }
+    }
+    
+    private static final class ModelGroup {
+        String compositor;
+        final List<Particle> particles;
+        
+        ModelGroup(String compositor, List<Particle> particles) {
+            this.compositor = compositor;
+            this.particles = particles;
+        }
+    }
+    
+    private abstract static class Particle {
+        final int minOccurs;
+        final String maxOccurs;
+        
+        Particle(int minOccurs, String maxOccurs) {
+            this.minOccurs = minOccurs;
+            this.maxOccurs = maxOccurs;
+        }
+    }
+    
+    private static final class ElementParticle extends Particle {
+        final ElementDecl declaration;
+        
+        ElementParticle(ElementDecl declaration, int minOccurs, String maxOccurs) {
+            super(minOccurs, maxOccurs);
+            this.declaration = declaration;
+        }
+    }
+    
+    private static final class GroupParticle extends Particle {
+        final ModelGroup group;
+        
+        GroupParticle(ModelGroup group, int minOccurs, String maxOccurs) {
+            super(minOccurs, maxOccurs);
+            this.group = group;
+        }
+    }
+    
+    private record Flattened(List<ChildUse> children, List<AttributeDecl> attributes) {}
+    
+    private record Component(SchemaDoc doc, Element node) {}
+    
+    /**
+     * One loaded schema document. A chameleon include (no target namespace of its own)
+     * takes the includer's, also for the unprefixed names it refers to.
+     */
+    private static final class SchemaDoc {
+        final String path;
+        final Element root;
+        final String targetNamespace;
+        final boolean chameleon;
+        
+        SchemaDoc(String path, Element root, String includerNamespace) {
+            this.path = path;
+            this.root = root;
+            String own = root.getAttribute("targetNamespace");
+            this.chameleon = own.isEmpty() && includerNamespace != null && !includerNamespace.isEmpty();
+            this.targetNamespace = chameleon ? includerNamespace : own;
+        }
+        
+        /**
+         * Resolve a QName-valued attribute in the namespace context of {@code node}.
+         */
+        QName resolve(Element node, String qName) {
+            int colon = qName.indexOf(':');
+            String prefix = colon < 0 ? null : qName.substring(0, colon);
+            String namespace = node.lookupNamespaceURI(prefix);
+            if ((namespace == null || namespace.isEmpty()) && chameleon) {
+                namespace = targetNamespace;
+            }
+            return new QName(namespace == null ? "" : namespace, qName.substring(colon + 1));
+        }
+    }
+}
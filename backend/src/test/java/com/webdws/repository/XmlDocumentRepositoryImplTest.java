@@ -0,0 +1,127 @@
+package com.webdws.repository;
+
+import com.webdws.model.XmlDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset pages of the document list against H2. Names, titles and timestamps repeat, so
+ * pages end in the middle of runs of equal sort values and only the id breaks the tie.
+ */
+@DataJpaTest
+public class XmlDocumentRepositoryImplTest {
+    
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 12, 0, 0);
+    private static final String[] NAMES = {"b", "a", "b", "c", "a", "b", "b", "a", "c", "b"};
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    private List<XmlDocumentSummary> all;
+    
+    @BeforeEach
+    public void setUp() {
+        List<XmlDocument> documents = new ArrayList<>();
+        for (int i = 0; i < NAMES.length; i++) {
+            XmlDocument document = new XmlDocument();
+            document.setName(NAMES[i]);
+            document.setTitle(i % 3 == 0 ? "" : "Title " + (i % 2));
+            document.setExistDbId("doc-" + i);
+            // Three documents per timestamp, one with sub-second precision
+            document.setCreatedAt(T0.plusSeconds(i / 3).plusNanos(i == 9 ? 123_456_000 : 0));
+            document.setUpdatedAt(T0.minusMinutes(i % 4));
+            documents.add(document);
+        }
+        repository.batchInsert(documents);
+        all = repository.findSummariesAfter(DocumentSortKey.ID, false, null, null, 100);
+        assertEquals(NAMES.length, all.size());
+    }
+    
+    @Test
+    public void testPagesByIdAscending() {
+        assertPagesMatch(DocumentSortKey.ID, false, 3, XmlDocumentSummary::getId);
+    }
+    
+    @Test
+    public void testPagesByIdDescending() {
+        assertPagesMatch(DocumentSortKey.ID, true, 4, XmlDocumentSummary::getId);
+    }
+    
+    @Test
+    public void testPagesByNameBreakTiesById() {
+        for (int size = 1; size <= 4; size++) {
+            assertPagesMatch(DocumentSortKey.NAME, false, size, XmlDocumentSummary::getName);
+        }
+    }
+    
+    @Test
+    public void testPagesByNameDescending() {
+        for (int size = 1; size <= 4; size++) {
+            assertPagesMatch(DocumentSortKey.NAME, true, size, XmlDocumentSummary::getName);
+        }
+    }
+    
+    @Test
+    public void testPagesByTitleWithEmptyTitles() {
+        assertPagesMatch(DocumentSortKey.TITLE, false, 2, XmlDocumentSummary::getTitle);
+        assertPagesMatch(DocumentSortKey.TITLE, true, 2, XmlDocumentSummary::getTitle);
+    }
+    
+    @Test
+    public void testPagesByTimestamps() {
+        assertPagesMatch(DocumentSortKey.CREATED_AT, false, 2, XmlDocumentSummary::getCreatedAt);
+        assertPagesMatch(DocumentSortKey.CREATED_AT, true, 2, XmlDocumentSummary::getCreatedAt);
+        assertPagesMatch(DocumentSortKey.UPDATED_AT, false, 3, XmlDocumentSummary::getUpdatedAt);
+        assertPagesMatch(DocumentSortKey.UPDATED_AT, true, 3, XmlDocumentSummary::getUpdatedAt);
+    }
+    
+    @Test
+    public void testSubSecondTimestampsSurviveTheRoundTrip() {
+        XmlDocumentSummary last = all.get(all.size() - 1);
+        assertEquals(T0.plusSeconds(3).plusNanos(123_456_000), last.getCreatedAt());
+        
+        // Continuing after the row itself must not return it again
+        List<XmlDocumentSummary> after = repository.findSummariesAfter(DocumentSortKey.CREATED_AT, false,
+            last.getCreatedAt(), last.getId(), 10);
+        assertTrue(after.isEmpty());
+    }
+    
+    /**
+     * Walk the list page by page, continuing after the last row of each page, and compare
+     * with the whole list sorted in memory by (value, id).
+     */
+    private <T extends Comparable<T>> void assertPagesMatch(DocumentSortKey sortKey, boolean descending, int size,
+                                                            Function<XmlDocumentSummary, T> value) {
+        Comparator<XmlDocumentSummary> order = Comparator.comparing(value).thenComparing(XmlDocumentSummary::getId);
+        List<Long> expected = all.stream()
+            .sorted(descending ? order.reversed() : order)
+            .map(XmlDocumentSummary::getId)
+            .toList();
+        
+        List<Long> walked = new ArrayList<>();
+        Object afterValue = null;
+        Long afterId = null;
+        while (true) {
+            List<XmlDocumentSummary> page = repository.findSummariesAfter(sortKey, descending, afterValue, afterId, size);
+            assertTrue(page.size() <= size);
+            page.forEach(row -> walked.add(row.getId()));
+            if (page.size() < size) {
+                break;
+            }
+            XmlDocumentSummary last = page.get(page.size() - 1);
+            afterValue = sortKey == DocumentSortKey.ID ? null : value.apply(last);
+            afterId = last.getId();
+        }
+        assertEquals(expected, walked, sortKey + (descending ? " desc" : " asc") + ", page size " + size);
+    }
+}
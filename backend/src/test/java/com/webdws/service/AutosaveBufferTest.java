@@ -0,0 +1,118 @@
+package com.webdws.service;
+
+import com.webdws.config.AutosaveConfig;
+import com.webdws.dto.SaveXmlRequest;
+import com.webdws.dto.XmlDocumentDto;
+import com.webdws.xml.MalformedXmlException;
+import com.webdws.xml.XmlStreamParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class AutosaveBufferTest {
+    
+    private static final Long ID = 1L;
+    private static final SaveXmlRequest DRAFT = new SaveXmlRequest("entry.xml", "<entry><sense/></entry>");
+    
+    private final AtomicLong version = new AtomicLong();
+    private AutosaveBuffer buffer;
+    
+    @BeforeEach
+    public void setUp() {
+        // Stands in for PostgreSQL: checks If-Match and counts versions up
+        XmlDocumentService documents = mock(XmlDocumentService.class);
+        when(documents.getDocumentVersion(ID)).thenAnswer(invocation -> version.get());
+        when(documents.updateDocument(eq(ID), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            Long expected = invocation.getArgument(2);
+            if (expected != null && expected != version.get()) {
+                throw new DocumentVersionConflictException("stale");
+            }
+            XmlDocumentDto dto = new XmlDocumentDto();
+            dto.setVersion(version.incrementAndGet());
+            return dto;
+        });
+        when(documents.updateDocument(eq(ID), any(), any())).thenAnswer(invocation ->
+            documents.updateDocument(ID, invocation.getArgument(1), invocation.getArgument(2), true));
+        
+        buffer = new AutosaveBuffer();
+        ReflectionTestUtils.setField(buffer, "config", new AutosaveConfig());
+        ReflectionTestUtils.setField(buffer, "xmlDocumentService", documents);
+        ReflectionTestUtils.setField(buffer, "xmlStreamParser", new XmlStreamParser());
+        ReflectionTestUtils.setField(buffer, "meterRegistry", new SimpleMeterRegistry());
+        buffer.init();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        buffer.shutdown();
+    }
+    
+    @Test
+    public void testOwnDraftsKeepETagValid() {
+        String token = buffer.put(ID, DRAFT, 0L, null);
+        assertNotNull(token);
+        buffer.flushAll();
+        assertEquals(1, version.get());
+        
+        assertEquals(token, buffer.put(ID, DRAFT, 0L, token));
+        buffer.flushAll();
+        XmlDocumentDto saved = buffer.save(ID, DRAFT, 0L, token);
+        
+        assertEquals(3, saved.getVersion());
+    }
+    
+    @Test
+    public void testWrittenDraftMakesOtherClientsETagStale() {
+        String token = buffer.put(ID, DRAFT, 0L, null);
+        buffer.flushAll();
+        
+        // Another client that loaded version 0 must not overwrite the written draft
+        assertThrows(DocumentVersionConflictException.class, () -> buffer.save(ID, DRAFT, 0L, null));
+        assertThrows(DocumentVersionConflictException.class, () -> buffer.save(ID, DRAFT, 0L, "other"));
+        assertThrows(DocumentVersionConflictException.class, () -> buffer.put(ID, DRAFT, 0L, "other"));
+        assertEquals(1, version.get());
+        
+        buffer.save(ID, DRAFT, 0L, token);
+        assertEquals(2, version.get());
+    }
+    
+    @Test
+    public void testBufferedDraftOfOtherClientIsNotReplaced() {
+        buffer.put(ID, DRAFT, 0L, null);
+        
+        assertThrows(DocumentVersionConflictException.class, () -> buffer.put(ID, DRAFT, 0L, "other"));
+        assertThrows(DocumentVersionConflictException.class, () -> buffer.save(ID, DRAFT, 0L, "other"));
+        assertTrue(buffer.get(ID).isPresent());
+        assertEquals(0, version.get());
+    }
+    
+    @Test
+    public void testUnconditionalSaveSupersedesDraft() {
+        buffer.put(ID, DRAFT, 0L, null);
+        
+        buffer.save(ID, DRAFT, null, null);
+        
+        assertTrue(buffer.get(ID).isEmpty());
+        assertEquals(0, buffer.flushAll());
+        assertEquals(1, version.get());
+    }
+    
+    @Test
+    public void testMalformedDraftIsRejected() {
+        buffer.put(ID, DRAFT, 0L, null);
+        
+        assertThrows(MalformedXmlException.class,
+            () -> buffer.put(ID, new SaveXmlRequest("entry.xml", "<entry><sense></entry>"), 0L, null));
+        
+        // The well-formed draft buffered before is kept
+        assertEquals(DRAFT.getContent(), buffer.get(ID).orElseThrow().getContent());
+    }
+}
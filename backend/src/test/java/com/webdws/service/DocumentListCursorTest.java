@@ -0,0 +1,139 @@
+package com.webdws.service;
+
+import com.webdws.repository.DocumentSortKey;
+import com.webdws.repository.XmlDocumentSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentListCursorTest {
+    
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000);
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 3, 2, 8, 30);
+    
+    private static XmlDocumentSummary row(long id, String name, String title) {
+        return new XmlDocumentSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+            
+            @Override
+            public String getName() {
+                return name;
+            }
+            
+            @Override
+            public String getTitle() {
+                return title;
+            }
+            
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return CREATED;
+            }
+            
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return UPDATED;
+            }
+        };
+    }
+    
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testRoundTripPerSortKey() {
+        XmlDocumentSummary last = row(42, "a|b.xml", "Entr\u00e9e");
+        
+        DocumentListCursor byId = DocumentListCursor.decode(
+            DocumentListCursor.encode(DocumentSortKey.ID, false, last), DocumentSortKey.ID, false);
+        assertEquals(42, byId.getAfterId());
+        assertNull(byId.getAfterValue());
+        
+        // The value may contain the separator
+        DocumentListCursor byName = DocumentListCursor.decode(
+            DocumentListCursor.encode(DocumentSortKey.NAME, true, last), DocumentSortKey.NAME, true);
+        assertEquals("a|b.xml", byName.getAfterValue());
+        assertEquals(42, byName.getAfterId());
+        
+        DocumentListCursor byTitle = DocumentListCursor.decode(
+            DocumentListCursor.encode(DocumentSortKey.TITLE, false, last), DocumentSortKey.TITLE, false);
+        assertEquals("Entr\u00e9e", byTitle.getAfterValue());
+        
+        DocumentListCursor byCreated = DocumentListCursor.decode(
+            DocumentListCursor.encode(DocumentSortKey.CREATED_AT, false, last), DocumentSortKey.CREATED_AT, false);
+        assertEquals(CREATED, byCreated.getAfterValue());
+        
+        DocumentListCursor byUpdated = DocumentListCursor.decode(
+            DocumentListCursor.encode(DocumentSortKey.UPDATED_AT, true, last), DocumentSortKey.UPDATED_AT, true);
+        assertEquals(UPDATED, byUpdated.getAfterValue());
+    }
+    
+    @Test
+    public void testEmptyTitleRoundTrip() {
+        String cursor = DocumentListCursor.encode(DocumentSortKey.TITLE, false, row(7, "x.xml", ""));
+        
+        assertEquals("", DocumentListCursor.decode(cursor, DocumentSortKey.TITLE, false).getAfterValue());
+    }
+    
+    @Test
+    public void testCursorIsUrlSafe() {
+        String cursor = DocumentListCursor.encode(DocumentSortKey.NAME, false, row(1, "??>>~~.xml", ""));
+        
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+    
+    @Test
+    public void testCursorBoundToSortOrder() {
+        String cursor = DocumentListCursor.encode(DocumentSortKey.NAME, false, row(1, "a.xml", ""));
+        
+        IllegalArgumentException otherKey = assertThrows(IllegalArgumentException.class,
+            () -> DocumentListCursor.decode(cursor, DocumentSortKey.TITLE, false));
+        assertEquals("Cursor was issued for a different sort order", otherKey.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> DocumentListCursor.decode(cursor, DocumentSortKey.NAME, true));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "not base64!",
+        "djF8aWR8YQ",
+        "djF8aWR8YXx4eXp8",
+        "djJ8aWR8YXwxfA",
+        "djF8aWR8cXwxfA",
+        "djF8aWR8YXwtfA",
+        "Y3JlYXRlZEF0",
+        ""
+    })
+    public void testTamperedCursorRejected(String cursor) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> DocumentListCursor.decode(cursor, DocumentSortKey.ID, false));
+        assertTrue(e.getMessage().startsWith("Invalid cursor") || e.getMessage().contains("different sort order"),
+            e.getMessage());
+    }
+    
+    @Test
+    public void testTamperedValuesRejected() {
+        // Well-formed token with an unparseable timestamp or id
+        assertThrows(IllegalArgumentException.class, () -> DocumentListCursor.decode(
+            token("v1|createdAt|a|5|yesterday"), DocumentSortKey.CREATED_AT, false));
+        assertThrows(IllegalArgumentException.class, () -> DocumentListCursor.decode(
+            token("v1|name|a|5 OR 1=1|x"), DocumentSortKey.NAME, false));
+        assertThrows(IllegalArgumentException.class, () -> DocumentListCursor.decode(
+            token("v1|name|a|99999999999999999999|x"), DocumentSortKey.NAME, false));
+        
+        // Hand-made tokens in the right format are accepted as positions, nothing more
+        DocumentListCursor crafted = DocumentListCursor.decode(token("v1|name|a|5|'; DROP TABLE x; --"),
+            DocumentSortKey.NAME, false);
+        assertEquals("'; DROP TABLE x; --", crafted.getAfterValue());
+        assertEquals(5, crafted.getAfterId());
+    }
+}
@@ -0,0 +1,218 @@
+package com.webdws.service;
+
+import com.webdws.config.OutboxConfig;
+import com.webdws.model.ExistDbOutboxEntry;
+import com.webdws.repository.ExistDbOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs ExistDbOutbox against the outbox table in H2. The background dispatcher is replaced
+ * by one that never runs, so each test dispatches explicitly.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ExistDbOutboxTest {
+    
+    @Autowired
+    private ExistDbOutboxRepository repository;
+    
+    private ExistDbService existDbService;
+    private DocumentContentCache contentCache;
+    private OutboxConfig config;
+    private ExistDbOutbox outbox;
+    
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        existDbService = mock(ExistDbService.class);
+        contentCache = mock(DocumentContentCache.class);
+        ExistDbHealthMonitor healthMonitor = mock(ExistDbHealthMonitor.class);
+        when(healthMonitor.allowRequest()).thenReturn(true);
+        config = new OutboxConfig();
+        
+        outbox = new ExistDbOutbox();
+        ReflectionTestUtils.setField(outbox, "config", config);
+        ReflectionTestUtils.setField(outbox, "repository", repository);
+        ReflectionTestUtils.setField(outbox, "existDbService", existDbService);
+        ReflectionTestUtils.setField(outbox, "healthMonitor", healthMonitor);
+        ReflectionTestUtils.setField(outbox, "contentCache", contentCache);
+        ReflectionTestUtils.setField(outbox, "dispatcher", mock(ScheduledExecutorService.class));
+    }
+    
+    @Test
+    public void testPendingContentIsLatestStore() {
+        outbox.enqueueStore("a", "<v1/>");
+        outbox.enqueueStore("a", "<v2/>");
+        assertEquals("<v2/>", outbox.pendingContent("a").orElseThrow());
+        
+        outbox.enqueueDelete("a");
+        assertTrue(outbox.pendingContent("a").isEmpty());
+        assertTrue(outbox.pendingContent("b").isEmpty());
+    }
+    
+    @Test
+    public void testDispatchCoalescesWritesPerDocument() {
+        outbox.enqueueStore("a", "<v1/>");
+        outbox.enqueueStore("b", "<w1/>");
+        outbox.enqueueStore("a", "<v2/>");
+        outbox.enqueueStore("c", "<x1/>");
+        outbox.enqueueDelete("c");
+        
+        outbox.dispatch();
+        
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("b", "<w1/>");
+        expected.put("a", "<v2/>");
+        verify(existDbService).storeDocuments(expected);
+        verify(existDbService).removeDocument("c");
+        verify(existDbService, never()).putDocument(anyString(), anyString());
+        assertEquals(0, repository.count());
+    }
+    
+    @Test
+    public void testFailedBatchFallsBackToSingleWrites() {
+        outbox.enqueueStore("a", "<v1/>");
+        outbox.enqueueStore("b", "<w1/>");
+        doThrow(new ResourceAccessException("timeout")).when(existDbService).storeDocuments(anyMap());
+        doThrow(new ResourceAccessException("bad entry")).when(existDbService).putDocument("b", "<w1/>");
+        
+        outbox.dispatch();
+        
+        verify(existDbService).putDocument("a", "<v1/>");
+        List<ExistDbOutboxEntry> left = repository.findAll();
+        assertEquals(1, left.size());
+        assertEquals("b", left.get(0).getExistDbId());
+        assertEquals(1, left.get(0).getAttempts());
+    }
+    
+    @Test
+    public void testDeleteUpToKeepsNewerEntriesAndOtherDocuments() {
+        ExistDbOutboxEntry first = repository.save(new ExistDbOutboxEntry("a", ExistDbOutboxEntry.Operation.STORE, "<v1/>"));
+        ExistDbOutboxEntry other = repository.save(new ExistDbOutboxEntry("b", ExistDbOutboxEntry.Operation.STORE, "<w1/>"));
+        ExistDbOutboxEntry second = repository.save(new ExistDbOutboxEntry("a", ExistDbOutboxEntry.Operation.STORE, "<v2/>"));
+        ExistDbOutboxEntry third = repository.save(new ExistDbOutboxEntry("a", ExistDbOutboxEntry.Operation.STORE, "<v3/>"));
+        
+        assertEquals(2, repository.deleteUpTo("a", second.getId()));
+        
+        List<ExistDbOutboxEntry> left = repository.findAll();
+        assertEquals(List.of(other.getId(), third.getId()), left.stream().map(ExistDbOutboxEntry::getId).sorted().toList());
+        assertFalse(repository.existsById(first.getId()));
+    }
+    
+    @Test
+    public void testWriteEnqueuedDuringDispatchIsNotLost() {
+        outbox.enqueueStore("a", "<v1/>");
+        // A save commits while the older content is on its way to eXist-db
+        doAnswer(invocation -> {
+            outbox.enqueueStore("a", "<v2/>");
+            return null;
+        }).doNothing().when(existDbService).putDocument(eq("a"), anyString());
+        
+        outbox.dispatch();
+        
+        InOrder inOrder = inOrder(existDbService);
+        inOrder.verify(existDbService).putDocument("a", "<v1/>");
+        inOrder.verify(existDbService).putDocument("a", "<v2/>");
+        assertEquals(0, repository.count());
+    }
+    
+    @Test
+    public void testRescheduleBacksOffExponentially() {
+        config.setRetryBackoff(Duration.ofSeconds(2));
+        config.setMaxRetryBackoff(Duration.ofSeconds(30));
+        doThrow(new ResourceAccessException("connection refused")).when(existDbService).putDocument(anyString(), anyString());
+        outbox.enqueueStore("a", "<v1/>");
+        
+        long[] expectedSeconds = {2, 4, 8, 16, 30, 30};
+        for (int attempt = 1; attempt <= expectedSeconds.length; attempt++) {
+            LocalDateTime before = LocalDateTime.now();
+            outbox.dispatch();
+            
+            ExistDbOutboxEntry entry = repository.findAll().get(0);
+            assertEquals(attempt, entry.getAttempts());
+            assertEquals("connection refused", entry.getLastError());
+            long delay = Duration.between(before, entry.getNextAttemptAt()).toMillis();
+            assertTrue(delay >= expectedSeconds[attempt - 1] * 1000 && delay < expectedSeconds[attempt - 1] * 1000 + 1000,
+                "attempt " + attempt + " rescheduled after " + delay + "ms");
+            
+            // Make it due again for the next round
+            entry.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+            repository.save(entry);
+        }
+        verify(existDbService, times(expectedSeconds.length)).putDocument("a", "<v1/>");
+    }
+    
+    @Test
+    public void testRescheduleCoversSupersededEntries() {
+        outbox.enqueueStore("a", "<v1/>");
+        outbox.enqueueStore("a", "<v2/>");
+        doThrow(new ResourceAccessException("connection refused")).when(existDbService).putDocument(anyString(), anyString());
+        
+        outbox.dispatch();
+        
+        // Both entries wait for the retry; the older one is not dispatched on its own meanwhile
+        assertTrue(repository.findByNextAttemptAtLessThanEqualOrderByIdAsc(LocalDateTime.now(),
+            PageRequest.of(0, 10)).isEmpty());
+        assertEquals(2, repository.count());
+        verify(existDbService, never()).putDocument("a", "<v1/>");
+    }
+    
+    @Test
+    public void testFlushIgnoresBackoff() {
+        doThrow(new ResourceAccessException("connection refused")).doNothing()
+            .when(existDbService).putDocument(anyString(), anyString());
+        outbox.enqueueStore("a", "<v1/>");
+        outbox.dispatch();
+        assertEquals(1, repository.count());
+        
+        outbox.flush("a");
+        
+        verify(existDbService, times(2)).putDocument("a", "<v1/>");
+        assertEquals(0, repository.count());
+    }
+    
+    @Test
+    public void testCacheInvalidatedBeforeEntryIsRemoved() {
+        outbox.enqueueStore("a", "<v1/>");
+        doAnswer(invocation -> {
+            // A reader arriving now must still find the pending content, not a stale cache entry
+            assertEquals("<v1/>", outbox.pendingContent("a").orElseThrow());
+            return null;
+        }).when(contentCache).invalidate("a");
+        
+        outbox.dispatch();
+        
+        verify(contentCache).invalidate("a");
+        assertTrue(outbox.pendingContent("a").isEmpty());
+    }
+    
+    @Test
+    public void testCacheNotInvalidatedOnFailure() {
+        doThrow(new ResourceAccessException("connection refused")).when(existDbService).putDocument(anyString(), anyString());
+        outbox.enqueueStore("a", "<v1/>");
+        
+        outbox.dispatch();
+        
+        verify(contentCache, never()).invalidate(anyString());
+    }
+}
@@ -0,0 +1,267 @@
+package com.webdws.service;
+
+import com.webdws.config.ImportConfig;
+import com.webdws.config.ValidationConfig;
+import com.webdws.dto.ImportStatusDto;
+import com.webdws.model.XmlDocument;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.xml.XmlSchemaValidator;
+import com.webdws.xml.XmlStreamParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ImportServiceTest {
+    
+    private ImportConfig config;
+    private ExistDbService existDbService;
+    private XmlDocumentRepository repository;
+    private NameSearchIndex nameSearchIndex;
+    private DocumentContentStore contentStore;
+    private ImportService importService;
+    
+    // Every content eXist-db accepted, by the id it was given
+    private final Map<String, String> stored = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final List<List<String>> storeRequests = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<XmlDocument>> inserts = Collections.synchronizedList(new ArrayList<>());
+    
+    @BeforeEach
+    public void setUp() {
+        config = new ImportConfig();
+        config.setBatchSize(3);
+        config.setValidationThreads(2);
+        config.setMaxConcurrentJobs(1);
+        
+        XmlStreamParser parser = new XmlStreamParser();
+        XmlSchemaValidator schemaValidator = new XmlSchemaValidator();
+        ReflectionTestUtils.setField(schemaValidator, "config", new ValidationConfig());
+        ReflectionTestUtils.setField(schemaValidator, "xmlStreamParser", parser);
+        SavePipeline savePipeline = new SavePipeline();
+        ReflectionTestUtils.setField(savePipeline, "xmlStreamParser", parser);
+        ReflectionTestUtils.setField(savePipeline, "schemaValidator", schemaValidator);
+        ReflectionTestUtils.setField(savePipeline, "subscribers", List.of());
+        
+        AtomicInteger nextId = new AtomicInteger();
+        existDbService = mock(ExistDbService.class);
+        when(existDbService.storeDocumentBatch(anyList())).thenAnswer(invocation -> {
+            List<String> contents = new ArrayList<>(invocation.getArgument(0));
+            storeRequests.add(contents);
+            if (contents.stream().anyMatch(content -> content.contains("unstorable"))) {
+                throw new RestClientException("Rejected by eXist-db");
+            }
+            List<String> ids = new ArrayList<>();
+            for (String content : contents) {
+                String id = "doc-" + nextId.incrementAndGet() + ".xml";
+                stored.put(id, content);
+                ids.add(id);
+            }
+            return ids;
+        });
+        repository = mock(XmlDocumentRepository.class);
+        doAnswer(invocation -> inserts.add(new ArrayList<>(invocation.getArgument(0))))
+            .when(repository).batchInsert(anyList());
+        nameSearchIndex = mock(NameSearchIndex.class);
+        contentStore = mock(DocumentContentStore.class);
+        
+        importService = new ImportService();
+        ReflectionTestUtils.setField(importService, "config", config);
+        ReflectionTestUtils.setField(importService, "savePipeline", savePipeline);
+        ReflectionTestUtils.setField(importService, "existDbService", existDbService);
+        ReflectionTestUtils.setField(importService, "repository", repository);
+        ReflectionTestUtils.setField(importService, "nameSearchIndex", nameSearchIndex);
+        ReflectionTestUtils.setField(importService, "contentStore", contentStore);
+        importService.init();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        importService.shutdown();
+    }
+    
+    private ImportStatusDto importAndWait(byte[] upload, ImportService.Format format) throws Exception {
+        String jobId = importService.startImport(new ByteArrayInputStream(upload), format).getJobId();
+        long deadline = System.currentTimeMillis() + 10_000;
+        ImportStatusDto status = importService.getStatus(jobId);
+        while ("RUNNING".equals(status.getStatus())) {
+            assertTrue(System.currentTimeMillis() < deadline, "Import did not finish");
+            Thread.sleep(10);
+            status = importService.getStatus(jobId);
+        }
+        return status;
+    }
+    
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static Map<String, String> errors(ImportStatusDto status) {
+        return status.getErrors().stream()
+            .collect(Collectors.toMap(ImportStatusDto.EntryError::getEntry, ImportStatusDto.EntryError::getMessage));
+    }
+    
+    private static Set<Path> spoolFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("webdws-import-"))
+                .collect(Collectors.toSet());
+        }
+    }
+    
+    @Test
+    public void testEntriesAreImportedInBatches() throws Exception {
+        StringBuilder upload = new StringBuilder("<dictionary xmlns=\"urn:x\" xmlns:t=\"urn:t\">");
+        for (int i = 1; i <= 7; i++) {
+            upload.append("<entry id=\"e").append(i).append("\"><t:form>word ").append(i).append("</t:form></entry>");
+        }
+        upload.append("</dictionary>");
+        
+        ImportStatusDto status = importAndWait(upload.toString().getBytes(StandardCharsets.UTF_8), ImportService.Format.XML);
+        
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(7, status.getProcessed());
+        assertEquals(7, status.getImported());
+        assertEquals(0, status.getFailed());
+        // One eXist-db request and one batched insert per batch of three
+        assertEquals(List.of(3, 3, 1), storeRequests.stream().map(List::size).collect(Collectors.toList()));
+        assertEquals(List.of(3, 3, 1), inserts.stream().map(List::size).collect(Collectors.toList()));
+        verify(nameSearchIndex, times(3)).catchUp();
+        verify(contentStore, times(3)).recordAll(anyList(), anyList());
+        
+        XmlDocument first = inserts.get(0).get(0);
+        assertEquals("e1", first.getName());
+        assertEquals(DocumentContentStore.hash(stored.get(first.getExistDbId())), first.getContentHash());
+        // Each entry is a document on its own, with the namespaces of the wrapping root
+        String content = stored.get(first.getExistDbId());
+        assertTrue(content.contains("xmlns=\"urn:x\"") && content.contains("xmlns:t=\"urn:t\""), content);
+    }
+    
+    @Test
+    public void testFailedEntriesDoNotStopTheImport() throws Exception {
+        config.setMaxEntrySize(100);
+        byte[] upload = zip(
+            "entries/apple.xml", "<entry><form>apple</form></entry>",
+            "entries/broken.xml", "<entry><form>broken</entry>",
+            "entries/cherry.xml", "<entry><form>cherry</form></entry>",
+            "entries/", "",
+            "entries/.hidden.xml", "<entry/>",
+            "__MACOSX/entries/apple.xml", "<entry/>",
+            "entries/huge.xml", "<entry>" + "x".repeat(200) + "</entry>",
+            "entries/refused.xml", "<entry><form>unstorable</form></entry>",
+            "entries/damson.xml", "<entry><form>damson</form></entry>");
+        
+        ImportStatusDto status = importAndWait(upload, ImportService.Format.ZIP);
+        
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(6, status.getProcessed());
+        assertEquals(3, status.getImported());
+        assertEquals(3, status.getFailed());
+        Map<String, String> errors = errors(status);
+        assertEquals(Set.of("broken", "huge", "refused"), errors.keySet());
+        assertTrue(errors.get("broken").startsWith("Invalid XML: "), errors.get("broken"));
+        assertEquals("Entry exceeds maximum size of 100 bytes", errors.get("huge"));
+        assertEquals("Failed to store in eXist-db: Rejected by eXist-db", errors.get("refused"));
+        
+        // The rejected batch was retried entry by entry; the others in it were still stored
+        assertEquals(List.of(2, 2, 1, 1), storeRequests.stream().map(List::size).collect(Collectors.toList()));
+        assertEquals(List.of("apple", "cherry", "damson"), inserts.stream().flatMap(List::stream)
+            .map(XmlDocument::getName).collect(Collectors.toList()));
+    }
+    
+    @Test
+    public void testOversizedXmlEntryIsSkipped() throws Exception {
+        config.setMaxEntrySize(100);
+        String upload = "<dictionary><entry id=\"small\">apple</entry>"
+            + "<entry id=\"huge\"><form>" + "x".repeat(100_000) + "</form><sense/></entry>"
+            + "<entry id=\"after\">cherry</entry></dictionary>";
+        
+        ImportStatusDto status = importAndWait(upload.getBytes(StandardCharsets.UTF_8), ImportService.Format.XML);
+        
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(2, status.getImported());
+        assertEquals(Map.of("huge", "Entry exceeds maximum size of 100 bytes"), errors(status));
+        assertEquals(List.of("small", "after"), inserts.stream().flatMap(List::stream)
+            .map(XmlDocument::getName).collect(Collectors.toList()));
+    }
+    
+    @Test
+    public void testStoredEntriesAreRemovedWhenMetadataInsertFails() throws Exception {
+        doThrow(new DataAccessResourceFailureException("Connection lost"))
+            .doAnswer(invocation -> inserts.add(new ArrayList<>(invocation.getArgument(0))))
+            .when(repository).batchInsert(anyList());
+        byte[] upload = zip("a.xml", "<a/>", "b.xml", "<b/>", "c.xml", "<c/>", "d.xml", "<d/>");
+        
+        ImportStatusDto status = importAndWait(upload, ImportService.Format.ZIP);
+        
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(4, status.getProcessed());
+        assertEquals(1, status.getImported());
+        assertEquals(3, status.getFailed());
+        assertEquals("Failed to store metadata: Connection lost", errors(status).get("b"));
+        // The first batch's documents would otherwise be orphans in eXist-db
+        for (String existDbId : List.of("doc-1.xml", "doc-2.xml", "doc-3.xml")) {
+            verify(existDbService).deleteDocument(existDbId);
+            verify(contentStore).delete(existDbId);
+        }
+        verify(existDbService, never()).deleteDocument("doc-4.xml");
+        assertEquals("d", inserts.get(0).get(0).getName());
+        verify(nameSearchIndex, times(1)).catchUp();
+    }
+    
+    @Test
+    public void testSpoolFileIsDeleted() throws Exception {
+        Set<Path> before = spoolFiles();
+        
+        assertEquals("COMPLETED", importAndWait(zip("a.xml", "<a/>"), ImportService.Format.ZIP).getStatus());
+        assertEquals(before, spoolFiles());
+        
+        ImportStatusDto failed = importAndWait("<dictionary><entry>".getBytes(StandardCharsets.UTF_8),
+            ImportService.Format.XML);
+        assertEquals("FAILED", failed.getStatus());
+        assertNotNull(failed.getError());
+        assertEquals(before, spoolFiles());
+        
+        // An upload that breaks off while spooling is not imported at all
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        assertThrows(IOException.class, () -> importService.startImport(broken, ImportService.Format.ZIP));
+        assertEquals(before, spoolFiles());
+    }
+}
@@ -0,0 +1,228 @@
+package com.webdws.service;
+
+import com.webdws.repository.DocumentSortKey;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.repository.XmlDocumentSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class NameSearchIndexTest {
+    
+    // Stands in for the xml_documents table, read by catchUp()
+    private final TreeMap<Long, String[]> rows = new TreeMap<>();
+    private XmlDocumentRepository repository;
+    private NameSearchIndex index;
+    
+    @BeforeEach
+    public void setUp() {
+        repository = mock(XmlDocumentRepository.class);
+        when(repository.findSummariesAfter(eq(DocumentSortKey.ID), eq(false), isNull(), anyLong(), anyInt()))
+            .thenAnswer(invocation -> {
+                long afterId = invocation.getArgument(3);
+                int limit = invocation.getArgument(4);
+                return rows.tailMap(afterId, false).entrySet().stream()
+                    .limit(limit)
+                    .map(row -> summary(row.getKey(), row.getValue()[0], row.getValue()[1]))
+                    .collect(Collectors.toList());
+            });
+        index = new NameSearchIndex();
+        ReflectionTestUtils.setField(index, "repository", repository);
+    }
+    
+    private static XmlDocumentSummary summary(long id, String name, String title) {
+        return new XmlDocumentSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+            
+            @Override
+            public String getName() {
+                return name;
+            }
+            
+            @Override
+            public String getTitle() {
+                return title;
+            }
+            
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return null;
+            }
+            
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return null;
+            }
+        };
+    }
+    
+    private List<Long> ids(String query, int limit) {
+        return index.search(query, limit).stream().map(NameSearchIndex.Hit::id).collect(Collectors.toList());
+    }
+    
+    @Test
+    public void testPrefixMatchesInTextOrder() {
+        index.put(1, "banana.xml", null);
+        index.put(2, "Apricot.xml", null);
+        index.put(3, "apple.xml", null);
+        index.put(4, "grape.xml", null);
+        
+        assertEquals(List.of(3L, 2L), ids("ap", 10));
+        assertEquals(List.of(3L), ids("ap", 1));
+        assertEquals(List.of(1L), ids("BAN", 10));
+        assertTrue(ids("x", 10).isEmpty());
+    }
+    
+    @Test
+    public void testMatchingIgnoresCaseAndAccents() {
+        index.put(1, "\u00c9clair.xml", null);
+        index.put(2, "cr\u00e8me br\u00fbl\u00e9e.xml", null);
+        
+        assertEquals(List.of(1L), ids("ecl", 10));
+        assertEquals(List.of(1L), ids("\u00c9CLA", 10));
+        assertEquals(List.of(2L), ids("brulee", 10));
+        assertEquals("creme", NameSearchIndex.normalize("  Cr\u00e8me "));
+    }
+    
+    @Test
+    public void testInfixMatchesAfterPrefixMatches() {
+        index.put(1, "pineapple.xml", null);
+        index.put(2, "apple.xml", null);
+        index.put(3, "crabapple.xml", null);
+        index.put(4, "snapple.xml", null);
+        
+        // Prefix first, then by match position, then by length, then text
+        assertEquals(List.of(2L, 4L, 3L, 1L), ids("apple", 10));
+        assertEquals(List.of(2L, 4L), ids("apple", 2));
+    }
+    
+    @Test
+    public void testInfixNeedsThreeCharacters() {
+        index.put(1, "pineapple.xml", null);
+        
+        assertTrue(ids("ap", 10).isEmpty());
+        assertEquals(List.of(1L), ids("app", 10));
+        // All trigrams must occur, not just one
+        assertTrue(ids("apz", 10).isEmpty());
+    }
+    
+    @Test
+    public void testTitlesAreSearchedToo() {
+        index.put(1, "entry-0001.xml", "Zebra crossing");
+        index.put(2, "entry-0002.xml", "Crossbow");
+        
+        assertEquals(List.of(2L, 1L), ids("cross", 10));
+        NameSearchIndex.Hit hit = index.search("zebra", 10).get(0);
+        assertEquals("entry-0001.xml", hit.name());
+        assertEquals("Zebra crossing", hit.title());
+    }
+    
+    @Test
+    public void testDocumentMatchingByNameAndTitleIsReturnedOnce() {
+        index.put(1, "lexicon.xml", "A lexicon");
+        index.put(2, "other.xml", "Lexicon of words");
+        
+        // Both are prefix matches, in text order: "lexicon of words" before "lexicon.xml"
+        assertEquals(List.of(2L, 1L), ids("lexicon", 10));
+        // The name of 1 matches earliest and is shortest; its title match is not listed again
+        assertEquals(List.of(1L), ids("xicon", 1));
+        assertEquals(List.of(1L, 2L), ids("xicon", 10));
+    }
+    
+    @Test
+    public void testRenameAndRemove() {
+        index.put(1, "alpha.xml", "Alpha");
+        index.put(2, "beta.xml", null);
+        
+        index.put(1, "gamma.xml", null);
+        assertTrue(ids("alpha", 10).isEmpty());
+        assertTrue(ids("lph", 10).isEmpty());
+        assertEquals(List.of(1L), ids("gam", 10));
+        
+        index.remove(2);
+        index.remove(99);
+        assertTrue(ids("beta", 10).isEmpty());
+        assertTrue(ids("eta", 10).isEmpty());
+    }
+    
+    @Test
+    public void testCompactionKeepsResults() {
+        for (long id = 0; id < 2000; id++) {
+            index.put(id, "doc-" + id + ".xml", null);
+        }
+        // Renames and deletes leave dead slots until the index compacts itself
+        for (long id = 0; id < 2000; id += 2) {
+            index.put(id, "renamed-" + id + ".xml", "Title " + id);
+        }
+        for (long id = 1; id < 2000; id += 4) {
+            index.remove(id);
+        }
+        
+        int slotCount = (int) ReflectionTestUtils.getField(index, "slotCount");
+        int deadSlots = (int) ReflectionTestUtils.getField(index, "deadSlots");
+        assertTrue(deadSlots * 4 < slotCount, deadSlots + " dead of " + slotCount);
+        
+        assertEquals(List.of(1998L), ids("renamed-1998", 10));
+        assertEquals(List.of(1998L), ids("title 1998", 10));
+        assertTrue(ids("doc-1998", 10).isEmpty());
+        assertTrue(ids("doc-1997", 10).isEmpty());
+        assertEquals(List.of(1999L), ids("doc-1999", 10));
+        assertEquals(List.of(1999L), ids("c-1999", 10));
+        assertEquals(500, ids("doc-", 2000).size());
+    }
+    
+    @Test
+    public void testCatchUpIndexesNewRowsOnly() {
+        rows.put(1L, new String[] {"alpha.xml", ""});
+        rows.put(2L, new String[] {"beta.xml", "Beta"});
+        rows.put(3L, new String[] {"gamma.xml", ""});
+        index.catchUp();
+        assertEquals(List.of(2L), ids("beta", 10));
+        
+        // Renamed and deleted through the service, which keeps table and index in step
+        rows.put(2L, new String[] {"delta.xml", ""});
+        index.put(2, "delta.xml", "");
+        rows.remove(3L);
+        index.remove(3);
+        // Bulk import bypassing put()
+        rows.put(4L, new String[] {"epsilon.xml", ""});
+        rows.put(5L, new String[] {"zeta.xml", "Gamma ray"});
+        index.catchUp();
+        
+        assertTrue(ids("beta", 10).isEmpty());
+        assertEquals(List.of(2L), ids("delta", 10));
+        assertEquals(List.of(5L), ids("gamma", 10));
+        assertEquals(List.of(4L), ids("epsilon", 10));
+        verify(repository).findSummariesAfter(DocumentSortKey.ID, false, null, 3L, 5000);
+    }
+    
+    @Test
+    public void testCatchUpReadsInPages() {
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 12_001; id++) {
+            rows.put(id, new String[] {"entry-" + id + ".xml", ""});
+            expected.add(id);
+        }
+        
+        index.catchUp();
+        
+        verify(repository).findSummariesAfter(DocumentSortKey.ID, false, null, 0L, 5000);
+        verify(repository).findSummariesAfter(DocumentSortKey.ID, false, null, 5000L, 5000);
+        verify(repository).findSummariesAfter(DocumentSortKey.ID, false, null, 10_000L, 5000);
+        assertEquals(List.of(12_001L), ids("entry-12001", 10));
+        assertEquals(expected.size(), ids("entry-", 20_000).size());
+    }
+}
@@ -0,0 +1,39 @@
+package com.webdws.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViewServiceTest {
+    
+    @Test
+    public void testCompileQueryUsesParsedPaths() {
+        String query = ViewService.compileQuery("/db/webdws", " //book[ @available='true' ] ",
+            List.of("title", "author | @id"), 20, 10);
+        
+        assertTrue(query.contains("let $rows := collection($collection)//book[@available = \"true\"]\n"));
+        assertTrue(query.contains("$row/(title)"));
+        assertTrue(query.contains("$row/(author | @id)"));
+        assertTrue(query.contains("subsequence($rows, 21, 10)"));
+    }
+    
+    @Test
+    public void testCompileQueryWrapsUnions() {
+        String query = ViewService.compileQuery("/db/webdws", "book | magazine", List.of(), 0, 10);
+        assertTrue(query.contains("let $rows := collection($collection)/(book | magazine)\n"));
+    }
+    
+    @Test
+    public void testCompileQueryRejectsInjection() {
+        assertThrows(IllegalArgumentException.class, () -> ViewService.compileQuery("/db/webdws",
+            "//book) | xmldb:remove('/db/webdws') | (.", List.of(), 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> ViewService.compileQuery("/db/webdws",
+            "//book", List.of("title", "update delete ."), 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> ViewService.compileQuery("/db/webdws",
+            "//book", List.of("title) return file:read('/etc/passwd') (: "), 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> ViewService.compileQuery("/db/webdws",
+            "//book[util:eval('xmldb:remove(\"/db\")')]", List.of(), 0, 10));
+    }
+}
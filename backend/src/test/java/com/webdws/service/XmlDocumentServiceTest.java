@@ -0,0 +1,118 @@
+package com.webdws.service;
+
+import com.webdws.config.DocumentListConfig;
+import com.webdws.dto.SaveXmlRequest;
+import com.webdws.dto.XmlDocumentDto;
+import com.webdws.model.XmlDocument;
+import com.webdws.repository.XmlDocumentRepository;
+import com.webdws.xml.XmlSchemaValidator;
+import com.webdws.xml.XmlStreamParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs XmlDocumentService against H2; every service call gets its own transaction, as it
+ * does when called from a request.
+ */
+@DataJpaTest
+@Import(XmlDocumentService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class XmlDocumentServiceTest {
+    
+    private static final String CONTENT = "<library xmlns=\"http://example.com/library\"/>";
+    
+    @Autowired
+    private XmlDocumentService service;
+    
+    @Autowired
+    private XmlDocumentRepository repository;
+    
+    @MockBean
+    private ExistDbService existDbService;
+    
+    @MockBean
+    private XmlStreamParser xmlStreamParser;
+    
+    @MockBean
+    private XmlSchemaValidator schemaValidator;
+    
+    @MockBean
+    private ExistDbOutbox outbox;
+    
+    @MockBean
+    private DocumentContentCache contentCache;
+    
+    @MockBean
+    private DocumentContentStore contentStore;
+    
+    @MockBean
+    private DocumentListConfig listConfig;
+    
+    @MockBean
+    private NameSearchIndex nameSearchIndex;
+    
+    @MockBean
+    private DocumentTitleService titleService;
+    
+    @MockBean
+    private SavePipeline savePipeline;
+    
+    private Long id;
+    
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository.deleteAll();
+        XmlDocument document = new XmlDocument("library.xml", CONTENT);
+        document.setExistDbId("library-id");
+        document.setCreatedAt(LocalDateTime.now());
+        document.setUpdatedAt(LocalDateTime.now());
+        id = repository.saveAndFlush(document).getId();
+        
+        when(outbox.pendingContent("library-id")).thenReturn(Optional.empty());
+        when(contentCache.get(eq("library-id"), any())).thenReturn("<library xmlns=\"http://example.com/library\"><book/></library>");
+        when(savePipeline.parse(any(Reader.class), anyBoolean())).thenReturn(mock(SavePipeline.Pass.class));
+    }
+    
+    @Test
+    public void testGetDoesNotChangeVersion() {
+        long before = service.getDocumentVersion(id);
+        
+        XmlDocumentDto dto = service.getDocumentById(id);
+        
+        assertEquals(before, dto.getVersion());
+        assertEquals(before, service.getDocumentVersion(id));
+        assertEquals(CONTENT, repository.findById(id).orElseThrow().getContent());
+    }
+    
+    @Test
+    public void testUpdateWithVersionFromGetSucceeds() {
+        XmlDocumentDto dto = service.getDocumentById(id);
+        
+        XmlDocumentDto updated = service.updateDocument(id, new SaveXmlRequest("library.xml", CONTENT), dto.getVersion());
+        
+        assertEquals(dto.getVersion() + 1, updated.getVersion());
+    }
+    
+    @Test
+    public void testUpdateWithStaleVersionConflicts() {
+        XmlDocumentDto dto = service.getDocumentById(id);
+        service.updateDocument(id, new SaveXmlRequest("library.xml", CONTENT), dto.getVersion());
+        
+        assertThrows(DocumentVersionConflictException.class,
+            () -> service.updateDocument(id, new SaveXmlRequest("library.xml", CONTENT), dto.getVersion()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.webdws.xml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViewPathTest {
+    
+    @Test
+    public void testAcceptsPathsAndPredicates() {
+        assertEquals("//entry", ViewPath.row("//entry").toXPath());
+        assertEquals("/library/book[@available = \"true\"]", ViewPath.row(" /library/book[ @available='true' ] ").toXPath());
+        assertEquals("entry/sense[2]/def", ViewPath.row("entry/sense[2]/def").toXPath());
+        assertEquals("sense[contains(def, \"x\") and position() < last()]/@id",
+            ViewPath.column("sense[contains(def,'x') and position()<last()]/@id").toXPath());
+        assertEquals("descendant::form[not(@type eq \"variant\")]/orth/text()",
+            ViewPath.column("descendant::form[not(@type eq 'variant')]/orth/text()").toXPath());
+        assertEquals("../*:lemma | tei:*", ViewPath.column("../*:lemma|tei:*").toXPath());
+        assertEquals(".", ViewPath.column(".").toXPath());
+    }
+    
+    @Test
+    public void testSinglePathAndUnion() {
+        assertTrue(ViewPath.row("/library/book[title | author]").isSinglePath());
+        assertFalse(ViewPath.row("//book | //magazine").isSinglePath());
+        assertTrue(ViewPath.row("//book").isAbsolute());
+        assertFalse(ViewPath.row("book").isAbsolute());
+    }
+    
+    @Test
+    public void testStringLiteralsAreRequoted() {
+        // Quotes and ampersands come out escaped for an XQuery string literal
+        assertEquals("title[. = \"Tom & Jerry's \"\"Show\"\"\"]",
+            ViewPath.column("title[. = 'Tom & Jerry''s \"Show\"']").toXPath().replace("&amp;", "&"));
+        assertEquals("title[. = \"a &amp;amp; b\"]", ViewPath.column("title[. = 'a &amp; b']").toXPath());
+    }
+    
+    @Test
+    public void testColumnsMustBeRelative() {
+        assertThrows(IllegalArgumentException.class, () -> ViewPath.column("/library/book"));
+        assertThrows(IllegalArgumentException.class, () -> ViewPath.column("//book"));
+        assertThrows(IllegalArgumentException.class, () -> ViewPath.row("book[/library]"));
+    }
+    
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "update delete //entry",
+        "entry, xmldb:remove('/db/webdws')",
+        "xmldb:remove('/db/webdws')",
+        "entry[xmldb:remove('/db/webdws')]",
+        "file:read('/etc/passwd')",
+        "entry[file:exists('/etc/passwd')]",
+        "util:eval('1')",
+        "doc('/db/system/security/config.xml')//*",
+        "entry[doc('/db/other.xml')]",
+        "collection('/db')//entry",
+        "$collection",
+        "entry[$x]",
+        "for $e in //entry return $e",
+        "let $x := 1 return //entry",
+        "entry[1]) | xmldb:remove('/db') | (.",
+        "entry['x'] | (xmldb:remove('/db'))",
+        "entry[. = ''] ; xmldb:remove('/db')",
+        "entry[. = '']'] | xmldb:remove('/db') | .['",
+        "entry (: comment :)",
+        "<x>{//entry}</x>",
+        "entry{1}",
+        "entry[@id = '1' or true()]/../../(xmldb:remove('/db'))",
+        "namespace::*",
+        "entry[matches(., '(a+)+$')]",
+        "entry[string-join(//a, '')]",
+        "entry[1 + 1]",
+        "entry[",
+        "entry[.='unterminated]",
+        ""
+    })
+    public void testRejectsEverythingElse(String xpath) {
+        assertThrows(IllegalArgumentException.class, () -> ViewPath.row(xpath));
+        assertThrows(IllegalArgumentException.class, () -> ViewPath.column(xpath));
+    }
+    
+    @Test
+    public void testRejectsDeepNesting() {
+        String deep = "entry" + "[a".repeat(40) + "]".repeat(40);
+        assertThrows(IllegalArgumentException.class, () -> ViewPath.row(deep));
+        assertDoesNotThrow(() -> ViewPath.row("entry" + "[a".repeat(10) + "]".repeat(10)));
+    }
+}
@@ -0,0 +1,272 @@
+package com.webdws.xml;
+
+import com.webdws.config.ValidationConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XmlSchemaValidatorTest {
+    
+    private static final String SCHEMA = "schema/note.xsd";
+    private static final String VALID = "<note xmlns=\"urn:webdws:test:note\"><to>Ann</to><priority>2</priority></note>";
+    private static final String INVALID = "<note xmlns=\"urn:webdws:test:note\">\n<to>Ann</to>\n<priority>high</priority>\n</note>";
+    private static final String DICTIONARY = "schema/dictionary.xsd";
+    private static final String COMPOSITE = "schema/composite.xsd";
+    
+    private ValidationConfig config;
+    private XmlSchemaValidator validator;
+    
+    @BeforeEach
+    public void setUp() {
+        config = new ValidationConfig();
+        config.setValidatorPoolSize(2);
+        validator = new XmlSchemaValidator();
+        ReflectionTestUtils.setField(validator, "config", config);
+        ReflectionTestUtils.setField(validator, "xmlStreamParser", new XmlStreamParser());
+    }
+    
+    private List<SchemaViolation> validate(String xml) throws IOException {
+        return validator.validate(new StringReader(xml), validator.schema(SCHEMA));
+    }
+    
+    private List<SchemaViolation> validateFragment(String xml, String... path) throws IOException {
+        return validator.validateFragment(new StringReader(xml), validator.schema(DICTIONARY), List.of(path));
+    }
+    
+    private int idleValidators(XmlSchemaValidator.CompiledSchema schema) {
+        return ((Collection<?>) ReflectionTestUtils.getField(schema, "idleHandlers")).size();
+    }
+    
+    @Test
+    public void testValidAndInvalidDocuments() throws IOException {
+        assertTrue(validate(VALID).isEmpty());
+        
+        // Xerces reports the bad value and the element it invalidates, both on line 3
+        List<SchemaViolation> violations = validate(INVALID);
+        assertEquals(2, violations.size());
+        assertTrue(violations.stream().allMatch(violation -> violation.lineNumber() == 3), violations.toString());
+        assertTrue(violations.get(0).message().contains("high"), violations.get(0).message());
+    }
+    
+    @Test
+    public void testPooledValidatorIsReused() throws IOException {
+        XmlSchemaValidator.CompiledSchema schema = validator.schema(SCHEMA);
+        Object first;
+        try (XmlSchemaValidator.Validation validation = schema.newValidation(null)) {
+            first = validation.handler();
+        }
+        assertEquals(1, idleValidators(schema));
+        try (XmlSchemaValidator.Validation validation = schema.newValidation(null)) {
+            assertSame(first, validation.handler());
+            assertEquals(0, idleValidators(schema));
+        }
+    }
+    
+    @Test
+    public void testReusedValidatorStartsClean() throws IOException {
+        // Invalid, then valid, then invalid again on the same pooled validator
+        List<SchemaViolation> first = validate(INVALID);
+        assertTrue(validate(VALID).isEmpty());
+        assertEquals(first, validate(INVALID));
+        assertEquals(1, idleValidators(validator.schema(SCHEMA)));
+    }
+    
+    @Test
+    public void testValidatorReturnedAfterMalformedDocument() throws IOException {
+        assertThrows(MalformedXmlException.class, () -> validate("<note xmlns=\"urn:webdws:test:note\"><to>"));
+        assertEquals(1, idleValidators(validator.schema(SCHEMA)));
+        
+        assertTrue(validate(VALID).isEmpty());
+    }
+    
+    @Test
+    public void testPoolIsBounded() {
+        XmlSchemaValidator.CompiledSchema schema = validator.schema(SCHEMA);
+        List<XmlSchemaValidator.Validation> open = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            open.add(schema.newValidation(null));
+        }
+        open.forEach(XmlSchemaValidator.Validation::close);
+        // Closing twice must not put a validator into the pool twice
+        open.get(0).close();
+        
+        assertEquals(2, idleValidators(schema));
+    }
+    
+    @Test
+    public void testViolationsAreCapped() throws IOException {
+        config.setMaxErrors(1);
+        
+        assertEquals(1, validate(INVALID).size());
+    }
+    
+    @Test
+    public void testCheckValidThrows() throws IOException {
+        XmlSchemaValidator.CompiledSchema schema = validator.schema(SCHEMA);
+        try (XmlSchemaValidator.Validation validation = schema.newValidation(null)) {
+            new XmlStreamParser().parse(new StringReader(INVALID), validation.handler());
+            SchemaValidationException e = assertThrows(SchemaValidationException.class, validation::checkValid);
+            assertEquals(validation.violations(), e.getViolations());
+            assertFalse(e.getViolations().isEmpty());
+        }
+    }
+    
+    @Test
+    public void testCompiledSchemaIsCachedUntilEvicted() {
+        XmlSchemaValidator.CompiledSchema schema = validator.schema(SCHEMA);
+        assertSame(schema, validator.schema(SCHEMA));
+        
+        validator.evict(SCHEMA);
+        XmlSchemaValidator.CompiledSchema recompiled = validator.schema(SCHEMA);
+        assertNotSame(schema, recompiled);
+        assertEquals(schema.getVersion(), recompiled.getVersion());
+    }
+    
+    @Test
+    public void testSchemaPathsAreRestricted() {
+        assertThrows(IllegalArgumentException.class, () -> validator.schema("schema/../application.yml"));
+        assertThrows(IllegalArgumentException.class, () -> validator.schema("application.xsd"));
+        assertThrows(IllegalArgumentException.class, () -> validator.schema("schema/missing.xsd"));
+        assertThrows(IllegalArgumentException.class, () -> validator.schema(null));
+    }
+    
+    @Test
+    public void testDisabledWithoutConfiguredSchema() throws IOException {
+        assertFalse(validator.isEnabled());
+        try (XmlSchemaValidator.Validation validation = validator.newSaveValidation(null)) {
+            assertNull(validation.handler());
+            validation.checkValid();
+        }
+        
+        config.setSchema(SCHEMA);
+        assertTrue(validator.isEnabled());
+        try (XmlSchemaValidator.Validation validation = validator.newSaveValidation(null)) {
+            assertNotNull(validation.handler());
+        }
+    }
+    
+    @Test
+    public void testConcurrentValidations() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String xml = i % 2 == 0 ? VALID : INVALID;
+                results.add(pool.submit(() -> validate(xml).size()));
+            }
+            int expected = validate(INVALID).size();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0 ? 0 : expected, results.get(i).get(), "document " + i);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(idleValidators(validator.schema(SCHEMA)) <= 2);
+    }
+    
+    @Test
+    public void testFragmentInheritsTargetNamespace() throws IOException {
+        assertTrue(validateFragment("<sense n=\"1\"><def>fruit</def><example>an apple</example>"
+            + "<sense><def>tree</def></sense></sense>", "entry", "sense").isEmpty());
+        assertTrue(validateFragment("<sense xmlns=\"urn:webdws:test:dictionary\"><def>fruit</def></sense>",
+            "dictionary", "entry", "sense", "sense").isEmpty());
+        
+        assertFalse(validateFragment("<sense><example>an apple</example></sense>", "entry", "sense").isEmpty());
+        assertFalse(validateFragment("<sense n=\"0\"><def>fruit</def></sense>", "entry", "sense").isEmpty());
+    }
+    
+    @Test
+    public void testGlobalFragment() throws IOException {
+        // The undeclaration on pron ends with it; sense and def are back in the target namespace
+        assertTrue(validateFragment("<entry id=\"e1\"><form><orth>apple</orth><pron xmlns=\"\">ap</pron></form>"
+            + "<sense><def>fruit</def></sense></entry>", "dictionary", "entry").isEmpty());
+        // Missing required attribute
+        assertFalse(validateFragment("<entry><form><orth>apple</orth></form><sense><def>fruit</def></sense></entry>",
+            "entry").isEmpty());
+    }
+    
+    @Test
+    public void testUnqualifiedLocalFragment() throws IOException {
+        assertTrue(validateFragment("<pron>ap</pron>", "entry", "form", "pron").isEmpty());
+        // As in the document, pron takes no namespace only where the default one is undeclared
+        assertTrue(validateFragment("<form><orth>apple</orth><pron xmlns=\"\">ap</pron></form>", "entry", "form")
+            .isEmpty());
+        assertTrue(validateFragment("<d:form xmlns:d=\"urn:webdws:test:dictionary\"><d:orth>apple</d:orth>"
+            + "<pron>ap</pron></d:form>", "entry", "form").isEmpty());
+        assertFalse(validateFragment("<form><orth>apple</orth><pron>ap</pron></form>", "entry", "form").isEmpty());
+        assertFalse(validateFragment("<sense><def xmlns=\"\">fruit</def></sense>", "entry", "sense").isEmpty());
+    }
+    
+    @Test
+    public void testLocalDeclarationNamedLikeGlobal() throws IOException {
+        // The local entry is a plain string, unlike the global entry
+        assertTrue(validateFragment("<entry>see also</entry>", "entry", "sense", "entry").isEmpty());
+        assertFalse(validateFragment("<entry>see <def>also</def></entry>", "entry", "sense", "entry").isEmpty());
+        assertFalse(validateFragment("<entry>see also</entry>", "entry").isEmpty());
+    }
+    
+    @Test
+    public void testFragmentRootMustMatchPath() throws IOException {
+        List<SchemaViolation> violations = validateFragment("<example>x</example>", "entry", "sense", "def");
+        
+        assertEquals("Fragment root element example does not match path step def", violations.get(0).message());
+        assertEquals(1, violations.get(0).lineNumber());
+    }
+    
+    @Test
+    public void testFragmentErrors() {
+        assertThrows(IllegalArgumentException.class, () -> validateFragment("<x/>", "entry", "sense", "x"));
+        assertThrows(MalformedXmlException.class, () -> validateFragment("<def>fruit", "entry", "sense", "def"));
+    }
+    
+    @Test
+    public void testFragmentSchemaIsCachedPerDeclaration() {
+        XmlSchemaValidator.CompiledSchema schema = validator.schema(DICTIONARY);
+        
+        XmlSchemaValidator.CompiledSchema.Fragment sense = schema.fragment(List.of("entry", "sense"));
+        assertSame(sense, schema.fragment(List.of("dictionary", "entry", "sense")));
+        // Recursion reaches the nested declaration, not the outer one
+        assertNotSame(sense, schema.fragment(List.of("entry", "sense", "sense")));
+        assertSame(schema.fragment(List.of("entry", "sense", "sense")), schema.fragment(List.of("entry", "sense", "sense", "sense")));
+        
+        assertSame(schema, schema.fragment(List.of("entry")).schema());
+        assertNotSame(schema, sense.schema());
+    }
+    
+    @Test
+    public void testFragmentsFromIncludedAndImportedDocuments() throws IOException {
+        XmlSchemaValidator.CompiledSchema schema = validator.schema(COMPOSITE);
+        
+        assertTrue(validator.validateFragment(new StringReader("<part><title>Intro</title></part>"), schema,
+            List.of("article", "part")).isEmpty());
+        assertTrue(validator.validateFragment(new StringReader("<title>Intro</title>"), schema,
+            List.of("article", "part", "title")).isEmpty());
+        assertFalse(validator.validateFragment(new StringReader("<title>Much too long</title>"), schema,
+            List.of("article", "part", "title")).isEmpty());
+        
+        // Declared in a chameleon include, with an unprefixed type reference
+        assertTrue(validator.validateFragment(new StringReader("<text>short</text>"), schema,
+            List.of("article", "note", "text")).isEmpty());
+        assertFalse(validator.validateFragment(new StringReader("<text>not short</text>"), schema,
+            List.of("article", "note", "text")).isEmpty());
+        
+        // Declared in an imported namespace
+        assertTrue(validator.validateFragment(new StringReader("<source>http://example.com/</source>"), schema,
+            List.of("article", "meta", "source")).isEmpty());
+        assertTrue(validator.validateFragment(new StringReader("<meta><source>a</source></meta>"), schema,
+            List.of("article", "meta")).isEmpty());
+        assertFalse(validator.validateFragment(new StringReader("<meta/>"), schema,
+            List.of("article", "meta")).isEmpty());
+    }
+}
@@ -0,0 +1,148 @@
+package com.webdws.xml;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XmlStreamParserTest {
+    
+    private final XmlStreamParser parser = new XmlStreamParser();
+    
+    /**
+     * Records the local names of started elements.
+     */
+    private static class ElementNames extends DefaultHandler {
+        final List<String> names = new ArrayList<>();
+        
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            names.add(localName);
+        }
+    }
+    
+    @Test
+    public void testWellFormedDocument() throws IOException {
+        parser.parse(new StringReader("<entry xmlns=\"urn:x\"><form>a</form></entry>"));
+        parser.parse(new ByteArrayInputStream("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a>\u00e9</a>"
+            .getBytes(StandardCharsets.ISO_8859_1)));
+    }
+    
+    @Test
+    public void testReportsLineAndColumn() {
+        MalformedXmlException e = assertThrows(MalformedXmlException.class,
+            () -> parser.parse(new StringReader("<entry>\n  <form>a</form>\n  <sense></entry>")));
+        
+        assertEquals(3, e.getLineNumber());
+        assertTrue(e.getColumnNumber() > 0);
+        assertTrue(e.getMessage().contains("sense"), e.getMessage());
+    }
+    
+    @Test
+    public void testReusedAfterFailedParse() throws IOException {
+        assertThrows(MalformedXmlException.class, () -> parser.parse(new StringReader("<a><b></a>")));
+        // The failed parse must not leave state behind (open elements, handler, position)
+        ElementNames handler = new ElementNames();
+        parser.parse(new StringReader("<x><y/></x>"), handler);
+        assertEquals(List.of("x", "y"), handler.names);
+        
+        MalformedXmlException again = assertThrows(MalformedXmlException.class,
+            () -> parser.parse(new StringReader("\n\n<a>&undefined;</a>")));
+        assertEquals(3, again.getLineNumber());
+    }
+    
+    @Test
+    public void testHandlerExceptionDoesNotPoisonParser() throws IOException {
+        DefaultHandler failing = new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+                throw new SAXException("stop at " + localName);
+            }
+        };
+        MalformedXmlException e = assertThrows(MalformedXmlException.class,
+            () -> parser.parse(new StringReader("<a/>"), failing));
+        assertEquals("stop at a", e.getMessage());
+        
+        ElementNames handler = new ElementNames();
+        parser.parse(new StringReader("<b/>"), handler);
+        assertEquals(List.of("b"), handler.names);
+    }
+    
+    @Test
+    public void testNestedParseGetsItsOwnParser() throws IOException {
+        ElementNames inner = new ElementNames();
+        ElementNames outer = new ElementNames() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                super.startElement(uri, localName, qName, attributes);
+                if (localName.equals("b")) {
+                    try {
+                        parser.parse(new StringReader("<inner><leaf/></inner>"), inner);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        };
+        
+        parser.parse(new StringReader("<a><b/><c/></a>"), outer);
+        
+        assertEquals(List.of("a", "b", "c"), outer.names);
+        assertEquals(List.of("inner", "leaf"), inner.names);
+    }
+    
+    @Test
+    public void testExternalEntitiesAreNotResolved() {
+        String xxe = "<?xml version=\"1.0\"?><!DOCTYPE a [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><a>&x;</a>";
+        StringBuilder text = new StringBuilder();
+        try {
+            parser.parse(new StringReader(xxe), new DefaultHandler() {
+                @Override
+                public void characters(char[] ch, int start, int length) {
+                    text.append(ch, start, length);
+                }
+            });
+        } catch (MalformedXmlException | IOException e) {
+            // Rejecting the DOCTYPE is fine too
+        }
+        assertFalse(text.toString().contains("root:"), text.toString());
+    }
+    
+    @Test
+    public void testConcurrentParses() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                boolean wellFormed = i % 3 != 0;
+                String xml = wellFormed ? "<doc n=\"" + i + "\"><p/></doc>" : "<doc n=\"" + i + "\"><p></doc>";
+                results.add(pool.submit(() -> {
+                    try {
+                        parser.parse(new StringReader(xml));
+                        return true;
+                    } catch (MalformedXmlException e) {
+                        return false;
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 3 != 0, results.get(i).get(), "document " + i);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.webdws.xml;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XsdModelTest {
+    
+    private static final String DICTIONARY = "urn:webdws:test:dictionary";
+    
+    private static XsdModel compile(String body) throws Exception {
+        String schema = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" + body + "</xs:schema>";
+        return XsdModel.compile("schema/test.xsd",
+            path -> path.equals("schema/test.xsd") ? schema.getBytes(StandardCharsets.UTF_8) : null);
+    }
+    
+    private static XsdModel.ElementDecl resolve(XsdModel model, String... path) {
+        return model.resolve(List.of(path));
+    }
+    
+    /**
+     * Child name to "min..max" of the first global element.
+     */
+    private static Map<String, String> occurrences(XsdModel model) {
+        return model.children(model.getDeclarations().get(0)).stream().collect(Collectors.toMap(
+            child -> child.declaration().getName(), child -> child.minOccurs() + ".." + child.maxOccurs()));
+    }
+    
+    @Test
+    public void testOccurrencesMultipliedThroughBoundedGroups() throws Exception {
+        XsdModel model = compile("<xs:element name=\"entry\"><xs:complexType>"
+            + "<xs:sequence minOccurs=\"2\" maxOccurs=\"3\">"
+            + "  <xs:element name=\"form\" type=\"xs:string\"/>"
+            + "  <xs:sequence maxOccurs=\"4\"><xs:element name=\"sense\" type=\"xs:string\" maxOccurs=\"2\"/></xs:sequence>"
+            + "  <xs:sequence maxOccurs=\"unbounded\"><xs:element name=\"note\" type=\"xs:string\"/></xs:sequence>"
+            + "  <xs:choice><xs:element name=\"a\" type=\"xs:string\"/><xs:element name=\"b\" type=\"xs:string\"/></xs:choice>"
+            + "  <xs:element name=\"never\" type=\"xs:string\" maxOccurs=\"0\"/>"
+            + "  <xs:sequence minOccurs=\"0\" maxOccurs=\"0\"><xs:element name=\"gone\" type=\"xs:string\"/></xs:sequence>"
+            + "</xs:sequence></xs:complexType></xs:element>");
+        
+        assertEquals(Map.of(
+            "form", "2..3",
+            "sense", "2..24",
+            "note", "2..unbounded",
+            "a", "0..3",
+            "b", "0..3"), occurrences(model));
+    }
+    
+    @Test
+    public void testHugeProductIsUnbounded() throws Exception {
+        XsdModel model = compile("<xs:element name=\"entry\"><xs:complexType>"
+            + "<xs:sequence maxOccurs=\"100000\"><xs:sequence maxOccurs=\"100000\">"
+            + "<xs:element name=\"form\" type=\"xs:string\"/></xs:sequence></xs:sequence>"
+            + "</xs:complexType></xs:element>");
+        
+        assertEquals(Map.of("form", "1..unbounded"), occurrences(model));
+    }
+    
+    @Test
+    public void testGroupReferenceOccurrences() throws Exception {
+        XsdModel model = compile("<xs:group name=\"forms\"><xs:sequence>"
+            + "<xs:element name=\"orth\" type=\"xs:string\" maxOccurs=\"2\"/></xs:sequence></xs:group>"
+            + "<xs:element name=\"entry\"><xs:complexType><xs:sequence>"
+            + "<xs:group ref=\"forms\" minOccurs=\"0\" maxOccurs=\"5\"/></xs:sequence></xs:complexType></xs:element>");
+        
+        List<XsdModel.ChildUse> children = model.children(model.getDeclarations().get(0));
+        assertEquals(1, children.size());
+        assertEquals(0, children.get(0).minOccurs());
+        assertEquals("10", children.get(0).maxOccurs());
+    }
+    
+    @Test
+    public void testResolveGlobalAndReferencedElements() throws Exception {
+        XsdModel model = XsdModel.compile("schema/dictionary.xsd", XsdModel.CLASSPATH);
+        XsdModel.ElementDecl entry = model.getGlobalElement(DICTIONARY, "entry");
+        
+        assertTrue(resolve(model, "dictionary").isGlobal());
+        assertSame(entry, resolve(model, "entry"));
+        // Element references resolve to the global declaration
+        assertSame(entry, resolve(model, "dictionary", "entry"));
+        assertSame(model.getGlobalElement(DICTIONARY, "note"), resolve(model, "entry", "sense", "note"));
+    }
+    
+    @Test
+    public void testResolveThroughTypesGroupsAndExtensions() throws Exception {
+        XsdModel model = XsdModel.compile("schema/dictionary.xsd", XsdModel.CLASSPATH);
+        
+        XsdModel.ElementDecl form = resolve(model, "entry", "form");
+        assertFalse(form.isGlobal());
+        assertEquals(DICTIONARY, form.getNamespace());
+        assertEquals("xs:string", resolve(model, "dictionary", "entry", "form", "orth").getTypeName());
+        // form="unqualified" overrides elementFormDefault
+        assertEquals("", resolve(model, "entry", "form", "pron").getNamespace());
+        assertEquals("xs:string", resolve(model, "entry", "sense", "def").getTypeName());
+        assertEquals("xs:string", resolve(model, "entry", "sense", "example").getTypeName());
+        
+        XsdModel.ElementDecl nested = resolve(model, "entry", "sense", "sense", "sense", "sense");
+        assertEquals("d:SenseType", nested.getTypeName());
+        assertSame(resolve(model, "entry", "sense", "sense"), nested);
+    }
+    
+    @Test
+    public void testResolveLocalDeclarationNamedLikeGlobal() throws Exception {
+        XsdModel model = XsdModel.compile("schema/dictionary.xsd", XsdModel.CLASSPATH);
+        XsdModel.ElementDecl local = resolve(model, "entry", "sense", "entry");
+        
+        assertFalse(local.isGlobal());
+        assertEquals("xs:string", local.getTypeName());
+        assertNotSame(model.getGlobalElement(DICTIONARY, "entry"), local);
+    }
+    
+    @Test
+    public void testResolveRejectsPaths() throws Exception {
+        XsdModel model = XsdModel.compile("schema/dictionary.xsd", XsdModel.CLASSPATH);
+        
+        IllegalArgumentException unknownChild = assertThrows(IllegalArgumentException.class,
+            () -> resolve(model, "entry", "sense", "bogus"));
+        assertEquals("Schema does not allow bogus in /entry/sense", unknownChild.getMessage());
+        IllegalArgumentException unknownRoot = assertThrows(IllegalArgumentException.class, () -> resolve(model, "sense"));
+        assertEquals("Schema has no global element sense", unknownRoot.getMessage());
+        // Simple content has no children, and attributes are not element declarations
+        assertThrows(IllegalArgumentException.class, () -> resolve(model, "entry", "form", "orth", "x"));
+        assertThrows(IllegalArgumentException.class, () -> resolve(model, "entry", "id"));
+        assertThrows(IllegalArgumentException.class, () -> resolve(model));
+    }
+    
+    @Test
+    public void testResolveAcrossIncludesAndImports() throws Exception {
+        XsdModel model = XsdModel.compile("schema/composite.xsd", XsdModel.CLASSPATH);
+        
+        XsdModel.ElementDecl title = resolve(model, "article", "part", "title");
+        assertEquals("schema/composite-parts.xsd", title.sourcePath());
+        assertEquals("urn:webdws:test:composite", title.getNamespace());
+        
+        // A chameleon include takes the includer's namespace
+        XsdModel.ElementDecl text = resolve(model, "article", "note", "text");
+        assertEquals("schema/composite-chameleon.xsd", text.sourcePath());
+        assertEquals("urn:webdws:test:composite", text.getNamespace());
+        assertTrue(text.isChameleon());
+        
+        XsdModel.ElementDecl source = resolve(model, "article", "meta", "source");
+        assertEquals("urn:webdws:test:ext", source.getNamespace());
+        assertEquals("schema/composite-ext.xsd", source.sourcePath());
+    }
+}
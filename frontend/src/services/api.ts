@@ -12,6 +12,10 @@ import type { XmlDocument, XmlDocumentList, SaveXmlRequest, ApiResponse } from '
 
 // Schema types
 export interface SchemaElement {
+  // Index of the declaration in SchemaInfo.elements; children are listed one level deep
+  // and resolve to their full declaration (with its own children) through this id
+  id?: number;
+  hasChildren?: boolean;
   name: string;
   namespace?: string;
   type: string;
@@ -131,5 +135,15 @@ export const schemaApi = {
       return response.data.data;
     }
     throw new Error(response.data.error || 'Failed to load schema');
+  },
+
+  // Get one element declaration with its direct children (lazy expansion)
+  async getElement(id: number, path?: string): Promise<SchemaElement> {
+    const query = path ? `?path=${encodeURIComponent(path)}` : '';
+    const response = await api.get<ApiResponse<SchemaElement>>(`/api/schema/elements/${id}${query}`);
+    if (response.data.success && response.data.data) {
+      return response.data.data;
+    }
+    throw new Error(response.data.error || 'Failed to load schema element');
   }
 };
@@ -8,17 +8,22 @@
  */
 
 // Backend API Data Structures
-export interface XmlDocument {
+export interface XmlDocumentSummary {
   id: string;
   name: string;
-  content: string;
+  title?: string | null;
   createdAt: string;
   updatedAt: string;
 }
 
+export interface XmlDocument extends XmlDocumentSummary {
+  content: string;
+}
+
 export interface XmlDocumentList {
-  documents: XmlDocument[];
-  total: number;
+  documents: XmlDocumentSummary[];
+  nextCursor?: string;
+  total?: number;
 }
 
 export interface SaveXmlRequest {